@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs;
+
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.hgvs.task.HgvsToGenomicTask;
+import com.dnastack.beacon.converter.hgvs.worker.HGVSWorkerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HGVS conversion latency against a stub conversion script, which isolates the cost of the process handling from
+ * the hgvs package and the UTA database. Genomic variants are converted in process and never reach the script
+ *
+ * @author patmagee
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HGVSConverterBenchmark {
+
+    @Param({"1", "50"})
+    public int identifierCount;
+
+    private File script;
+    private List<String> identifiers;
+    private List<String> genomicIdentifiers;
+    private HGVSWorkerPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        script = File.createTempFile("stubHgvsToGenomic", ".py");
+        try (InputStream input = getClass().getResourceAsStream("/hgvs/stubHgvsToGenomic.py")) {
+            Files.copy(input, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.setProperty(HgvsToGenomicTask.SCRIPT_PROPERTY, script.getAbsolutePath());
+
+        identifiers = new ArrayList<>(identifierCount);
+        genomicIdentifiers = new ArrayList<>(identifierCount);
+        for (int i = 0; i < identifierCount; i++) {
+            identifiers.add("NM_000059.3:c." + (1000 + i) + "A>G");
+            genomicIdentifiers.add("NC_000013.10:g." + (32890000 + i) + "A>G");
+        }
+        pool = new HGVSWorkerPool(1);
+        HGVSConverter.setGenomicInProcess(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        HGVSConverter.setGenomicInProcess(false);
+        System.clearProperty(HgvsToGenomicTask.SCRIPT_PROPERTY);
+        script.delete();
+    }
+
+    @Benchmark
+    public List<GenomeInterval> converter() throws HGVSException {
+        return HGVSConverter.hgvsToGenomic(identifiers);
+    }
+
+    @Benchmark
+    public List<GenomeInterval> workerPool() throws HGVSException {
+        return pool.hgvsToGenomic(identifiers);
+    }
+
+    @Benchmark
+    public List<GenomeInterval> genomicFastPath() throws HGVSException {
+        return HGVSConverter.hgvsToGenomic(genomicIdentifiers);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse and index each bundled chain file
+ *
+ * @author patrickmagee
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChainLoadBenchmark {
+
+    @Param({"hg17:hg18", "hg17:hg19", "hg18:hg17", "hg18:hg19", "hg18:hg38", "hg19:hg17", "hg19:hg18", "hg19:hg38",
+            "hg38:hg19"})
+    public String pair;
+
+    private GenomeBuild from;
+    private GenomeBuild to;
+
+    @Setup
+    public void setUp() {
+        String[] builds = pair.split(":");
+        from = GenomeBuild.valueOf(builds[0].toUpperCase());
+        to = GenomeBuild.valueOf(builds[1].toUpperCase());
+    }
+
+    @Benchmark
+    public UCSCChainIndex load() throws IOException {
+        return UCSCChainIndex.load(new UCSChainFile(from, to));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.cache.CachingLiftOver;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
+import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.util.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single interval and batch liftover throughput on hg19 to hg38. Intervals are random but seeded, and only intervals
+ * which can be lifted over are used so the single interval benchmark does not measure exception handling
+ *
+ * @author patrickmagee
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LiftOverBenchmark {
+
+    private static final int HOTSPOTS = 1000;
+
+    @Param({"10000", "1000000"})
+    public int batchSize;
+
+    private UCSCLiftOver liftOver;
+    private ParallelLiftOver parallelLiftOver;
+    private CachingLiftOver cachingLiftOver;
+    private final LiftOverTarget target = new LiftOverTarget();
+    private List<Interval> intervals;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        liftOver = new UCSCLiftOver(GenomeBuild.HG19, GenomeBuild.HG38);
+        parallelLiftOver = new ParallelLiftOver(liftOver);
+        cachingLiftOver = new CachingLiftOver(liftOver, 1024);
+        intervals = new ArrayList<>(batchSize);
+        Random random = new Random(42);
+        while (intervals.size() < batchSize) {
+            int start = 1 + random.nextInt(200000000);
+            Interval interval = new Interval("chr" + (1 + random.nextInt(22)), start, start + random.nextInt(1000));
+            if (liftOver.getIndex().liftOver(interval, UCSCLiftOver.DEFAULT_MIN_MATCH) != null) {
+                intervals.add(interval);
+            }
+        }
+        for (int i = 0; i < HOTSPOTS; i++) {
+            cachingLiftOver.tryLiftOver(intervals.get(i));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Interval liftOverSingle() throws LiftOverException {
+        Interval interval = intervals.get(next);
+        next = next + 1 == intervals.size() ? 0 : next + 1;
+        return liftOver.liftOver(interval);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public LiftOverStatus liftOverIntoTarget() {
+        Interval interval = intervals.get(next);
+        next = next + 1 == intervals.size() ? 0 : next + 1;
+        return liftOver.liftOver(interval.getContig(), interval.getStart(), interval.getEnd(), target);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public LiftOverStatus liftOverSingleBaseIntoTarget() {
+        Interval interval = intervals.get(next);
+        next = next + 1 == intervals.size() ? 0 : next + 1;
+        return liftOver.liftOver(interval.getContig(), interval.getStart(), interval.getStart(), target);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public LiftOverStatus liftPosition() {
+        Interval interval = intervals.get(next);
+        next = next + 1 == intervals.size() ? 0 : next + 1;
+        return liftOver.liftPosition(interval.getContig(), interval.getStart(), target);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<LiftOverResult> liftOverBatch() {
+        return liftOver.liftOverAll(intervals);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<LiftOverResult> liftOverBatchParallel() {
+        return parallelLiftOver.liftOverAll(intervals);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public LiftOverResult cachedHit() {
+        Interval interval = intervals.get(next);
+        next = next + 1 == HOTSPOTS ? 0 : next + 1;
+        return cachingLiftOver.tryLiftOver(interval);
+    }
+}
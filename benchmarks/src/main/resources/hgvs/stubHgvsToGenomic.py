@@ -0,0 +1,31 @@
+import sys
+import json
+
+
+#
+# Stand-in for hgvsToGenomic.py which answers without hgvs or UTA, so benchmarks only measure the cost of starting
+# and talking to the python process. Every identifier maps to position 1
+#
+def convert(arg):
+    return dict(variant=arg, start=1, end=1, ref="1")
+
+
+def main(args):
+    if len(args) < 1:
+        sys.exit(1)
+
+    if args[0] == "--worker":
+        while True:
+            line = sys.stdin.readline()
+            if not line:
+                break
+            sys.stdout.write(json.dumps([convert(arg) for arg in json.loads(line)]) + "\n")
+            sys.stdout.flush()
+        exit(0)
+
+    sys.stdout.write(json.dumps([convert(arg) for arg in args]) + "\n")
+    exit(0)
+
+
+if __name__ == "__main__":
+    main(sys.argv[1:])
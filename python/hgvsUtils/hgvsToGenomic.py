@@ -22,38 +22,64 @@ def getReference(ac):
 
 
 #
+# Holds the parser, validator and UTA connection so they are only created once per process
 #
-#
-def main(args):
-    if len(args) < 1:
-        sys.exit(1)
-
-    parser = hgvs.parser.Parser()
-    connection = hgvs.dataproviders.uta.connect()
-    validator = hgvs.validator.Validator(hdp=connection)
-    variantmapper = hgvs.variantmapper.EasyVariantMapper(connection)
-
-    conversions = []
-
-    for arg in args:
+class Converter(object):
+    def __init__(self):
+        self.parser = hgvs.parser.Parser()
+        connection = hgvs.dataproviders.uta.connect()
+        self.validator = hgvs.validator.Validator(hdp=connection)
+        self.variantmapper = hgvs.variantmapper.EasyVariantMapper(connection)
 
+    def convert(self, arg):
         try:
-            var = parser.parse_hgvs_variant(arg)
+            var = self.parser.parse_hgvs_variant(arg)
             if var.type == "c":
-                var = variantmapper.c_to_g(var)
+                var = self.variantmapper.c_to_g(var)
             elif var.type == "n":
-                var = variantmapper.n_to_g(var)
+                var = self.variantmapper.n_to_g(var)
 
-            validator.validate(var)
+            self.validator.validate(var)
         except:
-            conversions.append(dict(error="%s is an invalid HGVS variant" % (arg), variant=arg))
-            continue
+            return dict(error="%s is an invalid HGVS variant" % (arg), variant=arg)
 
         chr = getReference(var.ac)
         interval = var.posedit.pos
-        conversions.append(dict(variant=arg, start=interval.start.base, end=interval.end.base, ref=chr))
+        return dict(variant=arg, start=interval.start.base, end=interval.end.base, ref=chr)
+
+
+#
+# Long lived worker mode. Reads one JSON array of identifiers per line from stdin and writes one JSON array of
+# conversions per line to stdout, until stdin is closed
+#
+def serve(converter):
+    while True:
+        line = sys.stdin.readline()
+        if not line:
+            break
+        if not line.strip():
+            continue
+        conversions = [converter.convert(arg) for arg in json.loads(line)]
+        sys.stdout.write(json.dumps(conversions) + "\n")
+        sys.stdout.flush()
+
+
+#
+#
+#
+def main(args):
+    if len(args) < 1:
+        sys.exit(1)
+
+    converter = Converter()
+
+    if args[0] == "--worker":
+        serve(converter)
+        exit(0)
+
+    conversions = [converter.convert(arg) for arg in args]
 
-    print json.dumps(conversions)
+    sys.stdout.write(json.dumps(conversions) + "\n")
     exit(0)
 
 
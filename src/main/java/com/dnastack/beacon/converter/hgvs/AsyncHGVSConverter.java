@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs;
+
+import com.dnastack.beacon.converter.hgvs.api.IdentifierPartition;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.util.DaemonThreadFactory;
+import com.dnastack.beacon.converter.util.TaskCanceller;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>AsyncHGVSConverter</p>
+ * <p>
+ * Non blocking alternative to HGVSConverter. Conversions return a CompletableFuture right away, so request threads
+ * can start many conversions and combine the results instead of waiting for each python process in turn.
+ * <p>
+ * Identifiers which HGVSConverter converts without python complete on the calling thread. The remaining identifiers
+ * of a call are converted by one python process, and at most {@code maxConcurrency} python processes run at the same
+ * time; further conversions wait in a queue. Cancelling a future, or the future timing out, kills its python process.
+ * Closing the converter cancels every pending conversion.
+ *
+ * @author patmagee
+ */
+public class AsyncHGVSConverter implements Closeable {
+
+    public static final long NO_TIMEOUT = 0;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+    private final Set<CompletableFuture<List<GenomeInterval>>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Constructor for a converter without a timeout
+     *
+     * @param maxConcurrency maximum number of python processes running at the same time
+     */
+    public AsyncHGVSConverter(int maxConcurrency) {
+        this(maxConcurrency, NO_TIMEOUT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxConcurrency maximum number of python processes running at the same time
+     * @param timeoutMillis  time after which a conversion fails with a TimeoutException, including the time it spent
+     *                       waiting in the queue, or NO_TIMEOUT
+     */
+    public AsyncHGVSConverter(int maxConcurrency, long timeoutMillis) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, new DaemonThreadFactory("hgvs-converter"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hgvs-converter-timeout"));
+    }
+
+    /**
+     * Convert a list of HGVS Identifiers to genomic coordinates asynchronously
+     *
+     * @param identifiers list of HGVS ids
+     * @return future of the genome intervals, in the same order as the identifiers. It fails with an HGVSException
+     * if the conversion fails, and with a TimeoutException if it times out
+     */
+    public CompletableFuture<List<GenomeInterval>> hgvsToGenomic(List<String> identifiers) {
+        if (identifiers == null) {
+            throw new NullPointerException("Identifiers cannot be null");
+        } else if (identifiers.size() == 0) {
+            throw new IllegalArgumentException("Must provide at least one identifier");
+        }
+        if (closed) {
+            throw new IllegalStateException("Converter has been closed");
+        }
+
+        IdentifierPartition partition = HGVSConverter.convertInProcess(identifiers);
+        final GenomeInterval[] intervals = partition.getIntervals();
+        final List<String> remaining = partition.getRemaining();
+        final List<Integer> remainingIndexes = partition.getRemainingIndexes();
+        if (remaining.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(intervals));
+        }
+
+        final CompletableFuture<List<GenomeInterval>> future = new CompletableFuture<>();
+        final TaskCanceller canceller = new TaskCanceller();
+        pending.add(future);
+
+        final ScheduledFuture<?> timeout = timeoutMillis == NO_TIMEOUT ? null : timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                future.completeExceptionally(new TimeoutException("HGVS conversion timed out after "
+                        + timeoutMillis + " ms"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        future.whenComplete(new BiConsumer<List<GenomeInterval>, Throwable>() {
+            @Override
+            public void accept(List<GenomeInterval> result, Throwable failure) {
+                pending.remove(future);
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                if (failure != null) {
+                    canceller.cancel();
+                }
+            }
+        });
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        final int[] received = new int[1];
+                        HGVSConverter.streamTask(remaining, new Consumer<GenomeInterval>() {
+                            @Override
+                            public void accept(GenomeInterval interval) {
+                                if (received[0] < remainingIndexes.size()) {
+                                    intervals[remainingIndexes.get(received[0])] = interval;
+                                }
+                                received[0]++;
+                            }
+                        }, canceller);
+                        if (received[0] != remainingIndexes.size()) {
+                            throw new HGVSException("HGVS mapper returned an unexpected number of conversions");
+                        }
+                        future.complete(Arrays.asList(intervals));
+                    } catch (HGVSException | RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IllegalStateException("Converter has been closed"));
+        }
+        return future;
+    }
+
+    /**
+     * Convert a single HGVS Identifier to genomic coordinates asynchronously
+     *
+     * @param identifier a Single HGVS Identifier
+     * @return future of the genome interval. Cancelling it, or completing it exceptionally, also cancels the
+     * conversion and kills its python process
+     */
+    public CompletableFuture<GenomeInterval> hgvsToGenomic(String identifier) {
+        final CompletableFuture<List<GenomeInterval>> source = hgvsToGenomic(Arrays.asList(identifier));
+        CompletableFuture<GenomeInterval> future = source.thenApply(
+                new Function<List<GenomeInterval>, GenomeInterval>() {
+                    @Override
+                    public GenomeInterval apply(List<GenomeInterval> intervals) {
+                        return intervals.get(0);
+                    }
+                });
+        future.whenComplete(new BiConsumer<GenomeInterval, Throwable>() {
+            @Override
+            public void accept(GenomeInterval interval, Throwable failure) {
+                if (failure != null) {
+                    source.cancel(false);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Get the number of conversions which are queued or running
+     *
+     * @return number of pending conversions
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Cancel all pending conversions, killing their python processes, and stop the worker threads
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        for (CompletableFuture<List<GenomeInterval>> future : pending) {
+            future.cancel(false);
+        }
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.util.DaemonThreadFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * <p>BatchingHGVSConverter</p>
+ * <p>
+ * Micro batching front end for callers converting one identifier at a time, ie one per web request. Concurrent
+ * requests are collected for up to a time window, or until a batch is full, and each batch is converted with a single
+ * call to the wrapped mapper, so a batch starts one python process instead of one per identifier. Every caller gets a
+ * future of its own interval.
+ * <p>
+ * Identifiers which are already queued or being converted are not converted again: callers asking for the same
+ * identifier share one conversion, but each of them gets its own future and its own copy of the GenomeInterval.
+ *
+ * @author patmagee
+ */
+public class BatchingHGVSConverter implements HGVSMapper, Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = HGVSConverter.DEFAULT_CHUNK_SIZE;
+    public static final long DEFAULT_WINDOW_MILLIS = 10;
+
+    private final HGVSMapper mapper;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+
+    private static final Function<GenomeInterval, GenomeInterval> COPY = new Function<GenomeInterval, GenomeInterval>() {
+        @Override
+        public GenomeInterval apply(GenomeInterval interval) {
+            return copy(interval);
+        }
+    };
+
+    private final Map<String, CompletableFuture<GenomeInterval>> inFlight = new HashMap<>();
+    private Map<String, CompletableFuture<GenomeInterval>> batch = new LinkedHashMap<>();
+    private long batchNumber;
+    private boolean closed;
+
+    /**
+     * Constructor for a converter batching HGVSConverter conversions with the default batch size and window
+     */
+    public BatchingHGVSConverter() {
+        this(new HGVSMapper() {
+            @Override
+            public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+                return HGVSConverter.hgvsToGenomic(identifiers);
+            }
+        }, DEFAULT_BATCH_SIZE, DEFAULT_WINDOW_MILLIS, 1);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param mapper               mapper converting each batch
+     * @param maxBatchSize         maximum number of identifiers in a batch
+     * @param windowMillis         maximum time the first identifier of a batch waits for more identifiers
+     * @param maxConcurrentBatches maximum number of batches converted at the same time
+     */
+    public BatchingHGVSConverter(HGVSMapper mapper, int maxBatchSize, long windowMillis, int maxConcurrentBatches) {
+        if (mapper == null) {
+            throw new IllegalArgumentException("Mapper cannot be null");
+        }
+        if (maxBatchSize < 1 || maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("Batch size and concurrency must be at least 1");
+        }
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Window cannot be negative");
+        }
+        this.mapper = mapper;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = windowMillis;
+        this.executor = Executors.newFixedThreadPool(maxConcurrentBatches, new DaemonThreadFactory("hgvs-batch"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hgvs-batch-window"));
+    }
+
+    /**
+     * Queue a single HGVS Identifier for conversion with the next batch
+     *
+     * @param identifier a Single HGVS Identifier
+     * @return future of the genome interval, which fails with an HGVSException if the batch fails. Every call gets
+     * its own future and interval, even when the identifier is already being converted for another caller
+     */
+    public CompletableFuture<GenomeInterval> submit(String identifier) {
+        if (identifier == null) {
+            throw new IllegalArgumentException("Identifier cannot be null");
+        }
+
+        Map<String, CompletableFuture<GenomeInterval>> full = null;
+        CompletableFuture<GenomeInterval> future;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Converter has been closed");
+            }
+            future = inFlight.get(identifier);
+            if (future != null) {
+                return future.thenApply(COPY);
+            }
+
+            future = new CompletableFuture<>();
+            inFlight.put(identifier, future);
+            batch.put(identifier, future);
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                final long number = batchNumber;
+                timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(number);
+                    }
+                }, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        }
+        return future.thenApply(COPY);
+    }
+
+    /**
+     * Convert a single HGVS Identifier to genomic coordinates, waiting for the batch it is converted with
+     *
+     * @param identifier a Single HGVS Identifier
+     * @return single GenomeInterval
+     * @throws HGVSException
+     */
+    public GenomeInterval hgvsToGenomic(String identifier) throws HGVSException {
+        return await(submit(identifier));
+    }
+
+    /**
+     * Convert a list of HGVS Identifiers to genomic coordinates. The identifiers are queued individually, so they
+     * can share batches with identifiers of concurrent callers
+     *
+     * @param identifiers list of HGVS ids
+     * @return List of genome intervals
+     * @throws HGVSException
+     */
+    @Override
+    public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+        if (identifiers == null) {
+            throw new NullPointerException("Identifiers cannot be null");
+        } else if (identifiers.size() == 0) {
+            throw new IllegalArgumentException("Must provide at least one identifier");
+        }
+
+        List<CompletableFuture<GenomeInterval>> futures = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            futures.add(submit(identifier));
+        }
+        List<GenomeInterval> intervals = new ArrayList<>(identifiers.size());
+        for (CompletableFuture<GenomeInterval> future : futures) {
+            intervals.add(await(future));
+        }
+        return intervals;
+    }
+
+    /**
+     * Convert the queued identifiers right away instead of waiting for the window to end
+     */
+    public void flush() {
+        Map<String, CompletableFuture<GenomeInterval>> queued;
+        synchronized (this) {
+            queued = takeBatch();
+        }
+        dispatch(queued);
+    }
+
+    /**
+     * Fail all queued conversions and stop the batching threads. Batches being converted are finished
+     */
+    @Override
+    public void close() {
+        Map<String, CompletableFuture<GenomeInterval>> queued;
+        synchronized (this) {
+            closed = true;
+            queued = takeBatch();
+        }
+        for (Map.Entry<String, CompletableFuture<GenomeInterval>> entry : queued.entrySet()) {
+            complete(entry.getKey(), entry.getValue(), null, new HGVSException("Converter has been closed"));
+        }
+        timer.shutdownNow();
+        executor.shutdown();
+    }
+
+    private void flush(long number) {
+        Map<String, CompletableFuture<GenomeInterval>> queued = null;
+        synchronized (this) {
+            if (number == batchNumber) {
+                queued = takeBatch();
+            }
+        }
+        if (queued != null) {
+            dispatch(queued);
+        }
+    }
+
+    private Map<String, CompletableFuture<GenomeInterval>> takeBatch() {
+        Map<String, CompletableFuture<GenomeInterval>> taken = batch;
+        batch = new LinkedHashMap<>();
+        batchNumber++;
+        return taken;
+    }
+
+    private void dispatch(final Map<String, CompletableFuture<GenomeInterval>> queued) {
+        if (queued.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    convert(queued);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            for (Map.Entry<String, CompletableFuture<GenomeInterval>> entry : queued.entrySet()) {
+                complete(entry.getKey(), entry.getValue(), null, new HGVSException("Converter has been closed"));
+            }
+        }
+    }
+
+    private void convert(Map<String, CompletableFuture<GenomeInterval>> queued) {
+        List<String> identifiers = new ArrayList<>(queued.keySet());
+        List<GenomeInterval> intervals = null;
+        Exception failure = null;
+        try {
+            intervals = mapper.hgvsToGenomic(identifiers);
+            if (intervals == null || intervals.size() != identifiers.size()) {
+                failure = new HGVSException("HGVS mapper returned an unexpected number of conversions");
+            }
+        } catch (HGVSException | RuntimeException e) {
+            failure = e;
+        }
+
+        for (int i = 0; i < identifiers.size(); i++) {
+            String identifier = identifiers.get(i);
+            complete(identifier, queued.get(identifier), failure == null ? intervals.get(i) : null, failure);
+        }
+    }
+
+    private void complete(String identifier, CompletableFuture<GenomeInterval> future, GenomeInterval interval,
+                          Exception failure) {
+        synchronized (this) {
+            inFlight.remove(identifier, future);
+        }
+        if (failure == null) {
+            future.complete(interval);
+        } else {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * GenomeIntervals are mutable, so callers sharing a conversion are each handed a copy of the converted interval
+     */
+    private static GenomeInterval copy(GenomeInterval interval) {
+        if (interval == null) {
+            return null;
+        }
+        GenomeInterval copy = new GenomeInterval();
+        copy.setVariant(interval.getVariant());
+        copy.setStart(interval.getStart());
+        copy.setEnd(interval.getEnd());
+        copy.setRef(interval.getRef());
+        copy.setError(interval.getError());
+        return copy;
+    }
+
+    private static GenomeInterval await(CompletableFuture<GenomeInterval> future) throws HGVSException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HGVSException) {
+                throw (HGVSException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new HGVSException(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HGVSException("Interrupted while converting identifiers");
+        }
+    }
+}
@@ -15,15 +15,33 @@
  */
 package com.dnastack.beacon.converter.hgvs;
 
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.api.IdentifierPartition;
 import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
 import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.hgvs.parser.HGVSParser;
+import com.dnastack.beacon.converter.hgvs.parser.ParsingHGVSMapper;
 import com.dnastack.beacon.converter.hgvs.task.HGVSToGenomicTaskOutput;
 import com.dnastack.beacon.converter.hgvs.task.HgvsToGenomicTask;
+import com.dnastack.beacon.converter.hgvs.transcript.TranscriptIndex;
+import com.dnastack.beacon.converter.hgvs.transcript.TranscriptMapper;
+import com.dnastack.beacon.converter.metrics.Metrics;
+import com.dnastack.beacon.converter.util.TaskCanceller;
+import com.dnastack.beacon.converter.util.TaskOutputReader;
 import com.dnastack.beacon.converter.util.TaskRunner;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Wrapper for converting an HGVS to genomic coordinates
@@ -32,33 +50,148 @@ import java.util.List;
  */
 public class HGVSConverter {
 
+    public static final int DEFAULT_CHUNK_SIZE = 200;
+
+    private static final HGVSMapper PYTHON_MAPPER = new HGVSMapper() {
+        @Override
+        public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+            return runTask(identifiers);
+        }
+    };
+
+    private static volatile HGVSMapper mapper = new ParsingHGVSMapper(PYTHON_MAPPER, false);
+    private static volatile TranscriptMapper transcriptMapper;
+    private static volatile boolean genomicInProcess;
+
+    /**
+     * Set a local snapshot of transcripts to convert c. and n. variants with in process. Variants on transcripts
+     * missing from the snapshot are still converted by the python hgvs package
+     *
+     * @param index transcript index, or null to convert every c. and n. variant with python again
+     */
+    public static synchronized void setTranscriptIndex(TranscriptIndex index) {
+        transcriptMapper = index == null ? null : new TranscriptMapper(index, PYTHON_MAPPER);
+        updateMapper();
+    }
+
+    /**
+     * Convert g. variants on chromosome accessions in process instead of with the python hgvs package. This is off by
+     * default: the in process conversion checks the syntax of the position and edit but not the reference bases, so a
+     * variant with a wrong reference base gets coordinates instead of an error
+     *
+     * @param enabled true to convert g. variants on chromosome accessions without python
+     */
+    public static synchronized void setGenomicInProcess(boolean enabled) {
+        genomicInProcess = enabled;
+        updateMapper();
+    }
+
+    private static void updateMapper() {
+        TranscriptMapper transcripts = transcriptMapper;
+        mapper = new ParsingHGVSMapper(transcripts == null ? PYTHON_MAPPER : transcripts, genomicInProcess);
+    }
+
     /**
      * Convert a list of HGVS Identifiers to a genomic coordinate. This method wraps the python hgvs package
      * and returns a list of converted Intervals, or throws an exception
+     * <p>
+     * Identifiers with invalid syntax are rejected without starting python. With setGenomicInProcess, g. variants on
+     * chromosome accessions are converted without python too, and with a transcript index set, so are c. and n.
+     * variants on the transcripts of the index
      *
      * @param identifiers list of HGVS ids
      * @return List of genome intervals
      * @throws HGVSException
      */
     public static List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+        return mapper.hgvsToGenomic(identifiers);
+    }
+
+    /**
+     * Convert a list of HGVS Identifiers to genomic coordinates, handing each GenomeInterval to the consumer as soon
+     * as it is available instead of collecting them in a list. The output of python is parsed while python is still
+     * writing it, so memory use does not grow with the number of identifiers
+     * <p>
+     * Intervals are emitted in the order of the identifiers, on the calling thread. Identifiers converted without
+     * python are emitted as soon as the python conversions before them have arrived
+     *
+     * @param identifiers list of HGVS ids
+     * @param consumer    consumer of the genome intervals
+     * @throws HGVSException
+     */
+    public static void hgvsToGenomic(List<String> identifiers, Consumer<GenomeInterval> consumer) throws HGVSException {
         if (identifiers == null) {
             throw new NullPointerException("Identifiers cannot be null");
         } else if (identifiers.size() == 0) {
             throw new IllegalArgumentException("Must provide at least one identifier");
+        } else if (consumer == null) {
+            throw new IllegalArgumentException("Consumer cannot be null");
         }
 
+        IdentifierPartition partition = convertInProcess(identifiers);
+        OrderedEmitter emitter = new OrderedEmitter(partition.getIntervals(), partition.getRemainingIndexes(), consumer);
+        if (!partition.getRemaining().isEmpty()) {
+            streamTask(partition.getRemaining(), emitter, null);
+        }
+        if (!emitter.finish()) {
+            throw new HGVSException("HGVS mapper returned an unexpected number of conversions");
+        }
+    }
+
+    /**
+     * Convert the identifiers which do not need python, ie invalid identifiers, g. variants on chromosome accessions
+     * and variants on the transcripts of the transcript index
+     *
+     * @param identifiers list of HGVS ids
+     * @return partition of the identifiers into the intervals converted in process and the identifiers left for python
+     */
+    static IdentifierPartition convertInProcess(List<String> identifiers) {
+        final TranscriptMapper transcripts = transcriptMapper;
+        final boolean genomic = genomicInProcess;
+        return IdentifierPartition.partition(identifiers, new Function<String, GenomeInterval>() {
+            @Override
+            public GenomeInterval apply(String identifier) {
+                GenomeInterval interval = HGVSParser.convert(identifier, genomic);
+                return interval == null && transcripts != null ? transcripts.toGenomic(identifier) : interval;
+            }
+        });
+    }
+
+    /**
+     * Convert identifiers with python, handing each interval to the consumer as it is parsed
+     *
+     * @param identifiers list of HGVS ids
+     * @param consumer    consumer of the genome intervals
+     * @param canceller   canceller killing python, or null
+     * @throws HGVSException
+     */
+    static void streamTask(List<String> identifiers, final Consumer<GenomeInterval> consumer,
+                           TaskCanceller canceller) throws HGVSException {
         HgvsToGenomicTask task = new HgvsToGenomicTask(identifiers);
         TaskRunner runner = new TaskRunner();
+        Metrics.increment(Metrics.HGVS_PYTHON, identifiers.size());
 
         try {
-            HGVSToGenomicTaskOutput output = (HGVSToGenomicTaskOutput) runner.exec(task);
-            List<GenomeInterval> intervals = output.parseOutput();
-
-            return intervals;
+            runner.exec(task, new TaskOutputReader() {
+                @Override
+                public void read(InputStream output) throws IOException {
+                    HGVSToGenomicTaskOutput.parseOutput(output, consumer);
+                }
+            }, canceller);
         } catch (IOException e) {
             throw new HGVSException(e.getMessage());
         }
+    }
 
+    private static List<GenomeInterval> runTask(List<String> identifiers) throws HGVSException {
+        final List<GenomeInterval> intervals = new ArrayList<>(identifiers.size());
+        streamTask(identifiers, new Consumer<GenomeInterval>() {
+            @Override
+            public void accept(GenomeInterval interval) {
+                intervals.add(interval);
+            }
+        }, null);
+        return intervals;
     }
 
     /**
@@ -72,4 +205,106 @@ public class HGVSConverter {
         return hgvsToGenomic(Arrays.asList(identifier)).get(0);
     }
 
+    /**
+     * Convert a large list of HGVS Identifiers to genomic coordinates. The identifiers are split into chunks of at
+     * most {@code chunkSize} identifiers, which keeps each command line short, and the chunks are converted by up to
+     * {@code parallelism} python processes at the same time
+     *
+     * @param identifiers list of HGVS ids
+     * @param chunkSize   maximum number of identifiers passed to a single python process
+     * @param parallelism maximum number of python processes running at the same time
+     * @return List of genome intervals, in the same order as the identifiers
+     * @throws HGVSException
+     */
+    public static List<GenomeInterval> hgvsToGenomic(List<String> identifiers, int chunkSize, int parallelism) throws HGVSException {
+        if (identifiers == null) {
+            throw new NullPointerException("Identifiers cannot be null");
+        } else if (identifiers.size() == 0) {
+            throw new IllegalArgumentException("Must provide at least one identifier");
+        } else if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be at least 1");
+        }
+
+        if (identifiers.size() <= chunkSize) {
+            return hgvsToGenomic(identifiers);
+        }
+
+        int chunks = (identifiers.size() + chunkSize - 1) / chunkSize;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks));
+        try {
+            List<Future<List<GenomeInterval>>> futures = new ArrayList<>(chunks);
+            for (int start = 0; start < identifiers.size(); start += chunkSize) {
+                final List<String> chunk = identifiers.subList(start, Math.min(start + chunkSize, identifiers.size()));
+                futures.add(executor.submit(new Callable<List<GenomeInterval>>() {
+                    @Override
+                    public List<GenomeInterval> call() throws HGVSException {
+                        return hgvsToGenomic(chunk);
+                    }
+                }));
+            }
+
+            List<GenomeInterval> intervals = new ArrayList<>(identifiers.size());
+            for (Future<List<GenomeInterval>> future : futures) {
+                intervals.addAll(future.get());
+            }
+            return intervals;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HGVSException) {
+                throw (HGVSException) e.getCause();
+            }
+            throw new HGVSException(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HGVSException("Interrupted while converting identifiers");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the intervals converted by python back into the order of the identifiers, emitting the intervals
+     * converted in process which precede each python interval first
+     */
+    private static class OrderedEmitter implements Consumer<GenomeInterval> {
+
+        private final GenomeInterval[] intervals;
+        private final List<Integer> remainingIndexes;
+        private final Consumer<GenomeInterval> consumer;
+        private int next;
+        private int received;
+
+        private OrderedEmitter(GenomeInterval[] intervals, List<Integer> remainingIndexes,
+                               Consumer<GenomeInterval> consumer) {
+            this.intervals = intervals;
+            this.remainingIndexes = remainingIndexes;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(GenomeInterval interval) {
+            if (received == remainingIndexes.size()) {
+                // Counted by finish, the surplus is not emitted
+                received++;
+                return;
+            }
+            int index = remainingIndexes.get(received++);
+            emitUntil(index);
+            consumer.accept(interval);
+            next++;
+        }
+
+        private boolean finish() {
+            if (received != remainingIndexes.size()) {
+                return false;
+            }
+            emitUntil(intervals.length);
+            return true;
+        }
+
+        private void emitUntil(int index) {
+            while (next < index) {
+                consumer.accept(intervals[next++]);
+            }
+        }
+    }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.api;
+
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+
+import java.util.List;
+
+/**
+ * Converts HGVS identifiers to genomic coordinates. The process per call conversion in HGVSConverter can be used
+ * as a mapper through {@code HGVSConverter::hgvsToGenomic}
+ *
+ * @author patmagee
+ */
+public interface HGVSMapper {
+
+    /**
+     * Convert a list of HGVS Identifiers to genomic coordinates. Identifiers which cannot be converted are returned
+     * as a GenomeInterval with an error
+     *
+     * @param identifiers list of HGVS ids
+     * @return List of genome intervals, in the same order as the identifiers
+     * @throws HGVSException
+     */
+    List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException;
+}
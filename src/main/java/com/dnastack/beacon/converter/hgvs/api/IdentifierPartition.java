@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.api;
+
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <p>IdentifierPartition</p>
+ * <p>
+ * Identifiers of a batch split into the ones converted in process and the ones left for another mapper. Converted
+ * intervals are kept at the index of their identifier, so the remaining conversions can be put back in input order.
+ *
+ * @author patmagee
+ */
+public final class IdentifierPartition {
+
+    private final GenomeInterval[] intervals;
+    private final List<String> remaining = new ArrayList<>();
+    private final List<Integer> remainingIndexes = new ArrayList<>();
+
+    private IdentifierPartition(int size) {
+        this.intervals = new GenomeInterval[size];
+    }
+
+    /**
+     * Convert every identifier the converter handles in process and set aside the others
+     *
+     * @param identifiers list of HGVS ids
+     * @param converter   converts a single identifier in process, returning null if it has to be left for a mapper
+     * @return partition of the identifiers
+     */
+    public static IdentifierPartition partition(List<String> identifiers, Function<String, GenomeInterval> converter) {
+        if (identifiers == null) {
+            throw new NullPointerException("Identifiers cannot be null");
+        } else if (identifiers.size() == 0) {
+            throw new IllegalArgumentException("Must provide at least one identifier");
+        }
+
+        IdentifierPartition partition = new IdentifierPartition(identifiers.size());
+        for (int i = 0; i < partition.intervals.length; i++) {
+            String identifier = identifiers.get(i);
+            if (identifier == null) {
+                throw new IllegalArgumentException("Identifier cannot be null");
+            }
+            GenomeInterval interval = converter.apply(identifier);
+            if (interval == null) {
+                partition.remaining.add(identifier);
+                partition.remainingIndexes.add(i);
+            } else {
+                partition.intervals[i] = interval;
+            }
+        }
+        if (partition.remaining.size() < partition.intervals.length) {
+            Metrics.increment(Metrics.HGVS_IN_PROCESS, partition.intervals.length - partition.remaining.size());
+        }
+        return partition;
+    }
+
+    /**
+     * Get the intervals by index of their identifier. Indexes of the remaining identifiers are null until they are
+     * converted
+     *
+     * @return intervals
+     */
+    public GenomeInterval[] getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Get the identifiers which were not converted in process, in input order
+     *
+     * @return remaining identifiers
+     */
+    public List<String> getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Get the input indexes of the remaining identifiers
+     *
+     * @return indexes of the remaining identifiers
+     */
+    public List<Integer> getRemainingIndexes() {
+        return remainingIndexes;
+    }
+
+    /**
+     * Convert the remaining identifiers with a mapper, which is not called at all if there are none
+     *
+     * @param mapper mapper converting the remaining identifiers
+     * @return List of genome intervals, in the same order as the identifiers
+     * @throws HGVSException
+     */
+    public List<GenomeInterval> complete(HGVSMapper mapper) throws HGVSException {
+        if (!remaining.isEmpty()) {
+            List<GenomeInterval> converted = mapper.hgvsToGenomic(remaining);
+            if (converted == null || converted.size() != remaining.size()) {
+                throw new HGVSException("HGVS mapper returned an unexpected number of conversions");
+            }
+            for (int i = 0; i < remaining.size(); i++) {
+                intervals[remainingIndexes.get(i)] = converted.get(i);
+            }
+        }
+        return Arrays.asList(intervals);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.cache;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.util.LruCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>CachingHGVSMapper</p>
+ * <p>
+ * Two tier cache in front of an HGVSMapper. Conversions are looked up in a bounded in memory LRU cache first, then in
+ * an optional HGVSResultStore on disk, and only identifiers found in neither are passed on to the wrapped mapper, once
+ * per distinct identifier. A request made up of cached identifiers does not start or contact a python process at all.
+ * <p>
+ * Conversions are only valid for the data they were made with, so the persistent tier is keyed by a data version, ie
+ * the UTA release. Only successful conversions are cached; identifiers reported with an error are converted again on
+ * the next request, since the python script reports database failures the same way as invalid identifiers.
+ *
+ * @author patmagee
+ */
+public class CachingHGVSMapper implements HGVSMapper {
+
+    private final HGVSMapper mapper;
+    private final LruCache<String, GenomeInterval> cache;
+    private final HGVSResultStore store;
+    private final String dataVersion;
+
+    /**
+     * Constructor for an in memory cache only
+     *
+     * @param mapper     mapper converting identifiers missing from the cache, ie {@code HGVSConverter::hgvsToGenomic}
+     * @param maxEntries maximum number of conversions kept in memory
+     */
+    public CachingHGVSMapper(HGVSMapper mapper, long maxEntries) {
+        this(mapper, maxEntries, null, null);
+    }
+
+    /**
+     * Constructor for an in memory cache backed by a persistent store
+     *
+     * @param mapper      mapper converting identifiers missing from the cache, ie {@code HGVSConverter::hgvsToGenomic}
+     * @param maxEntries  maximum number of conversions kept in memory
+     * @param store       persistent store, or null to only cache in memory
+     * @param dataVersion version of the data the mapper converts with, ie the UTA release
+     */
+    public CachingHGVSMapper(HGVSMapper mapper, long maxEntries, HGVSResultStore store, String dataVersion) {
+        if (mapper == null) {
+            throw new IllegalArgumentException("Mapper cannot be null");
+        }
+        if (store != null && dataVersion == null) {
+            throw new IllegalArgumentException("A data version is required with a persistent store");
+        }
+        this.mapper = mapper;
+        this.cache = new LruCache<>(maxEntries);
+        this.store = store;
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * Get the in memory tier, ie to read its hit and miss statistics
+     *
+     * @return in memory cache
+     */
+    public LruCache<String, GenomeInterval> getCache() {
+        return cache;
+    }
+
+    /**
+     * Convert a list of HGVS Identifiers to genomic coordinates, converting only the identifiers which are not cached
+     *
+     * @param identifiers list of HGVS ids
+     * @return List of genome intervals, in the same order as the identifiers
+     * @throws HGVSException
+     */
+    @Override
+    public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+        if (identifiers == null) {
+            throw new NullPointerException("Identifiers cannot be null");
+        } else if (identifiers.size() == 0) {
+            throw new IllegalArgumentException("Must provide at least one identifier");
+        }
+
+        GenomeInterval[] intervals = new GenomeInterval[identifiers.size()];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < intervals.length; i++) {
+            String identifier = identifiers.get(i);
+            if (identifier == null) {
+                throw new IllegalArgumentException("Identifier cannot be null");
+            }
+            GenomeInterval interval = lookup(identifier);
+            if (interval != null) {
+                intervals[i] = copy(interval);
+            } else {
+                List<Integer> indexes = missing.get(identifier);
+                if (indexes == null) {
+                    indexes = new ArrayList<>(1);
+                    missing.put(identifier, indexes);
+                }
+                indexes.add(i);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<String> unique = new ArrayList<>(missing.keySet());
+            List<GenomeInterval> converted = mapper.hgvsToGenomic(unique);
+            if (converted == null || converted.size() != unique.size()) {
+                throw new HGVSException("HGVS mapper returned an unexpected number of conversions");
+            }
+            for (int i = 0; i < unique.size(); i++) {
+                GenomeInterval interval = converted.get(i);
+                if (interval != null && interval.getError() == null) {
+                    remember(unique.get(i), copy(interval));
+                }
+                List<Integer> indexes = missing.get(unique.get(i));
+                intervals[indexes.get(0)] = interval;
+                for (int j = 1; j < indexes.size(); j++) {
+                    intervals[indexes.get(j)] = interval == null ? null : copy(interval);
+                }
+            }
+        }
+        return Arrays.asList(intervals);
+    }
+
+    private GenomeInterval lookup(String identifier) throws HGVSException {
+        GenomeInterval interval = cache.get(identifier);
+        if (interval == null && store != null) {
+            try {
+                interval = store.get(dataVersion, identifier);
+            } catch (IOException e) {
+                throw new HGVSException(e.getMessage());
+            }
+            if (interval != null) {
+                cache.put(identifier, interval);
+            }
+        }
+        return interval;
+    }
+
+    private void remember(String identifier, GenomeInterval interval) throws HGVSException {
+        cache.put(identifier, interval);
+        if (store != null) {
+            try {
+                store.put(dataVersion, identifier, interval);
+            } catch (IOException e) {
+                throw new HGVSException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * GenomeIntervals are mutable, so callers are handed copies and never the cached instances
+     */
+    private static GenomeInterval copy(GenomeInterval interval) {
+        GenomeInterval copy = new GenomeInterval();
+        copy.setVariant(interval.getVariant());
+        copy.setStart(interval.getStart());
+        copy.setEnd(interval.getEnd());
+        copy.setRef(interval.getRef());
+        copy.setError(interval.getError());
+        return copy;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.cache;
+
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>HGVSResultStore</p>
+ * <p>
+ * Persistent, append only store of HGVS conversions, keyed by data version and identifier. Each conversion is one
+ * line of the file holding the key and the conversion as JSON. Only the offsets of the lines are kept in memory, the
+ * conversions themselves are read from the file when they are looked up.
+ * <p>
+ * A partially written last line, ie after a crash, is dropped when the store is opened. The store is safe to use from
+ * several threads of one process, but not from several processes at once.
+ *
+ * @author patmagee
+ */
+public class HGVSResultStore implements Closeable {
+
+    private static final Gson GSON = new Gson();
+
+    private final File file;
+    private final FileChannel channel;
+    private final ConcurrentMap<String, long[]> offsets = new ConcurrentHashMap<>();
+
+    /**
+     * Open a store, creating the file if it does not exist
+     *
+     * @param file file holding the store
+     * @throws IOException if the file cannot be opened or read
+     */
+    public HGVSResultStore(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Store file cannot be null");
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            load();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Look up a conversion
+     *
+     * @param dataVersion version of the data the conversion was made with, ie the UTA release
+     * @param identifier  HGVS identifier
+     * @return stored conversion, or null if there is none
+     * @throws IOException if the file cannot be read
+     */
+    public GenomeInterval get(String dataVersion, String identifier) throws IOException {
+        long[] location = offsets.get(key(dataVersion, identifier));
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) location[1]);
+        long position = location[0];
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of HGVS result store " + file);
+            }
+        }
+        String line = new String(buffer.array(), StandardCharsets.UTF_8);
+        try {
+            return GSON.fromJson(line.substring(line.indexOf('\t', line.indexOf('\t') + 1) + 1), GenomeInterval.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Corrupt entry in HGVS result store " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store a conversion. Identifiers containing tabs or line breaks are not stored
+     *
+     * @param dataVersion version of the data the conversion was made with, ie the UTA release
+     * @param identifier  HGVS identifier
+     * @param interval    conversion of the identifier
+     * @throws IOException if the file cannot be written
+     */
+    public void put(String dataVersion, String identifier, GenomeInterval interval) throws IOException {
+        if (interval == null) {
+            throw new IllegalArgumentException("Interval cannot be null");
+        }
+        String key = key(dataVersion, identifier);
+        if (identifier.indexOf('\t') >= 0 || identifier.indexOf('\n') >= 0 || identifier.indexOf('\r') >= 0) {
+            return;
+        }
+        byte[] line = (key + '\t' + GSON.toJson(interval) + '\n').getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            long position = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            offsets.put(key, new long[]{position, line.length - 1});
+        }
+    }
+
+    /**
+     * Get the number of stored conversions
+     *
+     * @return number of conversions
+     */
+    public int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Write buffered changes to disk and close the file
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    private void load() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long lineStart = 0;
+        long position = 0;
+        while (channel.read(buffer, position) > 0) {
+            ((Buffer) buffer).flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                position++;
+                if (b == '\n') {
+                    index(line, lineLength, lineStart);
+                    lineStart = position;
+                    lineLength = 0;
+                } else {
+                    if (lineLength == line.length) {
+                        byte[] grown = new byte[line.length * 2];
+                        System.arraycopy(line, 0, grown, 0, lineLength);
+                        line = grown;
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+            ((Buffer) buffer).clear();
+        }
+        if (lineStart < position) {
+            // Drop a line left incomplete by an interrupted write
+            channel.truncate(lineStart);
+        }
+    }
+
+    private void index(byte[] line, int length, long start) {
+        int tabs = 0;
+        int keyEnd = -1;
+        for (int i = 0; i < length && keyEnd < 0; i++) {
+            if (line[i] == '\t' && ++tabs == 2) {
+                keyEnd = i;
+            }
+        }
+        if (keyEnd > 0) {
+            offsets.put(new String(line, 0, keyEnd, StandardCharsets.UTF_8), new long[]{start, length});
+        }
+    }
+
+    private static String key(String dataVersion, String identifier) {
+        if (dataVersion == null || identifier == null) {
+            throw new IllegalArgumentException("Data version and identifier cannot be null");
+        }
+        if (dataVersion.indexOf('\t') >= 0 || dataVersion.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Data version cannot contain tabs or line breaks");
+        }
+        return dataVersion + '\t' + identifier;
+    }
+}
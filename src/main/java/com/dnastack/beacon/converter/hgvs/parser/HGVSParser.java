@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.parser;
+
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>HGVSParser</p>
+ * <p>
+ * In process HGVS syntax checks and conversion of genomic variants. Identifiers which are not even shaped like an
+ * HGVS variant can be rejected without starting python, and g. variants on chromosome accessions, which need no
+ * transcript mapping, can be converted directly. Everything else still needs the hgvs package.
+ * <p>
+ * The syntax check is deliberately coarse: it only rejects identifiers without an accession, a variant type and a
+ * position and edit, and leaves the full grammar to the hgvs package. Genomic conversions only handle simple positions
+ * and edits on the bases ACGTN and leave everything else to the hgvs package as well. Unlike the hgvs package, they
+ * do not check the reference bases against the genome sequence, so a variant with a wrong reference base is converted
+ * instead of being reported as invalid. Callers therefore have to opt in to them.
+ *
+ * @author patmagee
+ */
+public final class HGVSParser {
+
+    public static final String INVALID_MESSAGE = "%s is an invalid HGVS variant";
+
+    private static final Pattern VARIANT = Pattern.compile(
+            "^([A-Za-z][A-Za-z0-9_]*(?:\\.\\d+)?)(?:\\([A-Za-z0-9_.\\-]+\\))?:([cgmnpr])\\.(\\S+)$");
+
+    private static final Pattern CHROMOSOME_ACCESSION = Pattern.compile("^NC_0000(\\d\\d)\\.\\d+$");
+
+    private static final String BASES = "[ACGTN]";
+
+    private static final String EDIT = "(" + BASES + ">" + BASES + "|" + BASES + "*=|del" + BASES + "*ins" + BASES
+            + "+|del" + BASES + "*|dup" + BASES + "*|ins" + BASES + "+|inv" + BASES + "*)";
+
+    private static final Pattern NUCLEOTIDE_EDIT = Pattern.compile("^" + EDIT + "$");
+
+    private static final Pattern GENOMIC_POS_EDIT = Pattern.compile("^([1-9]\\d*)(?:_([1-9]\\d*))?" + EDIT + "$");
+
+    private HGVSParser() {
+    }
+
+    /**
+     * Parse the syntax of an HGVS identifier into its accession, type and position and edit
+     *
+     * @param identifier HGVS identifier
+     * @return parsed variant, or null if the identifier is not shaped like an HGVS variant
+     */
+    public static HGVSVariant parse(String identifier) {
+        if (identifier == null) {
+            throw new IllegalArgumentException("Identifier cannot be null");
+        }
+        Matcher matcher = VARIANT.matcher(identifier.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new HGVSVariant(identifier, matcher.group(1), matcher.group(2).charAt(0), matcher.group(3));
+    }
+
+    /**
+     * Convert an identifier in process if it has invalid syntax or is a g. variant on a chromosome accession
+     *
+     * @param identifier HGVS identifier
+     * @return converted interval, an interval with an error if the identifier is invalid, or null if the identifier
+     * has to be converted by the hgvs package
+     */
+    public static GenomeInterval convert(String identifier) {
+        return convert(identifier, true);
+    }
+
+    /**
+     * Reject an identifier in process if it has invalid syntax and, if enabled, convert g. variants on chromosome
+     * accessions
+     *
+     * @param identifier HGVS identifier
+     * @param genomic    whether to convert g. variants on chromosome accessions as well
+     * @return converted interval, an interval with an error if the identifier is invalid, or null if the identifier
+     * has to be converted by the hgvs package
+     */
+    public static GenomeInterval convert(String identifier, boolean genomic) {
+        HGVSVariant variant = parse(identifier);
+        if (variant == null) {
+            return invalid(identifier);
+        }
+        return genomic ? toGenomic(variant) : null;
+    }
+
+    /**
+     * Convert a genomic variant on a chromosome accession to genomic coordinates, the way hgvsToGenomic.py does
+     *
+     * @param variant parsed variant
+     * @return converted interval, an interval with an error if the position does not fit the edit, or null if the
+     * variant is not a g. variant on a chromosome accession or its position and edit are beyond the simple forms
+     * handled here, and it has to be converted by the hgvs package
+     */
+    public static GenomeInterval toGenomic(HGVSVariant variant) {
+        if (variant == null) {
+            throw new IllegalArgumentException("Variant cannot be null");
+        }
+        if (variant.getType() != 'g') {
+            return null;
+        }
+        Matcher accession = CHROMOSOME_ACCESSION.matcher(variant.getAccession());
+        if (!accession.matches()) {
+            return null;
+        }
+        int chromosome = Integer.parseInt(accession.group(1));
+        if (chromosome < 1 || chromosome > 24) {
+            return null;
+        }
+
+        Matcher posEdit = GENOMIC_POS_EDIT.matcher(variant.getPosEdit());
+        if (!posEdit.matches()) {
+            return null;
+        }
+        long start;
+        long end;
+        try {
+            start = Long.parseLong(posEdit.group(1));
+            end = posEdit.group(2) == null ? start : Long.parseLong(posEdit.group(2));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String edit = posEdit.group(3);
+        boolean range = posEdit.group(2) != null;
+        if (end < start || (range && edit.indexOf('>') >= 0)
+                || (edit.startsWith("ins") && (!range || end != start + 1))) {
+            return invalid(variant.getIdentifier());
+        }
+
+        GenomeInterval interval = new GenomeInterval();
+        interval.setVariant(variant.getIdentifier());
+        interval.setStart(start);
+        interval.setEnd(end);
+        interval.setRef(getReference(variant.getAccession()));
+        return interval;
+    }
+
+    /**
+     * Check the syntax of a nucleotide edit, ie A>G, delinsTT or dup
+     *
+     * @param edit edit part of a variant
+     * @return true if the edit is a supported nucleotide edit
+     */
+    public static boolean isValidEdit(String edit) {
+        return edit != null && NUCLEOTIDE_EDIT.matcher(edit).matches();
+    }
+
+    /**
+     * Convert an accession to the chromosome name used in results, mirroring getReference in hgvsToGenomic.py:
+     * NC_000017.10 becomes 17, and chromosomes 23 and 24 become X and Y
+     *
+     * @param accession reference sequence accession
+     * @return chromosome name
+     */
+    public static String getReference(String accession) {
+        if (accession == null) {
+            throw new IllegalArgumentException("Accession cannot be null");
+        }
+        String chr = accession.replaceAll("[a-zA-z]*_0+", "").split("\\.")[0];
+        int number;
+        try {
+            number = Integer.parseInt(chr);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Accession does not name a chromosome: " + accession);
+        }
+        if (number == 23) {
+            return "X";
+        } else if (number == 24) {
+            return "Y";
+        }
+        return chr;
+    }
+
+    /**
+     * Create the interval reported for an identifier which cannot be converted
+     *
+     * @param identifier HGVS identifier
+     * @return interval with an error
+     */
+    public static GenomeInterval invalid(String identifier) {
+        GenomeInterval interval = new GenomeInterval();
+        interval.setVariant(identifier);
+        interval.setError(String.format(INVALID_MESSAGE, identifier));
+        return interval;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.parser;
+
+/**
+ * Syntactic parts of an HGVS variant, ie NC_000017.10:g.41197701_41197702delinsTT
+ *
+ * @author patmagee
+ */
+public class HGVSVariant {
+
+    private final String identifier;
+    private final String accession;
+    private final char type;
+    private final String posEdit;
+
+    HGVSVariant(String identifier, String accession, char type, String posEdit) {
+        this.identifier = identifier;
+        this.accession = accession;
+        this.type = type;
+        this.posEdit = posEdit;
+    }
+
+    /**
+     * Get the identifier the variant was parsed from
+     *
+     * @return HGVS identifier
+     */
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Get the reference sequence accession, ie NC_000017.10
+     *
+     * @return accession
+     */
+    public String getAccession() {
+        return accession;
+    }
+
+    /**
+     * Get the coordinate type, ie 'g' or 'c'
+     *
+     * @return coordinate type
+     */
+    public char getType() {
+        return type;
+    }
+
+    /**
+     * Get the position and edit, ie 41197701_41197702delinsTT
+     *
+     * @return position and edit
+     */
+    public String getPosEdit() {
+        return posEdit;
+    }
+
+    @Override
+    public String toString() {
+        return identifier;
+    }
+}
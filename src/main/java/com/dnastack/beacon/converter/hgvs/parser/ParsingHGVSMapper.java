@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.parser;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.api.IdentifierPartition;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <p>ParsingHGVSMapper</p>
+ * <p>
+ * HGVSMapper which parses identifiers before handing them to another mapper. Identifiers with invalid syntax are
+ * reported as errors and, if enabled, g. variants on chromosome accessions are converted in process with HGVSParser,
+ * so only the remaining identifiers reach the wrapped mapper. When no identifier is left, the wrapped mapper is not
+ * called at all.
+ *
+ * @author patmagee
+ */
+public class ParsingHGVSMapper implements HGVSMapper {
+
+    private final HGVSMapper mapper;
+    private final Function<String, GenomeInterval> inProcess;
+
+    /**
+     * Constructor for a mapper which converts g. variants on chromosome accessions in process
+     *
+     * @param mapper mapper converting the identifiers that cannot be converted in process
+     */
+    public ParsingHGVSMapper(HGVSMapper mapper) {
+        this(mapper, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param mapper  mapper converting the identifiers that cannot be converted in process
+     * @param genomic whether to convert g. variants on chromosome accessions in process. The in process conversion
+     *                does not check the reference bases, see HGVSParser
+     */
+    public ParsingHGVSMapper(HGVSMapper mapper, final boolean genomic) {
+        if (mapper == null) {
+            throw new IllegalArgumentException("Mapper cannot be null");
+        }
+        this.mapper = mapper;
+        this.inProcess = new Function<String, GenomeInterval>() {
+            @Override
+            public GenomeInterval apply(String identifier) {
+                return HGVSParser.convert(identifier, genomic);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+        return IdentifierPartition.partition(identifiers, inProcess).complete(mapper);
+    }
+}
@@ -16,16 +16,20 @@
 package com.dnastack.beacon.converter.hgvs.task;
 
 import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.metrics.Metrics;
 import com.dnastack.beacon.converter.util.TaskOutput;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Task output class for HGVS to Genomic coordinates task
@@ -42,21 +46,49 @@ public class HGVSToGenomicTaskOutput extends TaskOutput<ByteArrayOutputStream> {
      * Convienient method for parsing the oputput from the converter and returning GenomeInterval objects
      */
     public List<GenomeInterval> parseOutput() throws IOException {
+        final List<GenomeInterval> intervals = new ArrayList<>();
+        parseOutput(new ByteArrayInputStream(getOutput().toByteArray()), new Consumer<GenomeInterval>() {
+            @Override
+            public void accept(GenomeInterval interval) {
+                intervals.add(interval);
+            }
+        });
+        return intervals;
+    }
 
-        List<GenomeInterval> intervals = new ArrayList<>();
-        JSONParser parser = new JSONParser();
+    /**
+     * Parse the JSON array written by the converter incrementally, handing each GenomeInterval to the consumer as
+     * soon as it has been read. Only one element is held in memory at a time, so this can read the output of a
+     * running converter
+     *
+     * @param output   converter output
+     * @param consumer consumer of the parsed intervals, in output order
+     * @throws IOException if the output cannot be read or is not a JSON array of intervals
+     */
+    public static void parseOutput(InputStream output, Consumer<GenomeInterval> consumer) throws IOException {
+        if (output == null || consumer == null) {
+            throw new IllegalArgumentException("Output and consumer cannot be null");
+        }
+        JsonReader reader = new JsonReader(new InputStreamReader(output, StandardCharsets.UTF_8));
+        long start = Metrics.start();
+        long invalid = 0;
         try {
-            JSONArray array = (JSONArray) parser.parse(toString());
-            for (Object obj : array) {
-                JSONObject jsonObject = (JSONObject) obj;
-                intervals.add(toObject(jsonObject, GenomeInterval.class));
+            reader.beginArray();
+            while (reader.hasNext()) {
+                GenomeInterval interval = getGson().fromJson(reader, GenomeInterval.class);
+                if (interval != null && interval.getError() != null) {
+                    invalid++;
+                }
+                consumer.accept(interval);
+            }
+            reader.endArray();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid HGVS converter output: " + e.getMessage(), e);
+        } finally {
+            Metrics.recordSince(Metrics.HGVS_PARSE, start);
+            if (invalid > 0) {
+                Metrics.increment(Metrics.HGVS_INVALID, invalid);
             }
-            return intervals;
-
-        } catch (ParseException e) {
-            IOException ex = new IOException(e.getMessage());
-            ex.setStackTrace(e.getStackTrace());
-            throw ex;
         }
     }
 
@@ -26,7 +26,12 @@ import java.util.List;
  */
 public class HgvsToGenomicTask implements Task<HGVSToGenomicTaskOutput, ByteArrayOutputStream> {
 
-    private static final String PYTHON_SCRIPT = "python/hgvsUtils/hgvsToGenomic.py";
+    public static final String PYTHON_SCRIPT = "python/hgvsUtils/hgvsToGenomic.py";
+
+    /**
+     * System property overriding the path of the conversion script, ie to run against a stub in benchmarks
+     */
+    public static final String SCRIPT_PROPERTY = "hgvs.script";
 
     private List<String> identifiers;
 
@@ -40,12 +45,21 @@ public class HgvsToGenomicTask implements Task<HGVSToGenomicTaskOutput, ByteArra
 
     @Override
     public String getCommand() {
-        String path = new File(PYTHON_SCRIPT).getAbsolutePath();
-        String cmd = "python -W ignore " + path;
+        String path = getScript().getAbsolutePath();
+        StringBuilder cmd = new StringBuilder("python -W ignore ").append(path);
         for (String identifier : identifiers) {
-            cmd += " \"" + identifier + "\"";
+            cmd.append(" \"").append(identifier).append('"');
         }
-        return cmd;
+        return cmd.toString();
+    }
+
+    /**
+     * Get the conversion script, which is PYTHON_SCRIPT unless overridden with the SCRIPT_PROPERTY system property
+     *
+     * @return conversion script
+     */
+    public static File getScript() {
+        return new File(System.getProperty(SCRIPT_PROPERTY, PYTHON_SCRIPT));
     }
 
     @Override
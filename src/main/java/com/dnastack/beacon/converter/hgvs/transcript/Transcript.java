@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.transcript;
+
+/**
+ * Exon structure of a single transcript on the genome. Coordinates are 0-based and half open, exons are sorted by
+ * genomic position regardless of the strand of the transcript
+ *
+ * @author patmagee
+ */
+public class Transcript {
+
+    private final String name;
+    private final String chromosome;
+    private final boolean negativeStrand;
+    private final int[] exonStarts;
+    private final int[] exonEnds;
+    private final int cdsStart;
+    private final int cdsEnd;
+    private final int length;
+
+    Transcript(String name, String chromosome, boolean negativeStrand, int[] exonStarts, int[] exonEnds, int cdsStart,
+               int cdsEnd) {
+        this.name = name;
+        this.chromosome = chromosome;
+        this.negativeStrand = negativeStrand;
+        this.exonStarts = exonStarts;
+        this.exonEnds = exonEnds;
+        this.cdsStart = cdsStart;
+        this.cdsEnd = cdsEnd;
+        int total = 0;
+        for (int i = 0; i < exonStarts.length; i++) {
+            total += exonEnds[i] - exonStarts[i];
+        }
+        this.length = total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public boolean isNegativeStrand() {
+        return negativeStrand;
+    }
+
+    /**
+     * Get the 0-based start of the first exon on the genome
+     *
+     * @return genomic start
+     */
+    public int getStart() {
+        return exonStarts[0];
+    }
+
+    /**
+     * Get the exclusive end of the last exon on the genome
+     *
+     * @return genomic end
+     */
+    public int getEnd() {
+        return exonEnds[exonEnds.length - 1];
+    }
+
+    /**
+     * Whether the transcript has a coding region, so that c. positions can be mapped
+     *
+     * @return true for coding transcripts
+     */
+    public boolean isCoding() {
+        return cdsEnd > cdsStart;
+    }
+
+    /**
+     * Get the length of the spliced transcript
+     *
+     * @return number of exonic bases
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Convert a c. position to an n. position, ie the position along the spliced transcript
+     *
+     * @param position c. position, counted from the first base of the start codon
+     * @param region   '-' for positions before the start codon, '*' for positions after the stop codon, or 0
+     * @return n. position
+     */
+    long codingToTranscript(long position, char region) {
+        if (region == '-') {
+            return firstCodingBase() - position;
+        } else if (region == '*') {
+            return lastCodingBase() + position;
+        }
+        return firstCodingBase() + position - 1;
+    }
+
+    /**
+     * Convert an n. position with an optional intronic offset to a 1-based genomic position. Positions before the
+     * start or after the end of the transcript are extended onto the flanking genome
+     *
+     * @param position n. position
+     * @param offset   intronic offset in the direction of the transcript, 0 for exonic positions
+     * @return 1-based genomic position
+     */
+    long transcriptToGenomic(long position, long offset) {
+        long genomic;
+        if (position < 1) {
+            genomic = negativeStrand ? exonEnds[exonEnds.length - 1] - position : exonStarts[0] - 1 + position;
+        } else if (position > length) {
+            long past = position - length;
+            genomic = negativeStrand ? exonStarts[0] - past : exonEnds[exonEnds.length - 1] - 1 + past;
+        } else {
+            genomic = exonic(position);
+        }
+        genomic += negativeStrand ? -offset : offset;
+        return genomic + 1;
+    }
+
+    boolean isExonic(int genomic) {
+        for (int e = 0; e < exonStarts.length; e++) {
+            if (genomic >= exonStarts[e] && genomic < exonEnds[e]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long exonic(long position) {
+        long remaining = position - 1;
+        for (int e = 0; e < exonStarts.length; e++) {
+            int exon = negativeStrand ? exonStarts.length - 1 - e : e;
+            int size = exonEnds[exon] - exonStarts[exon];
+            if (remaining < size) {
+                return negativeStrand ? exonEnds[exon] - 1 - remaining : exonStarts[exon] + remaining;
+            }
+            remaining -= size;
+        }
+        throw new IllegalStateException("Position outside of transcript " + name);
+    }
+
+    private long firstCodingBase() {
+        return genomicToTranscript(negativeStrand ? cdsEnd - 1 : cdsStart);
+    }
+
+    private long lastCodingBase() {
+        return genomicToTranscript(negativeStrand ? cdsStart : cdsEnd - 1);
+    }
+
+    private long genomicToTranscript(int genomic) {
+        long before = 0;
+        for (int e = 0; e < exonStarts.length; e++) {
+            int exon = negativeStrand ? exonStarts.length - 1 - e : e;
+            if (genomic >= exonStarts[exon] && genomic < exonEnds[exon]) {
+                return before + 1 + (negativeStrand ? exonEnds[exon] - 1 - genomic : genomic - exonStarts[exon]);
+            }
+            before += exonEnds[exon] - exonStarts[exon];
+        }
+        throw new IllegalStateException("Coding region outside of the exons of transcript " + name);
+    }
+}
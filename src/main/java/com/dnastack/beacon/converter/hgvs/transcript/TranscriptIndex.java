@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.transcript;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>TranscriptIndex</p>
+ * <p>
+ * In memory index of transcript exon structures, loaded from a local genePred snapshot such as the UCSC refGene or
+ * ncbiRefSeq tables, so that c. and n. variants can be mapped to the genome without a UTA connection. Transcripts are
+ * looked up by accession, and by chromosome position through a sorted interval index.
+ * <p>
+ * Each line of the file holds the tab separated columns name, chrom, strand, txStart, txEnd, cdsStart, cdsEnd,
+ * exonCount, exonStarts and exonEnds, optionally preceded by the bin column of the UCSC tables. Further columns are
+ * ignored. Files ending with .gz are decompressed while loading.
+ *
+ * @author patmagee
+ */
+public class TranscriptIndex {
+
+    private final Map<String, Transcript> byAccession;
+    private final Map<String, Transcript> byUnversionedAccession;
+    private final Map<String, Transcript[]> byChromosome;
+    private final Map<String, int[]> maxEnds;
+
+    private TranscriptIndex(List<Transcript> transcripts) {
+        byAccession = new HashMap<>();
+        byUnversionedAccession = new HashMap<>();
+        Map<String, List<Transcript>> chromosomes = new HashMap<>();
+        for (Transcript transcript : transcripts) {
+            // The first transcript wins, so alternate placements of the same accession do not replace the primary one
+            if (!byAccession.containsKey(transcript.getName())) {
+                byAccession.put(transcript.getName(), transcript);
+                String unversioned = unversioned(transcript.getName());
+                Transcript previous = byUnversionedAccession.get(unversioned);
+                if (previous == null || version(transcript.getName()) > version(previous.getName())) {
+                    byUnversionedAccession.put(unversioned, transcript);
+                }
+            }
+            List<Transcript> list = chromosomes.get(transcript.getChromosome());
+            if (list == null) {
+                list = new ArrayList<>();
+                chromosomes.put(transcript.getChromosome(), list);
+            }
+            list.add(transcript);
+        }
+
+        byChromosome = new HashMap<>();
+        maxEnds = new HashMap<>();
+        for (Map.Entry<String, List<Transcript>> entry : chromosomes.entrySet()) {
+            List<Transcript> list = entry.getValue();
+            Collections.sort(list, new Comparator<Transcript>() {
+                @Override
+                public int compare(Transcript left, Transcript right) {
+                    return Integer.compare(left.getStart(), right.getStart());
+                }
+            });
+            Transcript[] sorted = list.toArray(new Transcript[list.size()]);
+            int[] ends = new int[sorted.length];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < sorted.length; i++) {
+                max = Math.max(max, sorted[i].getEnd());
+                ends[i] = max;
+            }
+            byChromosome.put(entry.getKey(), sorted);
+            maxEnds.put(entry.getKey(), ends);
+        }
+    }
+
+    /**
+     * Load a genePred file, decompressing it if its name ends with .gz
+     *
+     * @param file genePred file
+     * @return transcript index
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static TranscriptIndex load(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Transcript file cannot be null");
+        }
+        InputStream input = new FileInputStream(file);
+        try {
+            if (file.getName().endsWith(".gz")) {
+                input = new GZIPInputStream(input, 1 << 16);
+            }
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Load genePred lines from a reader. The reader is not closed
+     *
+     * @param reader genePred lines
+     * @return transcript index
+     * @throws IOException if the lines cannot be read or are malformed
+     */
+    public static TranscriptIndex load(Reader reader) throws IOException {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null");
+        }
+        BufferedReader lines = new BufferedReader(reader, 1 << 16);
+        List<Transcript> transcripts = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                transcripts.add(parse(line.split("\t")));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed transcript on line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return new TranscriptIndex(transcripts);
+    }
+
+    /**
+     * Get a transcript by accession. An accession without a version matches the newest version in the index, while
+     * a versioned accession only matches that exact version
+     *
+     * @param accession transcript accession, ie NM_000059.3
+     * @return transcript, or null if the index does not contain it
+     */
+    public Transcript get(String accession) {
+        if (accession == null) {
+            throw new IllegalArgumentException("Accession cannot be null");
+        }
+        if (accession.indexOf('.') >= 0) {
+            return byAccession.get(accession);
+        }
+        return byUnversionedAccession.get(accession);
+    }
+
+    /**
+     * Get the transcripts overlapping a genomic interval
+     *
+     * @param chromosome chromosome name as used in the genePred file
+     * @param start      0-based start
+     * @param end        exclusive end
+     * @return overlapping transcripts, sorted by start
+     */
+    public List<Transcript> getOverlapping(String chromosome, int start, int end) {
+        if (chromosome == null) {
+            throw new IllegalArgumentException("Chromosome cannot be null");
+        }
+        Transcript[] sorted = byChromosome.get(chromosome);
+        if (sorted == null) {
+            return Collections.emptyList();
+        }
+        int[] ends = maxEnds.get(chromosome);
+
+        // Running maximum ends are sorted, so the first transcript that can overlap is found by binary search
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Transcript> overlapping = new ArrayList<>();
+        for (int i = low; i < sorted.length && sorted[i].getStart() < end; i++) {
+            if (sorted[i].getEnd() > start) {
+                overlapping.add(sorted[i]);
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Get the number of transcripts in the index
+     *
+     * @return number of transcripts
+     */
+    public int size() {
+        int size = 0;
+        for (Transcript[] transcripts : byChromosome.values()) {
+            size += transcripts.length;
+        }
+        return size;
+    }
+
+    private static Transcript parse(String[] columns) {
+        // Tables downloaded from UCSC start with a numeric bin column
+        int offset = columns.length > 10 && isInteger(columns[0]) && !isInteger(columns[1]) ? 1 : 0;
+        if (columns.length < offset + 10) {
+            throw new IllegalArgumentException("expected at least 10 columns");
+        }
+        String name = columns[offset];
+        String chromosome = columns[offset + 1];
+        String strand = columns[offset + 2];
+        if (!"+".equals(strand) && !"-".equals(strand)) {
+            throw new IllegalArgumentException("invalid strand " + strand);
+        }
+        int cdsStart = Integer.parseInt(columns[offset + 5]);
+        int cdsEnd = Integer.parseInt(columns[offset + 6]);
+        int exonCount = Integer.parseInt(columns[offset + 7]);
+        int[] exonStarts = parseList(columns[offset + 8], exonCount);
+        int[] exonEnds = parseList(columns[offset + 9], exonCount);
+        for (int i = 0; i < exonCount; i++) {
+            if (exonEnds[i] <= exonStarts[i] || (i > 0 && exonStarts[i] < exonEnds[i - 1])) {
+                throw new IllegalArgumentException("exons of " + name + " are not sorted and non overlapping");
+            }
+        }
+        Transcript transcript = new Transcript(name, chromosome, "-".equals(strand), exonStarts, exonEnds,
+                cdsStart, cdsEnd);
+        if (transcript.isCoding() && (!transcript.isExonic(cdsStart) || !transcript.isExonic(cdsEnd - 1))) {
+            throw new IllegalArgumentException("coding region of " + name + " does not start and end in an exon");
+        }
+        return transcript;
+    }
+
+    private static int[] parseList(String column, int count) {
+        String[] values = column.split(",");
+        if (count < 1 || values.length != count) {
+            throw new IllegalArgumentException("expected " + count + " exon coordinates but found " + column);
+        }
+        int[] parsed = new int[count];
+        for (int i = 0; i < count; i++) {
+            parsed[i] = Integer.parseInt(values[i].trim());
+        }
+        return parsed;
+    }
+
+    private static boolean isInteger(String value) {
+        try {
+            Integer.parseInt(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String unversioned(String accession) {
+        int dot = accession.indexOf('.');
+        return dot < 0 ? accession : accession.substring(0, dot);
+    }
+
+    private static int version(String accession) {
+        int dot = accession.indexOf('.');
+        if (dot < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(accession.substring(dot + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.transcript;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.api.IdentifierPartition;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.hgvs.parser.HGVSParser;
+import com.dnastack.beacon.converter.hgvs.parser.HGVSVariant;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>TranscriptMapper</p>
+ * <p>
+ * HGVSMapper which converts c. and n. variants on the transcripts of a TranscriptIndex in process, the way c_to_g and
+ * n_to_g of the hgvs package do, and hands every other identifier to a wrapped mapper. Chaining it in front of the
+ * python mapper keeps python as a fallback for transcripts missing from the local snapshot.
+ * <p>
+ * Like HGVSParser, only the syntax of the edit is checked and not the reference bases.
+ *
+ * @author patmagee
+ */
+public class TranscriptMapper implements HGVSMapper {
+
+    private static final String POSITION = "[-*]?\\d+(?:[+-]\\d+)?";
+
+    private static final Pattern POS_EDIT = Pattern.compile("^(" + POSITION + ")(?:_(" + POSITION + "))?(\\D.*)$");
+
+    private static final Pattern POSITION_PARTS = Pattern.compile("^([-*]?)(\\d+)(?:([+-])(\\d+))?$");
+
+    private final TranscriptIndex index;
+    private final HGVSMapper mapper;
+
+    /**
+     * Constructor
+     *
+     * @param index  transcripts to convert variants on
+     * @param mapper mapper converting the identifiers on transcripts missing from the index
+     */
+    public TranscriptMapper(TranscriptIndex index, HGVSMapper mapper) {
+        if (index == null || mapper == null) {
+            throw new IllegalArgumentException("Index and mapper cannot be null");
+        }
+        this.index = index;
+        this.mapper = mapper;
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+        return IdentifierPartition.partition(identifiers, new Function<String, GenomeInterval>() {
+            @Override
+            public GenomeInterval apply(String identifier) {
+                return toGenomic(identifier);
+            }
+        }).complete(mapper);
+    }
+
+    /**
+     * Convert a single c. or n. variant to genomic coordinates
+     *
+     * @param identifier HGVS identifier
+     * @return converted interval, an interval with an error if the variant is invalid on its transcript, or null if
+     * the variant is not a c. or n. variant on a transcript of the index
+     */
+    public GenomeInterval toGenomic(String identifier) {
+        HGVSVariant variant = HGVSParser.parse(identifier);
+        if (variant == null || (variant.getType() != 'c' && variant.getType() != 'n')) {
+            return null;
+        }
+        Transcript transcript = index.get(variant.getAccession());
+        if (transcript == null) {
+            return null;
+        }
+
+        Matcher posEdit = POS_EDIT.matcher(variant.getPosEdit());
+        if (!posEdit.matches() || !HGVSParser.isValidEdit(posEdit.group(3))
+                || (variant.getType() == 'c' && !transcript.isCoding())) {
+            return HGVSParser.invalid(identifier);
+        }
+        long start = toGenomic(transcript, variant.getType(), posEdit.group(1));
+        long end = posEdit.group(2) == null ? start : toGenomic(transcript, variant.getType(), posEdit.group(2));
+        if (start < 1 || end < 1) {
+            return HGVSParser.invalid(identifier);
+        }
+
+        GenomeInterval interval = new GenomeInterval();
+        interval.setVariant(identifier);
+        interval.setStart(Math.min(start, end));
+        interval.setEnd(Math.max(start, end));
+        interval.setRef(getReference(transcript.getChromosome()));
+        return interval;
+    }
+
+    private static long toGenomic(Transcript transcript, char type, String position) {
+        Matcher parts = POSITION_PARTS.matcher(position);
+        if (!parts.matches()) {
+            return -1;
+        }
+        char region = parts.group(1).isEmpty() ? 0 : parts.group(1).charAt(0);
+        long base;
+        long offset;
+        try {
+            base = Long.parseLong(parts.group(2));
+            offset = parts.group(4) == null ? 0 : Long.parseLong(parts.group(4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if ((region == 0 && base == 0) || (type == 'n' && region == '*')) {
+            return -1;
+        }
+        if ("-".equals(parts.group(3))) {
+            offset = -offset;
+        }
+
+        long transcriptPosition;
+        if (type == 'c') {
+            transcriptPosition = transcript.codingToTranscript(base, region);
+        } else {
+            transcriptPosition = region == '-' ? 1 - base : base;
+        }
+        // Intronic offsets are only meaningful next to an exon boundary within the transcript
+        if (offset != 0 && (transcriptPosition < 1 || transcriptPosition > transcript.getLength())) {
+            return -1;
+        }
+        return transcript.transcriptToGenomic(transcriptPosition, offset);
+    }
+
+    private static String getReference(String chromosome) {
+        if (chromosome.startsWith("NC_")) {
+            return HGVSParser.getReference(chromosome);
+        }
+        return chromosome.startsWith("chr") ? chromosome.substring(3) : chromosome;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.worker;
+
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.util.DaemonThreadFactory;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single long lived python process running hgvsToGenomic.py in worker mode. Requests and responses are exchanged
+ * as one JSON array per line over the stdin and stdout of the process. A worker handles one request at a time.
+ * <p>
+ * A worker which does not answer a request within its timeout is killed by a watchdog, and the request fails.
+ *
+ * @author patmagee
+ */
+class HGVSWorker implements Closeable {
+
+    private static final Gson GSON = new Gson();
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            new DaemonThreadFactory("hgvs-worker-watchdog"));
+
+    private final Process process;
+    private final Writer input;
+    private final BufferedReader output;
+    private final long timeoutMillis;
+    private volatile boolean timedOut;
+
+    HGVSWorker(List<String> command, long timeoutMillis) throws IOException {
+        this.timeoutMillis = timeoutMillis;
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        process = builder.start();
+        input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Send a batch of identifiers to the worker and wait for the conversions
+     *
+     * @param identifiers list of HGVS ids
+     * @return list of genome intervals in the same order as the identifiers
+     * @throws IOException if the worker died, did not answer within its timeout or replied with something other
+     *                     than one conversion per identifier
+     */
+    List<GenomeInterval> convert(List<String> identifiers) throws IOException {
+        ScheduledFuture<?> watchdog = null;
+        if (timeoutMillis != HGVSWorkerPool.NO_TIMEOUT) {
+            watchdog = WATCHDOG.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // Killing the process closes its output, which ends the blocked read
+                    timedOut = true;
+                    process.destroyForcibly();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        String line;
+        try {
+            input.write(GSON.toJson(identifiers));
+            input.write('\n');
+            input.flush();
+            line = output.readLine();
+        } catch (IOException e) {
+            if (!timedOut) {
+                throw e;
+            }
+            line = null;
+        } finally {
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+        }
+        if (timedOut) {
+            throw new IOException("HGVS worker did not respond within " + timeoutMillis + " ms");
+        }
+        if (line == null) {
+            throw new IOException("HGVS worker exited unexpectedly");
+        }
+        GenomeInterval[] intervals;
+        try {
+            intervals = GSON.fromJson(line, GenomeInterval[].class);
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid response from HGVS worker: " + e.getMessage());
+        }
+        if (intervals == null || intervals.length != identifiers.size()) {
+            throw new IOException("HGVS worker returned an unexpected number of conversions");
+        }
+        return Arrays.asList(intervals);
+    }
+
+    /**
+     * Whether the worker was killed because it did not answer a request in time
+     *
+     * @return true if the worker timed out
+     */
+    boolean hasTimedOut() {
+        return timedOut;
+    }
+
+    boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Close the input of the worker so it exits, and kill it
+     */
+    @Override
+    public void close() {
+        try {
+            input.close();
+        } catch (IOException e) {
+            // The process is destroyed below regardless
+        }
+        process.destroy();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.worker;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.hgvs.task.HgvsToGenomicTask;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>HGVSWorkerPool</p>
+ * <p>
+ * Pooled alternative to HGVSConverter. Instead of starting a new python process for every conversion, the pool keeps
+ * a fixed number of warm hgvsToGenomic.py worker processes alive, so the hgvs import and the UTA connection are only
+ * paid once per worker. Conversions are handed to an idle worker, and callers wait when every worker is busy.
+ * <p>
+ * A worker which crashes is replaced with a freshly started one and the conversion is retried once before failing.
+ * A worker which does not answer within the timeout is killed and replaced, and the conversion fails without a
+ * retry. The pool must be closed to stop the worker processes.
+ *
+ * @author patmagee
+ */
+public class HGVSWorkerPool implements HGVSMapper, Closeable {
+
+    public static final long NO_TIMEOUT = 0;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
+    private final List<String> command;
+    private final int size;
+    private final long timeoutMillis;
+    private final BlockingQueue<HGVSWorker> idle = new LinkedBlockingQueue<>();
+    private int started;
+    private boolean closed;
+
+    /**
+     * Constructor for a pool of workers running the bundled hgvsToGenomic.py script, or the script set with the
+     * hgvs.script system property
+     *
+     * @param size number of worker processes to keep alive
+     * @throws IOException if the workers could not be started
+     */
+    public HGVSWorkerPool(int size) throws IOException {
+        this(size, Arrays.asList("python", "-W", "ignore", HgvsToGenomicTask.getScript().getAbsolutePath(),
+                "--worker"));
+    }
+
+    /**
+     * Constructor for a pool of workers running a custom command. The command must speak the newline delimited JSON
+     * protocol of hgvsToGenomic.py --worker
+     *
+     * @param size    number of worker processes to keep alive
+     * @param command command and arguments used to start a worker
+     * @throws IOException if the workers could not be started
+     */
+    public HGVSWorkerPool(int size, List<String> command) throws IOException {
+        this(size, command, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor for a pool of workers running a custom command, killing workers which do not answer in time
+     *
+     * @param size          number of worker processes to keep alive
+     * @param command       command and arguments used to start a worker
+     * @param timeoutMillis time a worker may take to answer a single request, or NO_TIMEOUT
+     * @throws IOException if the workers could not be started
+     */
+    public HGVSWorkerPool(int size, List<String> command, long timeoutMillis) throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        if (command == null || command.isEmpty()) {
+            throw new IllegalArgumentException("Command cannot be null or empty");
+        }
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        this.size = size;
+        this.timeoutMillis = timeoutMillis;
+        this.command = Collections.unmodifiableList(new ArrayList<>(command));
+
+        try {
+            for (int i = 0; i < size; i++) {
+                idle.add(start());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Convert a list of HGVS Identifiers to genomic coordinates on one of the pooled workers
+     *
+     * @param identifiers list of HGVS ids
+     * @return List of genome intervals
+     * @throws HGVSException
+     */
+    @Override
+    public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+        if (identifiers == null) {
+            throw new NullPointerException("Identifiers cannot be null");
+        } else if (identifiers.size() == 0) {
+            throw new IllegalArgumentException("Must provide at least one identifier");
+        }
+
+        IOException failure = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            HGVSWorker worker = acquire();
+            try {
+                List<GenomeInterval> intervals = worker.convert(identifiers);
+                release(worker);
+                return intervals;
+            } catch (IOException e) {
+                failure = e;
+                replace(worker);
+                if (worker.hasTimedOut()) {
+                    // Retrying would most likely hang again
+                    break;
+                }
+            }
+        }
+        throw new HGVSException(failure.getMessage());
+    }
+
+    /**
+     * Convert a single HGVS Identifier to genomic coordinates on one of the pooled workers
+     *
+     * @param identifier a Single HGVS Identifier
+     * @return single GenomeInterval
+     * @throws HGVSException
+     */
+    public GenomeInterval hgvsToGenomic(String identifier) throws HGVSException {
+        return hgvsToGenomic(Arrays.asList(identifier)).get(0);
+    }
+
+    /**
+     * Get the number of worker processes the pool keeps alive
+     *
+     * @return pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Stop all idle workers. Workers busy with a conversion are stopped once they are released
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        HGVSWorker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.close();
+        }
+    }
+
+    private HGVSWorker start() throws IOException {
+        HGVSWorker worker = new HGVSWorker(command, timeoutMillis);
+        synchronized (this) {
+            started++;
+        }
+        return worker;
+    }
+
+    private HGVSWorker acquire() throws HGVSException {
+        try {
+            while (true) {
+                HGVSWorker worker = idle.poll();
+                if (worker != null) {
+                    return worker;
+                }
+
+                // A worker which could not be restarted after a crash leaves a free slot, start it on demand
+                synchronized (this) {
+                    if (closed) {
+                        throw new IllegalStateException("Worker pool has been closed");
+                    }
+                    if (started < size) {
+                        return start();
+                    }
+                }
+                worker = idle.poll(100, TimeUnit.MILLISECONDS);
+                if (worker != null) {
+                    return worker;
+                }
+            }
+        } catch (IOException e) {
+            throw new HGVSException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HGVSException("Interrupted while waiting for an HGVS worker");
+        }
+    }
+
+    private void release(HGVSWorker worker) {
+        boolean stop;
+        synchronized (this) {
+            stop = closed;
+        }
+        if (stop || !worker.isAlive()) {
+            replace(worker);
+        } else {
+            idle.add(worker);
+        }
+    }
+
+    private void replace(HGVSWorker worker) {
+        worker.close();
+        synchronized (this) {
+            started--;
+            if (closed) {
+                return;
+            }
+        }
+        try {
+            idle.add(start());
+        } catch (IOException e) {
+            // The slot is filled again by the next acquire
+        }
+    }
+}
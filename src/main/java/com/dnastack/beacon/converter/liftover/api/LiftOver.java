@@ -18,6 +18,9 @@ package com.dnastack.beacon.converter.liftover.api;
 import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
 import htsjdk.samtools.util.Interval;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Liftover interface
  *
@@ -67,4 +70,80 @@ public interface LiftOver {
      */
     Interval liftOver(Interval interval, double minMatch) throws LiftOverException;
 
+    /**
+     * LiftOver a single Coordinate. An interval which cannot be lifted over is reported as an unmapped result with
+     * the reason of the failure instead of throwing an exception
+     * <p>
+     * The default implementation delegates to liftOver and reports a LiftOverException as an unmapped result
+     *
+     * @param interval interval to start with
+     * @return result of the liftover
+     */
+    default LiftOverResult tryLiftOver(Interval interval) {
+        try {
+            return new LiftOverResult(interval, liftOver(interval));
+        } catch (LiftOverException e) {
+            return new LiftOverResult(interval, null);
+        }
+    }
+
+    /**
+     * LiftOver a single Coordinate. An interval which cannot be lifted over is reported as an unmapped result with
+     * the reason of the failure instead of throwing an exception
+     * <p>
+     * The default implementation delegates to liftOver and reports a LiftOverException as an unmapped result
+     *
+     * @param interval interval to start with
+     * @param minMatch minimum mismatch percentage
+     * @return result of the liftover
+     */
+    default LiftOverResult tryLiftOver(Interval interval, double minMatch) {
+        try {
+            return new LiftOverResult(interval, liftOver(interval, minMatch));
+        } catch (LiftOverException e) {
+            return new LiftOverResult(interval, null);
+        }
+    }
+
+    /**
+     * LiftOver a batch of Coordinates. Intervals which cannot be lifted over are reported as unmapped results
+     * instead of throwing an exception
+     * <p>
+     * The default implementation lifts over the intervals one by one with tryLiftOver
+     *
+     * @param intervals intervals to start with
+     * @return one result per interval, in the same order as the input
+     */
+    default List<LiftOverResult> liftOverAll(List<Interval> intervals) {
+        if (intervals == null) {
+            throw new IllegalArgumentException("Intervals cannot be null");
+        }
+        List<LiftOverResult> results = new ArrayList<>(intervals.size());
+        for (Interval interval : intervals) {
+            results.add(tryLiftOver(interval));
+        }
+        return results;
+    }
+
+    /**
+     * LiftOver a batch of Coordinates. Intervals which cannot be lifted over are reported as unmapped results
+     * instead of throwing an exception
+     * <p>
+     * The default implementation lifts over the intervals one by one with tryLiftOver
+     *
+     * @param intervals intervals to start with
+     * @param minMatch  minimum mismatch percentage
+     * @return one result per interval, in the same order as the input
+     */
+    default List<LiftOverResult> liftOverAll(List<Interval> intervals, double minMatch) {
+        if (intervals == null) {
+            throw new IllegalArgumentException("Intervals cannot be null");
+        }
+        List<LiftOverResult> results = new ArrayList<>(intervals.size());
+        for (Interval interval : intervals) {
+            results.add(tryLiftOver(interval, minMatch));
+        }
+        return results;
+    }
+
 }
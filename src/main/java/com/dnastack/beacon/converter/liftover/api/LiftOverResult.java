@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.api;
+
+import htsjdk.samtools.util.Interval;
+
+/**
+ * Outcome of lifting over a single interval. Failed liftovers are reported as a result without a target and with the
+ * reason of the failure instead of an exception.
+ *
+ * @author patrickmagee
+ */
+public class LiftOverResult {
+
+    /**
+     * Chain id of results which were not mapped, or whose chain is not known
+     */
+    public static final int NO_CHAIN = -1;
+
+    private final Interval source;
+    private final Interval target;
+    private final LiftOverStatus status;
+    private final int chainId;
+    private final double score;
+    private final double matchedFraction;
+
+    /**
+     * Constructor for a result without a specific failure reason. Results without a target are reported as
+     * UNMAPPED
+     *
+     * @param source interval that was lifted over
+     * @param target lifted over interval, or null if the interval could not be lifted over
+     */
+    public LiftOverResult(Interval source, Interval target) {
+        this(source, target, target == null ? LiftOverStatus.UNMAPPED : LiftOverStatus.MAPPED);
+    }
+
+    /**
+     * Constructor for a result
+     *
+     * @param source interval that was lifted over
+     * @param target lifted over interval, or null if the interval could not be lifted over
+     * @param status outcome of the liftover
+     */
+    public LiftOverResult(Interval source, Interval target, LiftOverStatus status) {
+        this(source, target, status, NO_CHAIN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Constructor for a result carrying the chain which lifted the interval over
+     *
+     * @param source          interval that was lifted over
+     * @param target          lifted over interval, or null if the interval could not be lifted over
+     * @param status          outcome of the liftover
+     * @param chainId         id of the chain which lifted the interval over, or NO_CHAIN
+     * @param score           score of the chain, or NaN if unknown
+     * @param matchedFraction fraction of the bases of the interval covered by the chain, or NaN if unknown
+     */
+    public LiftOverResult(Interval source, Interval target, LiftOverStatus status, int chainId, double score,
+                          double matchedFraction) {
+        if (status == null || (target != null) != status.isMapped()) {
+            throw new IllegalArgumentException("Status must be MAPPED exactly when there is a target");
+        }
+        this.source = source;
+        this.target = target;
+        this.status = status;
+        this.chainId = chainId;
+        this.score = score;
+        this.matchedFraction = matchedFraction;
+    }
+
+    /**
+     * Get the interval that was lifted over
+     *
+     * @return source interval
+     */
+    public Interval getSource() {
+        return source;
+    }
+
+    /**
+     * Get the lifted over interval
+     *
+     * @return target interval, or null if the interval could not be lifted over
+     */
+    public Interval getTarget() {
+        return target;
+    }
+
+    /**
+     * Whether the source interval could be lifted over
+     *
+     * @return true if a target interval is present
+     */
+    public boolean isMapped() {
+        return target != null;
+    }
+
+    /**
+     * Get the outcome of the liftover, which explains why an interval could not be lifted over
+     *
+     * @return status
+     */
+    public LiftOverStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the target lies on the negative strand
+     *
+     * @return true if the interval was mapped onto the negative strand
+     */
+    public boolean isNegativeStrand() {
+        return target != null && target.isNegativeStrand();
+    }
+
+    /**
+     * Whether the chain maps the interval onto the opposite strand, so alleles of the source have to be reverse
+     * complemented to be read on the target
+     *
+     * @return true if source and target are on opposite strands
+     */
+    public boolean isReverseComplemented() {
+        return target != null && source != null && target.isNegativeStrand() != source.isNegativeStrand();
+    }
+
+    /**
+     * Get the id of the chain which lifted the interval over, as given in the chain file
+     *
+     * @return chain id, or NO_CHAIN if the interval was not mapped or the chain is not known
+     */
+    public int getChainId() {
+        return chainId;
+    }
+
+    /**
+     * Get the alignment score of the chain which lifted the interval over
+     *
+     * @return chain score, or NaN if the interval was not mapped or the chain is not known
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Get the fraction of the bases of the interval covered by the chain which lifted it over
+     *
+     * @return fraction between 0 and 1, or NaN if the interval was not mapped or the fraction is not known
+     */
+    public double getMatchedFraction() {
+        return matchedFraction;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.api;
+
+import htsjdk.samtools.util.Interval;
+
+/**
+ * Part of a region lifted over by a single gapless block of a chain. Regions spanning chain gaps or several chains,
+ * which cannot be lifted over as a whole, are reported as a list of segments instead.
+ *
+ * @author patrickmagee
+ */
+public class LiftOverSegment {
+
+    private final Interval source;
+    private final Interval target;
+    private final int chainId;
+    private final double fraction;
+
+    /**
+     * Constructor for a segment
+     *
+     * @param source   part of the region covered by the block, in source coordinates
+     * @param target   the same part in target coordinates
+     * @param chainId  id of the chain the block belongs to
+     * @param fraction fraction of the bases of the whole region covered by this segment
+     */
+    public LiftOverSegment(Interval source, Interval target, int chainId, double fraction) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Source and target cannot be null");
+        }
+        this.source = source;
+        this.target = target;
+        this.chainId = chainId;
+        this.fraction = fraction;
+    }
+
+    /**
+     * Get the part of the region covered by this segment
+     *
+     * @return source sub-interval
+     */
+    public Interval getSource() {
+        return source;
+    }
+
+    /**
+     * Get the lifted over segment
+     *
+     * @return target interval
+     */
+    public Interval getTarget() {
+        return target;
+    }
+
+    /**
+     * Get the id of the chain that lifted over this segment, as given in the chain file. Segments of the same chain
+     * keep their relative order and spacing, apart from the gaps of the chain
+     *
+     * @return chain id
+     */
+    public int getChainId() {
+        return chainId;
+    }
+
+    /**
+     * Get the fraction of the bases of the whole region covered by this segment
+     *
+     * @return fraction between 0 and 1
+     */
+    public double getFraction() {
+        return fraction;
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + target + " (chain " + chainId + ")";
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.api;
+
+/**
+ * Outcome of a liftover query which reports failures as a status instead of an exception
+ *
+ * @author patrickmagee
+ */
+public enum LiftOverStatus {
+
+    /**
+     * The interval was lifted over
+     */
+    MAPPED,
+
+    /**
+     * The interval has an end before its start or a start before the first base
+     */
+    INVALID_INTERVAL,
+
+    /**
+     * No chain starts on the contig of the interval
+     */
+    UNKNOWN_CONTIG,
+
+    /**
+     * No chain block overlaps the interval, so it falls in a gap or outside of every chain
+     */
+    UNMAPPED,
+
+    /**
+     * Chain blocks overlap the interval, but none of the chains covers at least minMatch of it
+     */
+    BELOW_MIN_MATCH,
+
+    /**
+     * More than one chain covers at least minMatch of the interval, so the liftover is ambiguous
+     */
+    MULTIPLE_CHAINS;
+
+    /**
+     * Whether the status is MAPPED
+     *
+     * @return true if the interval was lifted over
+     */
+    public boolean isMapped() {
+        return this == MAPPED;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.cache;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOver;
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
+import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
+import com.dnastack.beacon.converter.util.LruCache;
+import htsjdk.samtools.util.Interval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>CachingLiftOver</p>
+ * <p>
+ * Bounded cache in front of any LiftOver, for workloads that lift over the same positions again and again. Results
+ * are cached by contig, start, end, strand and minMatch, including intervals that could not be lifted over, so repeated
+ * failures are answered from the cache as well. The least recently used results are evicted once the cache is full.
+ * <p>
+ * Results are only cached on success or on a failure reported by the wrapped liftover, never on invalid arguments.
+ *
+ * @author patrickmagee
+ */
+public class CachingLiftOver implements LiftOver {
+
+    /**
+     * Approximate heap footprint of a cached result, excluding the contig names which are shared with the caller
+     */
+    private static final long ENTRY_BYTES = 200;
+
+    /**
+     * minMatch key of calls relying on the default minMatch of the wrapped liftover
+     */
+    private static final double DEFAULT_MIN_MATCH = Double.NaN;
+
+    private final LiftOver liftOver;
+    private final LruCache<Key, Value> cache;
+
+    /**
+     * Constructor for a cache holding a maximum number of results
+     *
+     * @param liftOver   liftover to cache results of
+     * @param maxEntries maximum number of cached results
+     */
+    public CachingLiftOver(LiftOver liftOver, long maxEntries) {
+        this(liftOver, new LruCache<Key, Value>(maxEntries));
+    }
+
+    private CachingLiftOver(LiftOver liftOver, LruCache<Key, Value> cache) {
+        if (liftOver == null) {
+            throw new IllegalArgumentException("LiftOver cannot be null");
+        }
+        this.liftOver = liftOver;
+        this.cache = cache;
+    }
+
+    /**
+     * Create a cache bounded by the approximate heap size of the cached results
+     *
+     * @param liftOver liftover to cache results of
+     * @param maxBytes maximum size of the cache in bytes
+     * @return caching liftover
+     */
+    public static CachingLiftOver withMaxBytes(LiftOver liftOver, long maxBytes) {
+        return new CachingLiftOver(liftOver, new LruCache<>(maxBytes, new LruCache.Weigher<Key, Value>() {
+            @Override
+            public long weigh(Key key, Value value) {
+                return ENTRY_BYTES + 2L * key.contig.length();
+            }
+        }));
+    }
+
+    /**
+     * Get the underlying cache, ie to read its hit and miss statistics
+     *
+     * @return cache
+     */
+    public LruCache<?, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(String contig, int start, int end) throws LiftOverException {
+        return liftOver(contig, start, end, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(String contig, int start, int end, double minMatch) throws LiftOverException {
+        if (contig == null) {
+            throw new IllegalArgumentException("Contig cannot be null");
+        }
+        if (start < 1 || start > end) {
+            throw new IllegalArgumentException("Invalid start and end values");
+        }
+        return lookup(new Interval(contig, start, end), minMatch).getTarget(null, contig, start, end);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(Interval interval) throws LiftOverException {
+        return liftOver(interval, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(Interval interval, double minMatch) throws LiftOverException {
+        return lookup(interval, minMatch).getTarget(interval.getName(), interval.getContig(), interval.getStart(),
+                interval.getEnd());
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public LiftOverResult tryLiftOver(Interval interval) {
+        return tryLiftOver(interval, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public LiftOverResult tryLiftOver(Interval interval, double minMatch) {
+        return lookup(interval, minMatch).toResult(interval);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public List<LiftOverResult> liftOverAll(List<Interval> intervals) {
+        return liftOverAll(intervals, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     * <p>
+     * Only the intervals missing from the cache are passed on to the wrapped liftover, as a single batch.
+     */
+    @Override
+    public List<LiftOverResult> liftOverAll(List<Interval> intervals, double minMatch) {
+        if (intervals == null) {
+            throw new IllegalArgumentException("Intervals cannot be null");
+        }
+
+        LiftOverResult[] results = new LiftOverResult[intervals.size()];
+        List<Interval> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        int index = 0;
+        for (Interval interval : intervals) {
+            if (interval == null) {
+                throw new IllegalArgumentException("Interval cannot be null");
+            }
+            Value value = cache.get(new Key(interval, minMatch));
+            if (value == null) {
+                missing.add(interval);
+                missingIndexes.add(index);
+            } else {
+                results[index] = value.toResult(interval);
+            }
+            index++;
+        }
+
+        if (!missing.isEmpty()) {
+            List<LiftOverResult> lifted = Double.isNaN(minMatch) ? liftOver.liftOverAll(missing)
+                    : liftOver.liftOverAll(missing, minMatch);
+            for (int i = 0; i < missing.size(); i++) {
+                LiftOverResult result = lifted.get(i);
+                if (result.getStatus() != LiftOverStatus.INVALID_INTERVAL) {
+                    cache.put(new Key(missing.get(i), minMatch), new Value(result));
+                }
+                results[missingIndexes.get(i)] = result;
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private Value lookup(Interval interval, double minMatch) {
+        if (interval == null) {
+            throw new IllegalArgumentException("Interval cannot be null");
+        }
+        Key key = new Key(interval, minMatch);
+        Value value = cache.get(key);
+        if (value == null) {
+            LiftOverResult result = Double.isNaN(minMatch) ? liftOver.tryLiftOver(interval)
+                    : liftOver.tryLiftOver(interval, minMatch);
+            value = new Value(result);
+            // Invalid arguments are answered without touching the chains, so they are not worth a cache entry
+            if (result.getStatus() != LiftOverStatus.INVALID_INTERVAL) {
+                cache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Cache key of a liftover query
+     */
+    static final class Key {
+        private final String contig;
+        private final int start;
+        private final int end;
+        private final boolean negativeStrand;
+        private final long minMatch;
+        private final int hash;
+
+        private Key(Interval interval, double minMatch) {
+            this(interval.getContig(), interval.getStart(), interval.getEnd(), interval.isNegativeStrand(), minMatch);
+        }
+
+        private Key(String contig, int start, int end, boolean negativeStrand, double minMatch) {
+            if (contig == null) {
+                throw new IllegalArgumentException("Contig cannot be null");
+            }
+            this.contig = contig;
+            this.start = start;
+            this.end = end;
+            this.negativeStrand = negativeStrand;
+            this.minMatch = Double.doubleToLongBits(minMatch);
+            int result = contig.hashCode();
+            result = 31 * result + start;
+            result = 31 * result + end;
+            result = 31 * result + (negativeStrand ? 1 : 0);
+            result = 31 * result + (int) (this.minMatch ^ (this.minMatch >>> 32));
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return start == key.start && end == key.end && negativeStrand == key.negativeStrand
+                    && minMatch == key.minMatch && contig.equals(key.contig);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Cached outcome of a liftover query. Targets are stored without a name, and are given the name of the queried
+     * interval when returned
+     */
+    private static final class Value {
+        private final Interval target;
+        private final LiftOverStatus status;
+        private final int chainId;
+        private final double score;
+        private final double matchedFraction;
+
+        private Value(LiftOverResult result) {
+            Interval target = result.getTarget();
+            this.target = target == null || target.getName() == null ? target
+                    : new Interval(target.getContig(), target.getStart(), target.getEnd(), target.isNegativeStrand(), null);
+            this.status = result.getStatus();
+            this.chainId = result.getChainId();
+            this.score = result.getScore();
+            this.matchedFraction = result.getMatchedFraction();
+        }
+
+        private Interval getTarget(String name, String contig, int start, int end) throws LiftOverException {
+            if (target == null) {
+                throw new LiftOverException("Could not perform liftover for: " + contig + " start: " + start + " end"
+                        + end + " (" + status + ")");
+            }
+            return rename(name);
+        }
+
+        private LiftOverResult toResult(Interval source) {
+            return new LiftOverResult(source, target == null ? null : rename(source.getName()), status, chainId, score,
+                    matchedFraction);
+        }
+
+        private Interval rename(String name) {
+            if (name == null) {
+                return target;
+            }
+            return new Interval(target.getContig(), target.getStart(), target.getEnd(), target.isNegativeStrand(), name);
+        }
+    }
+}
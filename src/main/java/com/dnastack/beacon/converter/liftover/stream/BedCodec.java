@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.stream;
+
+import htsjdk.samtools.util.Interval;
+
+/**
+ * Codec for BED records. BED coordinates are 0-based and half-open, and the optional sixth column holds the strand
+ * of the feature, which is flipped when the feature is lifted onto the opposite strand.
+ *
+ * @author patrickmagee
+ */
+public class BedCodec implements RecordCodec {
+
+    private static final int STRAND_COLUMN = 5;
+
+    @Override
+    public boolean isHeader(String line) {
+        return line.isEmpty() || line.startsWith("#") || line.startsWith("track") || line.startsWith("browser");
+    }
+
+    @Override
+    public Interval decode(String line) {
+        String[] fields = line.split("\t", 4);
+        if (fields.length < 3) {
+            return null;
+        }
+        try {
+            int start = Integer.parseInt(fields[1]);
+            int end = Integer.parseInt(fields[2]);
+            if (start < 0 || end <= start) {
+                return null;
+            }
+            return new Interval(fields[0], start + 1, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String encode(String line, Interval target) {
+        String[] fields = line.split("\t", -1);
+        fields[0] = target.getContig();
+        fields[1] = Integer.toString(target.getStart() - 1);
+        fields[2] = Integer.toString(target.getEnd());
+        if (target.isNegativeStrand() && fields.length > STRAND_COLUMN) {
+            if ("+".equals(fields[STRAND_COLUMN])) {
+                fields[STRAND_COLUMN] = "-";
+            } else if ("-".equals(fields[STRAND_COLUMN])) {
+                fields[STRAND_COLUMN] = "+";
+            }
+        }
+        return join(fields);
+    }
+
+    static String join(String[] fields) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                builder.append('\t');
+            }
+            builder.append(fields[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.stream;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded memory merge sort for record lines keyed by contig and start position. At most {@code bufferSize} records
+ * are held in memory. Once the buffer is full it is sorted and spilled to a temporary run file, and the runs are
+ * merged when the output is written. Records with equal keys keep their insertion order.
+ *
+ * @author patrickmagee
+ */
+class ExternalSorter implements Closeable {
+
+    private final int bufferSize;
+    private final File tempDirectory;
+    private final List<Record> buffer = new ArrayList<>();
+    private final List<File> runs = new ArrayList<>();
+
+    ExternalSorter(int bufferSize, File tempDirectory) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Add a record to be sorted
+     *
+     * @param contig contig of the record
+     * @param start  start position of the record
+     * @param line   record line
+     * @throws IOException if the buffer could not be spilled to disk
+     */
+    void add(String contig, int start, String line) throws IOException {
+        buffer.add(new Record(contig, start, line));
+        if (buffer.size() >= bufferSize) {
+            spill();
+        }
+    }
+
+    /**
+     * Write all records added so far in sorted order
+     *
+     * @param writer writer to append the records to
+     * @throws IOException if a run file could not be read
+     */
+    void writeTo(Writer writer) throws IOException {
+        Collections.sort(buffer, RECORD_ORDER);
+        if (runs.isEmpty()) {
+            for (Record record : buffer) {
+                writer.write(record.line);
+                writer.write('\n');
+            }
+            return;
+        }
+
+        List<RunReader> readers = new ArrayList<>();
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size() + 1, new Comparator<RunReader>() {
+            @Override
+            public int compare(RunReader left, RunReader right) {
+                int result = RECORD_ORDER.compare(left.current, right.current);
+                return result != 0 ? result : Integer.compare(left.order, right.order);
+            }
+        });
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new FileRunReader(runs.get(i), i);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            RunReader memory = new MemoryRunReader(buffer, runs.size());
+            if (memory.advance()) {
+                queue.add(memory);
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                writer.write(reader.current.line);
+                writer.write('\n');
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Delete all run files created by this sorter
+     */
+    @Override
+    public void close() {
+        for (File run : runs) {
+            run.delete();
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer, RECORD_ORDER);
+        File run = File.createTempFile("liftover", ".run", tempDirectory);
+        runs.add(run);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), StandardCharsets.UTF_8))) {
+            for (Record record : buffer) {
+                writer.write(record.contig);
+                writer.write('\t');
+                writer.write(Integer.toString(record.start));
+                writer.write('\t');
+                writer.write(record.line);
+                writer.write('\n');
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Compare contig names so that numbered contigs sort numerically, ie chr2 before chr10
+     */
+    static final Comparator<String> CONTIG_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String left, String right) {
+            int i = 0;
+            int j = 0;
+            while (i < left.length() && j < right.length()) {
+                char a = left.charAt(i);
+                char b = right.charAt(j);
+                if (Character.isDigit(a) && Character.isDigit(b)) {
+                    int endA = i;
+                    while (endA < left.length() && Character.isDigit(left.charAt(endA))) {
+                        endA++;
+                    }
+                    int endB = j;
+                    while (endB < right.length() && Character.isDigit(right.charAt(endB))) {
+                        endB++;
+                    }
+                    // Skip leading zeros, keeping the last digit of a run of zeros
+                    int startA = i;
+                    while (startA < endA - 1 && left.charAt(startA) == '0') {
+                        startA++;
+                    }
+                    int startB = j;
+                    while (startB < endB - 1 && right.charAt(startB) == '0') {
+                        startB++;
+                    }
+                    // Without leading zeros the longer number is the larger one, equal lengths compare digit by digit
+                    int result = Integer.compare(endA - startA, endB - startB);
+                    for (int k = 0; result == 0 && startA + k < endA; k++) {
+                        result = Character.compare(left.charAt(startA + k), right.charAt(startB + k));
+                    }
+                    if (result != 0) {
+                        return result;
+                    }
+                    i = endA;
+                    j = endB;
+                } else {
+                    if (a != b) {
+                        return Character.compare(a, b);
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            int result = Integer.compare(left.length() - i, right.length() - j);
+            return result != 0 ? result : left.compareTo(right);
+        }
+    };
+
+    private static final Comparator<Record> RECORD_ORDER = new Comparator<Record>() {
+        @Override
+        public int compare(Record left, Record right) {
+            int result = CONTIG_ORDER.compare(left.contig, right.contig);
+            return result != 0 ? result : Integer.compare(left.start, right.start);
+        }
+    };
+
+    private static class Record {
+        private final String contig;
+        private final int start;
+        private final String line;
+
+        private Record(String contig, int start, String line) {
+            this.contig = contig;
+            this.start = start;
+            this.line = line;
+        }
+    }
+
+    private abstract static class RunReader implements Closeable {
+        private final int order;
+        Record current;
+
+        RunReader(int order) {
+            this.order = order;
+        }
+
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static class MemoryRunReader extends RunReader {
+        private final List<Record> records;
+        private int next;
+
+        MemoryRunReader(List<Record> records, int order) {
+            super(order);
+            this.records = records;
+        }
+
+        @Override
+        boolean advance() {
+            current = next < records.size() ? records.get(next++) : null;
+            return current != null;
+        }
+    }
+
+    private static class FileRunReader extends RunReader {
+        private final BufferedReader reader;
+
+        FileRunReader(File run, int order) throws IOException {
+            super(order);
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(run), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                current = null;
+                return false;
+            }
+            int contigEnd = line.indexOf('\t');
+            int startEnd = line.indexOf('\t', contigEnd + 1);
+            current = new Record(line.substring(0, contigEnd), Integer.parseInt(line.substring(contigEnd + 1, startEnd)),
+                    line.substring(startEnd + 1));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.stream;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOver;
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import htsjdk.samtools.util.Interval;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>LiftOverPipeline</p>
+ * <p>
+ * Streams the records of a BED or VCF file through a LiftOver. Records are read lazily and lifted over in fixed size
+ * batches, converted records are written to the output sorted by contig and position, and records which could not be
+ * lifted over are written unchanged to the rejects output. Header lines are copied to both outputs.
+ * <p>
+ * Memory use is bounded by the batch size and the sort buffer size, regardless of the size of the input. Sorted runs
+ * that do not fit in the sort buffer are spilled to temporary files which are deleted once the output is written.
+ *
+ * @author patrickmagee
+ */
+public class LiftOverPipeline {
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    public static final int DEFAULT_SORT_BUFFER_SIZE = 500000;
+    public static final double DEFAULT_MIN_MATCH = htsjdk.samtools.liftover.LiftOver.DEFAULT_LIFTOVER_MINMATCH;
+
+    private final LiftOver liftOver;
+    private final RecordCodec codec;
+    private double minMatch = DEFAULT_MIN_MATCH;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int sortBufferSize = DEFAULT_SORT_BUFFER_SIZE;
+    private File tempDirectory;
+
+    /**
+     * Constructor for a pipeline lifting records over with the given LiftOver
+     *
+     * @param liftOver LiftOver to convert the records with
+     * @param codec    Codec for the record format, ie BedCodec or VcfCodec
+     */
+    public LiftOverPipeline(LiftOver liftOver, RecordCodec codec) {
+        if (liftOver == null || codec == null) {
+            throw new IllegalArgumentException("LiftOver and codec cannot be null");
+        }
+        this.liftOver = liftOver;
+        this.codec = codec;
+    }
+
+    public double getMinMatch() {
+        return minMatch;
+    }
+
+    public void setMinMatch(double minMatch) {
+        if (minMatch < 0 || minMatch > 1.0) {
+            throw new IllegalArgumentException("Illegal min match value. must be between 0 and 1");
+        }
+        this.minMatch = minMatch;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getSortBufferSize() {
+        return sortBufferSize;
+    }
+
+    public void setSortBufferSize(int sortBufferSize) {
+        if (sortBufferSize < 1) {
+            throw new IllegalArgumentException("Sort buffer size must be at least 1");
+        }
+        this.sortBufferSize = sortBufferSize;
+    }
+
+    public File getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Set the directory for sorted runs. Defaults to the system temp directory
+     *
+     * @param tempDirectory directory for temporary files
+     */
+    public void setTempDirectory(File tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Lift over every record of a file. Gzip compressed input is detected by a .gz extension
+     *
+     * @param input   file to read records from
+     * @param output  file to write converted records to
+     * @param rejects file to write records which could not be converted to
+     * @throws IOException
+     */
+    public void run(File input, File output, File rejects) throws IOException {
+        if (input == null || output == null || rejects == null) {
+            throw new IllegalArgumentException("Files cannot be null");
+        }
+        boolean gzip = input.getName().endsWith(".gz");
+        try (InputStream file = new FileInputStream(input);
+             InputStream source = gzip ? new GZIPInputStream(file, 1 << 16) : file;
+             OutputStream out = new FileOutputStream(output);
+             OutputStream rejected = new FileOutputStream(rejects)) {
+            run(source, out, rejected);
+        }
+    }
+
+    /**
+     * Lift over every record of a stream. The streams are not closed
+     *
+     * @param input   stream to read records from
+     * @param output  stream to write converted records to
+     * @param rejects stream to write records which could not be converted to
+     * @throws IOException
+     */
+    public void run(InputStream input, OutputStream output, OutputStream rejects) throws IOException {
+        if (input == null || output == null || rejects == null) {
+            throw new IllegalArgumentException("Streams cannot be null");
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        Writer rejected = new BufferedWriter(new OutputStreamWriter(rejects, StandardCharsets.UTF_8));
+
+        try (ExternalSorter sorter = new ExternalSorter(sortBufferSize, tempDirectory)) {
+            List<String> lines = new ArrayList<>(batchSize);
+            List<Interval> intervals = new ArrayList<>(batchSize);
+            boolean inHeader = true;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (inHeader && codec.isHeader(line)) {
+                    writeLine(out, line);
+                    writeLine(rejected, line);
+                    continue;
+                }
+                inHeader = false;
+
+                Interval interval = codec.decode(line);
+                if (interval == null) {
+                    writeLine(rejected, line);
+                    continue;
+                }
+                lines.add(line);
+                intervals.add(interval);
+                if (lines.size() >= batchSize) {
+                    liftOverBatch(lines, intervals, sorter, rejected);
+                }
+            }
+            liftOverBatch(lines, intervals, sorter, rejected);
+
+            sorter.writeTo(out);
+        }
+        out.flush();
+        rejected.flush();
+    }
+
+    private void liftOverBatch(List<String> lines, List<Interval> intervals, ExternalSorter sorter, Writer rejected)
+            throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        List<LiftOverResult> results = liftOver.liftOverAll(intervals, minMatch);
+        for (int i = 0; i < results.size(); i++) {
+            LiftOverResult result = results.get(i);
+            String converted = result.isMapped() ? codec.encode(lines.get(i), result.getTarget()) : null;
+            if (converted == null) {
+                writeLine(rejected, lines.get(i));
+            } else {
+                sorter.add(result.getTarget().getContig(), result.getTarget().getStart(), converted);
+            }
+        }
+        lines.clear();
+        intervals.clear();
+    }
+
+    private static void writeLine(Writer writer, String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+    }
+}
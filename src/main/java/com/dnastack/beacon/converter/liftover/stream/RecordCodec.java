@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.stream;
+
+import htsjdk.samtools.util.Interval;
+
+/**
+ * Reads and rewrites the coordinates of a single line of a text based record format such as BED or VCF
+ *
+ * @author patrickmagee
+ */
+public interface RecordCodec {
+
+    /**
+     * Whether the line is part of the file header and should be copied to the output unchanged
+     *
+     * @param line line from the input file
+     * @return true if the line is a header line
+     */
+    boolean isHeader(String line);
+
+    /**
+     * Extract the 1-based, closed interval covered by a record
+     *
+     * @param line record line from the input file
+     * @return interval covered by the record, or null if the record is malformed
+     */
+    Interval decode(String line);
+
+    /**
+     * Rewrite a record with the coordinates of its lifted over interval
+     *
+     * @param line   record line from the input file
+     * @param target lifted over interval
+     * @return rewritten record, or null if the record cannot be represented at the target position
+     */
+    String encode(String line, Interval target);
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.stream;
+
+import htsjdk.samtools.util.Interval;
+
+/**
+ * Codec for VCF records. A record covers the bases of its reference allele, starting at POS.
+ * <p>
+ * Records lifted onto the opposite strand have their alleles reverse complemented. This is only possible when every
+ * allele has the same length as the reference allele, since indels would need their padding base re-read from the
+ * target reference. Such records are rejected.
+ *
+ * @author patrickmagee
+ */
+public class VcfCodec implements RecordCodec {
+
+    private static final int CONTIG_COLUMN = 0;
+    private static final int POSITION_COLUMN = 1;
+    private static final int REF_COLUMN = 3;
+    private static final int ALT_COLUMN = 4;
+    private static final String MISSING_ALLELE = ".";
+
+    @Override
+    public boolean isHeader(String line) {
+        return line.isEmpty() || line.startsWith("#");
+    }
+
+    @Override
+    public Interval decode(String line) {
+        String[] fields = line.split("\t", 6);
+        if (fields.length < 5 || fields[REF_COLUMN].isEmpty()) {
+            return null;
+        }
+        try {
+            int position = Integer.parseInt(fields[POSITION_COLUMN]);
+            if (position < 1) {
+                return null;
+            }
+            return new Interval(fields[CONTIG_COLUMN], position, position + fields[REF_COLUMN].length() - 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String encode(String line, Interval target) {
+        String[] fields = line.split("\t", -1);
+        if (target.length() != fields[REF_COLUMN].length()) {
+            return null;
+        }
+        fields[CONTIG_COLUMN] = target.getContig();
+        fields[POSITION_COLUMN] = Integer.toString(target.getStart());
+
+        if (target.isNegativeStrand()) {
+            String ref = fields[REF_COLUMN];
+            String[] alts = fields[ALT_COLUMN].split(",");
+            for (int i = 0; i < alts.length; i++) {
+                if (MISSING_ALLELE.equals(alts[i])) {
+                    continue;
+                }
+                if (alts[i].length() != ref.length() || !isBases(alts[i])) {
+                    return null;
+                }
+                alts[i] = reverseComplement(alts[i]);
+            }
+            if (!isBases(ref)) {
+                return null;
+            }
+            fields[REF_COLUMN] = reverseComplement(ref);
+            fields[ALT_COLUMN] = joinAlleles(alts);
+        }
+        return BedCodec.join(fields);
+    }
+
+    private static boolean isBases(String allele) {
+        for (int i = 0; i < allele.length(); i++) {
+            if (complement(allele.charAt(i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String reverseComplement(String allele) {
+        char[] bases = new char[allele.length()];
+        for (int i = 0; i < bases.length; i++) {
+            bases[bases.length - 1 - i] = complement(allele.charAt(i));
+        }
+        return new String(bases);
+    }
+
+    private static char complement(char base) {
+        switch (base) {
+            case 'A':
+                return 'T';
+            case 'C':
+                return 'G';
+            case 'G':
+                return 'C';
+            case 'T':
+                return 'A';
+            case 'N':
+                return 'N';
+            case 'a':
+                return 't';
+            case 'c':
+                return 'g';
+            case 'g':
+                return 'c';
+            case 't':
+                return 'a';
+            case 'n':
+                return 'n';
+            default:
+                return 0;
+        }
+    }
+
+    private static String joinAlleles(String[] alleles) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < alleles.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(alleles[i]);
+        }
+        return builder.toString();
+    }
+}
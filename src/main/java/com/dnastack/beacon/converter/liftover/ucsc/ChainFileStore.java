@@ -0,0 +1,438 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.ChainFile;
+import com.dnastack.beacon.converter.metrics.Metrics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>ChainFileStore</p>
+ * <p>
+ * Local directory of downloaded chain files, so every chain file is fetched at most once per node and reused by later
+ * runs. Files are stored under the SHA-256 checksum of their contents, downloaded into a temporary file first and
+ * moved into place atomically once their checksum is known, so a crashed or concurrent download never leaves a
+ * partial chain file behind. Downloads of the same file by several threads or processes sharing the directory are
+ * serialized with a file lock.
+ * <p>
+ * The directory is laid out as:
+ * <pre>
+ * objects/  chain files named by checksum, ie 3c5d...e1.over.chain.gz
+ * refs/     one file per source url holding the name of its object
+ * tmp/      downloads in progress
+ * locks/    lock files of the downloads
+ * </pre>
+ * When the store grows over its size limit, the least recently used chain files are deleted, except for files used in
+ * the last minute, so the store can briefly exceed its limit. For offline use the store can read from a local mirror
+ * of the UCSC download site instead of the network.
+ *
+ * @author patrickmagee
+ */
+public class ChainFileStore {
+
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
+    /**
+     * System property overriding the directory of the default store
+     */
+    public static final String DIRECTORY_PROPERTY = "chain.store";
+
+    /**
+     * System property setting a mirror directory for the default store
+     */
+    public static final String MIRROR_PROPERTY = "chain.mirror";
+
+    static final String UCSC_REMOTE_TEMPLATE = "http://hgdownload.cse.ucsc.edu/goldenPath/%s/liftOver/%s";
+
+    private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * Objects used within this time are never evicted. Eviction does not take the locks of other keys, so this keeps
+     * it from deleting a chain file another thread or process has just resolved and is about to read
+     */
+    static final long EVICTION_GRACE_MILLIS = 60 * 1000L;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int LOCK_STRIPES = 64;
+
+    private static volatile ChainFileStore defaultStore;
+
+    private final File directory;
+    private final File objects;
+    private final File refs;
+    private final File tmp;
+    private final File locks;
+    private final long maxBytes;
+    private final File mirror;
+    private final Object[] keyLocks = new Object[LOCK_STRIPES];
+    private final Set<String> verified = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Constructor for a store without a size limit which downloads from the network
+     *
+     * @param directory directory holding the store, created if needed
+     * @throws IOException if the directory cannot be created
+     */
+    public ChainFileStore(File directory) throws IOException {
+        this(directory, NO_LIMIT, null);
+    }
+
+    /**
+     * Constructor for a store
+     *
+     * @param directory directory holding the store, created if needed
+     * @param maxBytes  maximum total size of the stored chain files, or NO_LIMIT
+     * @param mirror    local copy of the UCSC goldenPath directory used instead of the network, or null
+     * @throws IOException if the directory cannot be created
+     */
+    public ChainFileStore(File directory, long maxBytes, File mirror) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        if (mirror != null && !mirror.isDirectory()) {
+            throw new IllegalArgumentException("Mirror must be a directory: " + mirror);
+        }
+        this.directory = directory;
+        this.objects = new File(directory, "objects");
+        this.refs = new File(directory, "refs");
+        this.tmp = new File(directory, "tmp");
+        this.locks = new File(directory, "locks");
+        this.maxBytes = maxBytes;
+        this.mirror = mirror;
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+        for (File dir : new File[]{objects, refs, tmp, locks}) {
+            Files.createDirectories(dir.toPath());
+        }
+        deleteStaleTemps();
+    }
+
+    /**
+     * Get the store used by UCSChainFile.fromUCSCRemote. It lives in the directory set with the chain.store system
+     * property, or in .genome-coordinates-converter/chains in the home directory, and reads from the mirror set with
+     * the chain.mirror system property if there is one
+     *
+     * @return default store
+     * @throws IOException if the directory cannot be created
+     */
+    public static ChainFileStore getDefault() throws IOException {
+        ChainFileStore store = defaultStore;
+        if (store == null) {
+            synchronized (ChainFileStore.class) {
+                store = defaultStore;
+                if (store == null) {
+                    String path = System.getProperty(DIRECTORY_PROPERTY);
+                    File directory = path != null ? new File(path)
+                            : new File(System.getProperty("user.home"), ".genome-coordinates-converter/chains");
+                    String mirror = System.getProperty(MIRROR_PROPERTY);
+                    store = new ChainFileStore(directory, NO_LIMIT, mirror == null ? null : new File(mirror));
+                    defaultStore = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Get a chain file from the UCSC download site, or from the mirror if the store has one. The mirror is searched
+     * for [Genome Build]/liftOver/[File Name] first, then for [File Name]
+     *
+     * @param buildFrom Starting GenomeBuild
+     * @param buildTo   Target GenomeBuild
+     * @param fileName  name of the chain file, ie hg19ToHg38.over.chain.gz
+     * @return ChainFile in the store
+     * @throws IOException if the chain file could not be fetched
+     */
+    public ChainFile fromUCSC(String buildFrom, String buildTo, String fileName) throws IOException {
+        if (buildFrom == null || fileName == null) {
+            throw new IllegalArgumentException("Arguments cannot be null");
+        }
+        // Mirrored and downloaded copies of the same file share their key
+        String key = buildFrom + "/liftOver/" + fileName;
+        if (mirror == null) {
+            return get(key, new URL(String.format(UCSC_REMOTE_TEMPLATE, buildFrom, fileName)), null, buildFrom,
+                    buildTo);
+        }
+
+        // A file missing from the mirror fails with a FileNotFoundException once it has to be fetched
+        File source = new File(mirror, key);
+        if (!source.isFile() && new File(mirror, fileName).isFile()) {
+            source = new File(mirror, fileName);
+        }
+        return get(key, source.toURI().toURL(), null, buildFrom, buildTo);
+    }
+
+    /**
+     * Get a chain file from a url, verifying its checksum
+     *
+     * @param url       url of the chain file
+     * @param sha256    expected hex encoded SHA-256 checksum of the file, or null to accept any contents
+     * @param buildFrom Starting GenomeBuild
+     * @param buildTo   Target GenomeBuild
+     * @return ChainFile in the store
+     * @throws IOException if the chain file could not be fetched or does not match the checksum
+     */
+    public ChainFile fromUrl(URL url, String sha256, String buildFrom, String buildTo) throws IOException {
+        if (url == null) {
+            throw new IllegalArgumentException("url cannot be null");
+        }
+        return get(url.toString(), url, sha256 == null ? null : sha256.toLowerCase(), buildFrom, buildTo);
+    }
+
+    /**
+     * Get the total size of the stored chain files
+     *
+     * @return size in bytes
+     */
+    public long size() {
+        long size = 0;
+        for (File object : listObjects()) {
+            size += object.length();
+        }
+        return size;
+    }
+
+    /**
+     * Get the directory holding the store
+     *
+     * @return directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    private ChainFile get(String key, URL source, String sha256, String buildFrom, String buildTo)
+            throws IOException {
+        String name = checksum(key.getBytes(StandardCharsets.UTF_8));
+        File ref = new File(refs, name);
+
+        // File locks are held by the JVM, so threads of the same JVM are serialized separately. Keys share a fixed
+        // number of lock stripes, so the monitors do not pile up with the keys
+        synchronized (keyLocks[(name.hashCode() & Integer.MAX_VALUE) % keyLocks.length]) {
+            try (RandomAccessFile lockFile = new RandomAccessFile(new File(locks, name), "rw");
+                 FileChannel channel = lockFile.getChannel()) {
+                FileLock lock = channel.lock();
+                try {
+                    File object = resolve(ref, sha256);
+                    if (object != null) {
+                        Metrics.increment(Metrics.CHAIN_STORE_HITS, 1);
+                    } else {
+                        object = fetch(ref, source, sha256);
+                    }
+                    return UCSChainFile.fromFile(object, buildFrom, buildTo);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the stored object of a ref, checking its checksum the first time it is used by this store
+     *
+     * @return stored object, or null if it has to be fetched
+     */
+    private File resolve(File ref, String sha256) throws IOException {
+        if (!ref.isFile()) {
+            return null;
+        }
+        String objectName = new String(Files.readAllBytes(ref.toPath()), StandardCharsets.UTF_8).trim();
+        File object = new File(objects, objectName);
+        String checksum = objectName.split("\\.", 2)[0];
+        if (!object.isFile() || (sha256 != null && !sha256.equals(checksum))) {
+            return null;
+        }
+        if (!verified.contains(objectName)) {
+            if (!checksum.equals(checksum(object))) {
+                Files.deleteIfExists(object.toPath());
+                return null;
+            }
+            verified.add(objectName);
+        }
+        object.setLastModified(System.currentTimeMillis());
+        return object;
+    }
+
+    private File fetch(File ref, URL source, String sha256) throws IOException {
+        long start = Metrics.start();
+        File temp = File.createTempFile("chain", ".download", tmp);
+        try {
+            MessageDigest digest = newDigest();
+            boolean gzipped;
+            try (InputStream input = source.openStream();
+                 OutputStream output = new FileOutputStream(temp)) {
+                byte[] bytes = new byte[BUFFER_SIZE];
+                int read;
+                int total = 0;
+                byte[] magic = new byte[2];
+                while ((read = input.read(bytes)) != -1) {
+                    for (int i = 0; i < read && total < 2; i++) {
+                        magic[total++] = bytes[i];
+                    }
+                    digest.update(bytes, 0, read);
+                    output.write(bytes, 0, read);
+                }
+                gzipped = total == 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b;
+            }
+
+            String checksum = hex(digest.digest());
+            if (sha256 != null && !sha256.equals(checksum)) {
+                throw new IOException("Checksum mismatch for " + source + ": expected " + sha256 + " but was "
+                        + checksum);
+            }
+            String objectName = checksum + (gzipped ? ".over.chain.gz" : ".over.chain");
+            File object = new File(objects, objectName);
+            if (object.isFile() && checksum.equals(checksum(object))) {
+                object.setLastModified(System.currentTimeMillis());
+            } else {
+                move(temp, object);
+            }
+            verified.add(objectName);
+
+            File refTemp = File.createTempFile("ref", ".tmp", tmp);
+            Files.write(refTemp.toPath(), objectName.getBytes(StandardCharsets.UTF_8));
+            move(refTemp, ref);
+            evict(object);
+            return object;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+            Metrics.recordSince(Metrics.CHAIN_FETCH, start);
+        }
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Delete the least recently used chain files until the store fits its size limit again, skipping the ones used
+     * within the eviction grace period
+     */
+    private void evict(File current) {
+        if (maxBytes == NO_LIMIT) {
+            return;
+        }
+        File[] stored = listObjects();
+        long size = 0;
+        for (File object : stored) {
+            size += object.length();
+        }
+        Arrays.sort(stored, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                return Long.compare(left.lastModified(), right.lastModified());
+            }
+        });
+        long recent = System.currentTimeMillis() - EVICTION_GRACE_MILLIS;
+        for (File object : stored) {
+            if (size <= maxBytes || object.lastModified() > recent) {
+                break;
+            }
+            if (!object.equals(current)) {
+                long length = object.length();
+                if (object.delete()) {
+                    size -= length;
+                    verified.remove(object.getName());
+                }
+            }
+        }
+    }
+
+    private File[] listObjects() {
+        File[] stored = objects.listFiles();
+        return stored == null ? new File[0] : stored;
+    }
+
+    /**
+     * Delete downloads left behind by crashed processes
+     */
+    private void deleteStaleTemps() {
+        File[] temps = tmp.listFiles();
+        if (temps == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File temp : temps) {
+            if (now - temp.lastModified() > STALE_TEMP_MILLIS) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static String checksum(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(bytes)) != -1) {
+                digest.update(bytes, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static String checksum(byte[] bytes) {
+        return hex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.util.GenomeBuild;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>LiftOverRegistry</p>
+ * <p>
+ * Thread safe cache of UCSCLiftOver instances keyed by build pair. Each chain file is loaded once, by the first
+ * caller asking for it, and the same instance is handed to every later caller.
+ * <p>
+ * Build pairs without a bundled chain file are lifted over through the shortest path of bundled chain files, ie
+ * hg17 to hg19 to hg38. The chains along the path are composed into a single index once, so a lookup on a multi
+ * step liftover costs the same as on a direct one.
+ * <p>
+ * Instances which have not been used for longer than the idle timeout are evicted, and when the estimated size of
+ * all loaded chain indexes exceeds the memory budget the least recently used instances are evicted until the
+ * registry fits again. Evicted instances stay valid for callers still holding them; they are only reloaded by the
+ * next get.
+ *
+ * @author patrickmagee
+ */
+public class LiftOverRegistry {
+
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long maxIdleMillis;
+    private final long memoryBudget;
+
+    /**
+     * Constructor for a registry which never evicts
+     */
+    public LiftOverRegistry() {
+        this(NO_LIMIT, NO_LIMIT);
+    }
+
+    /**
+     * Constructor for a registry with eviction
+     *
+     * @param maxIdleMillis time after which an unused instance is evicted, or NO_LIMIT
+     * @param memoryBudget  maximum estimated size of all loaded chain indexes in bytes, or NO_LIMIT
+     */
+    public LiftOverRegistry(long maxIdleMillis, long memoryBudget) {
+        if (maxIdleMillis <= 0 || memoryBudget <= 0) {
+            throw new IllegalArgumentException("Idle time and memory budget must be positive");
+        }
+        this.maxIdleMillis = maxIdleMillis;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Get the shared UCSCLiftOver for a build pair, loading its chain file if needed
+     *
+     * @param from Starting GenomeBuild version
+     * @param to   Target GenomeBuild version
+     * @return shared UCSCLiftOver
+     * @throws IOException if the chain file could not be loaded
+     */
+    public UCSCLiftOver get(GenomeBuild from, GenomeBuild to) throws IOException {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Genome Builds cannot be null");
+        }
+        String key = from.getBuildName() + ":" + to.getBuildName();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry created = new Entry(this, from, to);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+
+        UCSCLiftOver liftOver;
+        try {
+            liftOver = entry.get();
+        } catch (IOException e) {
+            entries.remove(key, entry);
+            throw e;
+        }
+        evict(entry);
+        return liftOver;
+    }
+
+    /**
+     * Get the estimated size of all loaded chain indexes
+     *
+     * @return size in bytes
+     */
+    public long getLoadedSize() {
+        long size = 0;
+        for (Entry entry : entries.values()) {
+            size += entry.size;
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of loaded instances
+     *
+     * @return number of instances
+     */
+    public int size() {
+        int size = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.liftOver != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Evict instances which have been idle longer than the idle timeout
+     */
+    public void evictIdle() {
+        evict(null);
+    }
+
+    /**
+     * Evict all instances
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private void evict(Entry current) {
+        long now = System.currentTimeMillis();
+        if (maxIdleMillis != NO_LIMIT) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                if (value != current && value.liftOver != null && now - value.lastAccess > maxIdleMillis) {
+                    entries.remove(entry.getKey(), value);
+                }
+            }
+        }
+
+        if (memoryBudget != NO_LIMIT && getLoadedSize() > memoryBudget) {
+            List<Map.Entry<String, Entry>> loaded = new ArrayList<>();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue() != current && entry.getValue().liftOver != null) {
+                    loaded.add(entry);
+                }
+            }
+            Collections.sort(loaded, new Comparator<Map.Entry<String, Entry>>() {
+                @Override
+                public int compare(Map.Entry<String, Entry> left, Map.Entry<String, Entry> right) {
+                    return Long.compare(left.getValue().lastAccess, right.getValue().lastAccess);
+                }
+            });
+            for (Map.Entry<String, Entry> entry : loaded) {
+                if (getLoadedSize() <= memoryBudget) {
+                    break;
+                }
+                entries.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Lazily loaded registry slot. Loading is synchronized per slot, so callers asking for different build pairs
+     * do not wait for each other
+     */
+    private static final class Entry {
+        private final LiftOverRegistry registry;
+        private final GenomeBuild from;
+        private final GenomeBuild to;
+        private volatile UCSCLiftOver liftOver;
+        private volatile long size;
+        private volatile long lastAccess;
+
+        private Entry(LiftOverRegistry registry, GenomeBuild from, GenomeBuild to) {
+            this.registry = registry;
+            this.from = from;
+            this.to = to;
+        }
+
+        private UCSCLiftOver get() throws IOException {
+            UCSCLiftOver result = liftOver;
+            if (result == null) {
+                synchronized (this) {
+                    result = liftOver;
+                    if (result == null) {
+                        UCSCChainIndex index = load();
+                        result = new UCSCLiftOver(index, from.getBuildName(), to.getBuildName());
+                        size = index.estimatedSize();
+                        liftOver = result;
+                    }
+                }
+            }
+            lastAccess = System.currentTimeMillis();
+            return result;
+        }
+
+        private UCSCChainIndex load() throws IOException {
+            if (UCSChainFile.isBundled(from, to)) {
+                return UCSCChainIndex.load(new UCSChainFile(from, to));
+            }
+
+            // Steps of the path are shared with direct lookups of the same build pairs
+            List<GenomeBuild> path = UCSChainFile.findPath(from, to);
+            UCSCChainIndex index = registry.get(path.get(0), path.get(1)).getIndex();
+            for (int i = 2; i < path.size(); i++) {
+                index = UCSCChainIndex.compose(index, registry.get(path.get(i - 1), path.get(i)).getIndex());
+            }
+            return index;
+        }
+    }
+}
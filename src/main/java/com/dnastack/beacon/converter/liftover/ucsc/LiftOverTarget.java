@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
+
+/**
+ * <p>LiftOverTarget</p>
+ * <p>
+ * Mutable, reusable holder for the result of an allocation free liftover query. The holder also carries the scratch
+ * space used while matching chains, so once it has been created a query does not allocate anything. A holder must
+ * not be shared between threads; give each thread its own holder.
+ *
+ * @author patrickmagee
+ */
+public class LiftOverTarget {
+
+    final UCSCChainIndex.Hits hits = new UCSCChainIndex.Hits();
+    private LiftOverStatus status;
+    private String contig;
+    private int start;
+    private int end;
+    private boolean reverseComplemented;
+    private int chainId = LiftOverResult.NO_CHAIN;
+    private double score = Double.NaN;
+    private double matchedFraction = Double.NaN;
+
+    /**
+     * Get the status of the last query
+     *
+     * @return status, or null if the holder has not been used yet
+     */
+    public LiftOverStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the last query lifted over its interval
+     *
+     * @return true if the coordinates of this holder are valid
+     */
+    public boolean isMapped() {
+        return status == LiftOverStatus.MAPPED;
+    }
+
+    /**
+     * Get the target contig of the last mapped query
+     *
+     * @return contig, or null if the last query was not mapped
+     */
+    public String getContig() {
+        return contig;
+    }
+
+    /**
+     * Get the 1-based target start of the last mapped query
+     *
+     * @return start position
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the 1-based, inclusive target end of the last mapped query
+     *
+     * @return end position
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Whether the chain of the last mapped query maps onto the negative strand of the target contig, so the query was
+     * reverse complemented. The holder does not know the strand of the query: the lifted over strand is the query
+     * strand flipped when this is true
+     *
+     * @return true if the chain maps onto the negative strand
+     */
+    public boolean isReverseComplemented() {
+        return reverseComplemented;
+    }
+
+    /**
+     * Get the id of the chain which lifted over the last mapped query, as given in the chain file
+     *
+     * @return chain id, or LiftOverResult.NO_CHAIN if the last query was not mapped
+     */
+    public int getChainId() {
+        return chainId;
+    }
+
+    /**
+     * Get the score of the chain which lifted over the last mapped query
+     *
+     * @return chain score, or NaN if the last query was not mapped
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Get the fraction of the bases of the last mapped query covered by its chain
+     *
+     * @return fraction between 0 and 1, or NaN if the last query was not mapped
+     */
+    public double getMatchedFraction() {
+        return matchedFraction;
+    }
+
+    LiftOverStatus fail(LiftOverStatus status) {
+        this.status = status;
+        contig = null;
+        start = 0;
+        end = 0;
+        reverseComplemented = false;
+        chainId = LiftOverResult.NO_CHAIN;
+        score = Double.NaN;
+        matchedFraction = Double.NaN;
+        return status;
+    }
+
+    LiftOverStatus map(String contig, int start, int end, boolean reverseComplemented, int chainId, double score,
+                       double matchedFraction) {
+        this.status = LiftOverStatus.MAPPED;
+        this.contig = contig;
+        this.start = start;
+        this.end = end;
+        this.reverseComplemented = reverseComplemented;
+        this.chainId = chainId;
+        this.score = score;
+        this.matchedFraction = matchedFraction;
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        if (!isMapped()) {
+            return String.valueOf(status);
+        }
+        return contig + ":" + start + "-" + end + (reverseComplemented ? " (reverse complemented)" : "");
+    }
+}
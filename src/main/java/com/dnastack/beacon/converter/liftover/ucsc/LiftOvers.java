@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.metrics.Gauge;
+import com.dnastack.beacon.converter.metrics.Metrics;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+
+import java.io.IOException;
+
+/**
+ * Shared liftovers for the bundled chain files. Each build pair is loaded once per JVM and the same thread safe
+ * UCSCLiftOver instance is returned to every caller, so request handlers can call this on every request instead of
+ * creating a new UCSCLiftOver. Build pairs without a bundled chain file are served by composing the chain files
+ * along the shortest path between them.
+ *
+ * @author patrickmagee
+ */
+public final class LiftOvers {
+
+    private static final LiftOverRegistry REGISTRY = new LiftOverRegistry();
+
+    static {
+        Metrics.registerGauge(Metrics.REGISTRY_LOADED_BYTES, new Gauge() {
+            @Override
+            public long getValue() {
+                return REGISTRY.getLoadedSize();
+            }
+        });
+        Metrics.registerGauge(Metrics.REGISTRY_SIZE, new Gauge() {
+            @Override
+            public long getValue() {
+                return REGISTRY.size();
+            }
+        });
+    }
+
+    private LiftOvers() {
+    }
+
+    /**
+     * Get the shared UCSCLiftOver for a build pair
+     *
+     * @param from Starting GenomeBuild version
+     * @param to   Target GenomeBuild version
+     * @return shared UCSCLiftOver
+     * @throws IOException if the chain file could not be loaded
+     */
+    public static UCSCLiftOver get(GenomeBuild from, GenomeBuild to) throws IOException {
+        return REGISTRY.get(from, to);
+    }
+
+    /**
+     * Get the registry backing the shared liftovers, ie to evict instances that are no longer needed
+     *
+     * @return shared registry
+     */
+    public static LiftOverRegistry registry() {
+        return REGISTRY;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOver;
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
+import com.dnastack.beacon.converter.metrics.Metrics;
+import htsjdk.samtools.util.Interval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>ParallelLiftOver</p>
+ * <p>
+ * Batch liftover spread over the threads of a ForkJoinPool. The intervals of a batch are grouped by contig, every
+ * contig is sorted and split into ranges of neighbouring intervals, and each range is swept over the shared, read only
+ * chain index by its own task. Results are written straight to their position in the output, so the output keeps the
+ * order of the input.
+ * <p>
+ * Single interval calls are passed on to the wrapped UCSCLiftOver.
+ *
+ * @author patrickmagee
+ */
+public class ParallelLiftOver implements LiftOver {
+
+    public static final int DEFAULT_PARTITION_SIZE = 4096;
+
+    private final UCSCLiftOver liftOver;
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    /**
+     * Constructor for a parallel liftover running on the common ForkJoinPool
+     *
+     * @param liftOver liftover whose chain index is shared by all threads
+     */
+    public ParallelLiftOver(UCSCLiftOver liftOver) {
+        this(liftOver, ForkJoinPool.commonPool(), DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Constructor for a parallel liftover running on a dedicated pool
+     *
+     * @param liftOver      liftover whose chain index is shared by all threads
+     * @param pool          pool running the partitions
+     * @param partitionSize number of intervals below which a range is no longer split
+     */
+    public ParallelLiftOver(UCSCLiftOver liftOver, ForkJoinPool pool, int partitionSize) {
+        if (liftOver == null || pool == null) {
+            throw new IllegalArgumentException("LiftOver and pool cannot be null");
+        }
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("Partition size must be at least 1");
+        }
+        this.liftOver = liftOver;
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(String contig, int start, int end) throws LiftOverException {
+        return liftOver.liftOver(contig, start, end);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(String contig, int start, int end, double minMatch) throws LiftOverException {
+        return liftOver.liftOver(contig, start, end, minMatch);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(Interval interval) throws LiftOverException {
+        return liftOver.liftOver(interval);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(Interval interval, double minMatch) throws LiftOverException {
+        return liftOver.liftOver(interval, minMatch);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public LiftOverResult tryLiftOver(Interval interval) {
+        return liftOver.tryLiftOver(interval);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public LiftOverResult tryLiftOver(Interval interval, double minMatch) {
+        return liftOver.tryLiftOver(interval, minMatch);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public List<LiftOverResult> liftOverAll(List<Interval> intervals) {
+        return liftOverAll(intervals, UCSCLiftOver.DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public List<LiftOverResult> liftOverAll(List<Interval> intervals, double minMatch) {
+        if (intervals == null) {
+            throw new IllegalArgumentException("Intervals cannot be null");
+        }
+        if (minMatch < 0 || minMatch > 1.0) {
+            throw new IllegalArgumentException("Illegal min match value. must be between 0 and 1");
+        }
+
+        long start = Metrics.start();
+        Interval[] batch = intervals.toArray(new Interval[intervals.size()]);
+        Map<String, ContigKeys> byContig = new HashMap<>();
+        for (int i = 0; i < batch.length; i++) {
+            Interval interval = batch[i];
+            if (interval == null) {
+                throw new IllegalArgumentException("Interval cannot be null");
+            }
+            UCSCChainIndex.checkLength(interval);
+            ContigKeys keys = byContig.get(interval.getContig());
+            if (keys == null) {
+                keys = new ContigKeys(interval.getContig());
+                byContig.put(interval.getContig(), keys);
+            }
+            keys.add(interval.getStart(), i);
+        }
+
+        LiftOverResult[] results = new LiftOverResult[batch.length];
+        List<RecursiveAction> tasks = new ArrayList<>(byContig.size());
+        for (ContigKeys keys : byContig.values()) {
+            tasks.add(new ContigTask(batch, keys, minMatch, results));
+        }
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        if (start != 0) {
+            Metrics.recordSince(Metrics.LIFTOVER_BATCH, start);
+            UCSCLiftOver.recordStatuses(results);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Packed (start, index) keys of the intervals on one contig
+     */
+    private static final class ContigKeys {
+        private final String contig;
+        private long[] keys = new long[16];
+        private int size;
+
+        private ContigKeys(String contig) {
+            this.contig = contig;
+        }
+
+        private void add(int start, int index) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = ((long) start << 32) | index;
+        }
+    }
+
+    /**
+     * Sorts the keys of one contig and splits them into ranges
+     */
+    private final class ContigTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Interval[] batch;
+        private final ContigKeys keys;
+        private final double minMatch;
+        private final LiftOverResult[] results;
+
+        private ContigTask(Interval[] batch, ContigKeys keys, double minMatch, LiftOverResult[] results) {
+            this.batch = batch;
+            this.keys = keys;
+            this.minMatch = minMatch;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            Arrays.sort(keys.keys, 0, keys.size);
+            new RangeTask(batch, keys, 0, keys.size, minMatch, results).compute();
+        }
+    }
+
+    /**
+     * Lifts over a range of sorted keys, splitting it in half while it is larger than the partition size
+     */
+    private final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Interval[] batch;
+        private final ContigKeys keys;
+        private final int from;
+        private final int to;
+        private final double minMatch;
+        private final LiftOverResult[] results;
+
+        private RangeTask(Interval[] batch, ContigKeys keys, int from, int to, double minMatch, LiftOverResult[] results) {
+            this.batch = batch;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.minMatch = minMatch;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= partitionSize) {
+                liftOver.getIndex().liftOverSorted(batch, keys.contig, keys.keys, from, to, minMatch, results);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(batch, keys, from, middle, minMatch, results),
+                        new RangeTask(batch, keys, middle, to, minMatch, results));
+            }
+        }
+    }
+}
@@ -0,0 +1,839 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.api.LiftOverSegment;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
+import com.dnastack.beacon.converter.metrics.Metrics;
+import htsjdk.samtools.util.Interval;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>UCSCChainIndex</p>
+ * <p>
+ * In memory index of a UCSC chain file. The aligned blocks of every chain are packed into sorted primitive arrays per
+ * source contig, so a lookup is a binary search followed by a short scan over the overlapping blocks, instead of
+ * walking object graphs of chains and blocks.
+ * <p>
+ * Lookups follow the htsjdk liftOver rules: an interval is lifted over by the single chain covering at least
+ * {@code minMatch} of its bases, and intervals covered well enough by more than one chain cannot be lifted over.
+ * The index is immutable once loaded and can be shared between threads.
+ *
+ * @author patrickmagee
+ */
+public class UCSCChainIndex {
+
+    final String[] chainToContigs;
+    final int[] chainToSizes;
+    final boolean[] chainNegative;
+    final double[] chainScores;
+    final int[] chainIds;
+    final Map<String, ContigIndex> contigs;
+
+    UCSCChainIndex(String[] chainToContigs, int[] chainToSizes, boolean[] chainNegative, double[] chainScores,
+                   int[] chainIds, Map<String, ContigIndex> contigs) {
+        this.chainToContigs = chainToContigs;
+        this.chainToSizes = chainToSizes;
+        this.chainNegative = chainNegative;
+        this.chainScores = chainScores;
+        this.chainIds = chainIds;
+        this.contigs = contigs;
+    }
+
+    /**
+     * Load the index from a chain file, parsing it on all available processors. Gzip and BGZF compressed chain
+     * files, ie hg19ToHg38.over.chain.gz as published by UCSC, are decompressed while loading
+     *
+     * @param file chain file
+     * @return chain index
+     * @throws IOException if the file cannot be read or is not a valid chain file
+     */
+    public static UCSCChainIndex load(File file) throws IOException {
+        return load(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Load the index from a plain or gzip compressed chain file
+     *
+     * @param file        chain file
+     * @param parallelism number of threads parsing the file, 1 to parse it on the calling thread
+     * @return chain index
+     * @throws IOException if the file cannot be read or is not a valid chain file
+     */
+    public static UCSCChainIndex load(File file, int parallelism) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Chain file cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        long start = Metrics.start();
+        try (InputStream input = UCSCChainParser.decompress(new FileInputStream(file))) {
+            return UCSCChainParser.parse(input, file.toString(), parallelism, UCSCChainParser.DEFAULT_CHUNK_SIZE);
+        } finally {
+            Metrics.recordSince(Metrics.CHAIN_LOAD, start);
+        }
+    }
+
+    /**
+     * Parse the contents of a chain file on the calling thread, as a single chunk
+     *
+     * @param input  contents of an uncompressed chain file
+     * @param source name of the chain file used in error messages
+     * @return chain index
+     * @throws IOException if the contents cannot be read or are not a valid chain file
+     */
+    static UCSCChainIndex parse(InputStream input, String source) throws IOException {
+        return UCSCChainParser.parse(input, source, 1, UCSCChainParser.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Estimate the memory held by the index. Memory mapped indexes are counted as if their block arrays were on the
+     * heap, since they occupy the page cache instead
+     *
+     * @return approximate size in bytes
+     */
+    public long estimatedSize() {
+        long size = 64L * contigs.size() + 32L * chainIds.length;
+        for (ContigIndex contig : contigs.values()) {
+            size += 5L * Integer.BYTES * contig.size;
+        }
+        return size;
+    }
+
+    /**
+     * Lift over an interval
+     *
+     * @param interval 1-based, closed interval in source coordinates
+     * @param minMatch minimum fraction of bases of the interval that must be covered by the chain
+     * @return lifted over interval, or null if the interval cannot be lifted over
+     */
+    public Interval liftOver(Interval interval, double minMatch) {
+        return liftOverResult(interval, minMatch).getTarget();
+    }
+
+    /**
+     * Lift over an interval, reporting the reason when it cannot be lifted over
+     *
+     * @param interval 1-based, closed interval in source coordinates
+     * @param minMatch minimum fraction of bases of the interval that must be covered by the chain
+     * @return result of the liftover
+     */
+    public LiftOverResult liftOverResult(Interval interval, double minMatch) {
+        checkLength(interval);
+        ContigIndex contig = contigs.get(interval.getContig());
+        if (contig == null) {
+            return new LiftOverResult(interval, null, LiftOverStatus.UNKNOWN_CONTIG);
+        }
+        LiftOverTarget target = new LiftOverTarget();
+        int start = interval.getStart() - 1;
+        liftOver(contig, contig.firstCandidate(start), start, interval.getEnd(), minMatch, target);
+        return toResult(interval, target);
+    }
+
+    /**
+     * Lift over every part of an interval covered by a chain block, in a single scan over the overlapping blocks.
+     * Segments are ordered by source start, and parts of the interval covered by several chains yield a segment per
+     * chain
+     *
+     * @param interval 1-based, closed interval in source coordinates
+     * @return lifted over segments, empty if no part of the interval can be lifted over
+     */
+    public List<LiftOverSegment> liftOverSegments(Interval interval) {
+        checkLength(interval);
+        List<LiftOverSegment> segments = new ArrayList<>();
+        ContigIndex contig = contigs.get(interval.getContig());
+        if (contig == null) {
+            return segments;
+        }
+        int start = interval.getStart() - 1;
+        int end = interval.getEnd();
+        double length = end - start;
+        for (int i = contig.firstCandidate(start); i < contig.size && contig.start(i) < end; i++) {
+            int blockStart = contig.start(i);
+            int overlapStart = Math.max(start, blockStart);
+            int overlapEnd = Math.min(end, contig.end(i));
+            if (overlapEnd <= overlapStart) {
+                continue;
+            }
+            int chain = contig.chain(i);
+            int toStart = contig.toStart(i) + (overlapStart - blockStart);
+            int toEnd = toStart + (overlapEnd - overlapStart);
+            if (chainNegative[chain]) {
+                int negativeStart = chainToSizes[chain] - toEnd;
+                toEnd = chainToSizes[chain] - toStart;
+                toStart = negativeStart;
+            }
+            Interval source = new Interval(interval.getContig(), overlapStart + 1, overlapEnd,
+                    interval.isNegativeStrand(), interval.getName());
+            Interval target = new Interval(chainToContigs[chain], toStart + 1, toEnd,
+                    chainNegative[chain] != interval.isNegativeStrand(), interval.getName());
+            segments.add(new LiftOverSegment(source, target, chainIds[chain], (overlapEnd - overlapStart) / length));
+        }
+        return segments;
+    }
+
+    /**
+     * Lift over an interval given as primitive coordinates into a reusable holder. Nothing is allocated, and failures
+     * are reported through the returned status instead of an exception
+     *
+     * @param contig   source contig
+     * @param start    1-based start position
+     * @param end      1-based, inclusive end position
+     * @param minMatch minimum fraction of bases of the interval that must be covered by the chain
+     * @param target   holder receiving the lifted over coordinates
+     * @return status of the liftover, also available from the holder
+     */
+    public LiftOverStatus liftOver(String contig, int start, int end, double minMatch, LiftOverTarget target) {
+        if (contig == null || target == null) {
+            throw new IllegalArgumentException("Contig and target cannot be null");
+        }
+        if (start < 1 || end < start) {
+            return target.fail(LiftOverStatus.INVALID_INTERVAL);
+        }
+        ContigIndex blocks = contigs.get(contig);
+        if (blocks == null) {
+            return target.fail(LiftOverStatus.UNKNOWN_CONTIG);
+        }
+        return liftOver(blocks, blocks.firstCandidate(start - 1), start - 1, end, minMatch, target);
+    }
+
+    /**
+     * Lift over a single position into a reusable holder. The block containing the position is found with one binary
+     * search over block starts, and nothing is allocated. The result is the same as lifting over the single base
+     * interval at the position with any minMatch: the position is mapped when exactly one chain covers it
+     *
+     * @param contig   source contig
+     * @param position 1-based position
+     * @param target   holder receiving the lifted over position as a single base interval
+     * @return status of the liftover, also available from the holder
+     */
+    public LiftOverStatus liftPosition(String contig, int position, LiftOverTarget target) {
+        if (contig == null || target == null) {
+            throw new IllegalArgumentException("Contig and target cannot be null");
+        }
+        if (position < 1) {
+            return target.fail(LiftOverStatus.INVALID_INTERVAL);
+        }
+        ContigIndex blocks = contigs.get(contig);
+        if (blocks == null) {
+            return target.fail(LiftOverStatus.UNKNOWN_CONTIG);
+        }
+
+        int start = position - 1;
+        int block = -1;
+        // Walk back over the blocks starting before the position until none of them can still reach it
+        for (int i = blocks.lastStartAtOrBefore(start); i >= 0 && blocks.maxEnd(i) > start; i--) {
+            if (blocks.end(i) > start) {
+                if (block >= 0 && blocks.chain(i) != blocks.chain(block)) {
+                    return target.fail(LiftOverStatus.MULTIPLE_CHAINS);
+                }
+                block = i;
+            }
+        }
+        if (block < 0) {
+            return target.fail(LiftOverStatus.UNMAPPED);
+        }
+
+        int chain = blocks.chain(block);
+        int toStart = blocks.toStart(block) + (start - blocks.start(block));
+        int lifted = chainNegative[chain] ? chainToSizes[chain] - toStart : toStart + 1;
+        return target.map(chainToContigs[chain], lifted, lifted, chainNegative[chain], chainIds[chain],
+                chainScores[chain], 1.0);
+    }
+
+    /**
+     * Lift over a batch of intervals in a single sweep over the blocks of each contig
+     *
+     * @param intervals intervals to lift over
+     * @param order     indexes into the intervals, sorted by contig and start
+     * @param minMatch  minimum fraction of bases of each interval that must be covered by the chain
+     * @param results   array receiving one result per interval, at the index of the interval
+     */
+    void liftOverSorted(List<Interval> intervals, Integer[] order, double minMatch, LiftOverResult[] results) {
+        LiftOverTarget target = new LiftOverTarget();
+        String contigName = null;
+        ContigIndex contig = null;
+        int cursor = 0;
+
+        for (int index : order) {
+            Interval interval = intervals.get(index);
+            checkLength(interval);
+            if (!interval.getContig().equals(contigName)) {
+                contigName = interval.getContig();
+                contig = contigs.get(contigName);
+                cursor = 0;
+            }
+            if (contig == null) {
+                results[index] = new LiftOverResult(interval, null, LiftOverStatus.UNKNOWN_CONTIG);
+                continue;
+            }
+            int start = interval.getStart() - 1;
+            while (cursor < contig.size && contig.maxEnd(cursor) <= start) {
+                cursor++;
+            }
+            liftOver(contig, cursor, start, interval.getEnd(), minMatch, target);
+            results[index] = toResult(interval, target);
+        }
+    }
+
+    /**
+     * Lift over a range of intervals on a single contig in one sweep over its blocks. Safe to call from several
+     * threads at once, as long as the ranges write to different results
+     *
+     * @param intervals  intervals to lift over
+     * @param contigName contig of every interval in the range
+     * @param keys       packed (start, index) keys of the intervals on the contig, sorted
+     * @param from       first key of the range
+     * @param to         end of the range, exclusive
+     * @param minMatch   minimum fraction of bases of each interval that must be covered by the chain
+     * @param results    array receiving one result per interval, at the index of the interval
+     */
+    void liftOverSorted(Interval[] intervals, String contigName, long[] keys, int from, int to, double minMatch,
+                        LiftOverResult[] results) {
+        ContigIndex contig = contigs.get(contigName);
+        if (contig == null) {
+            for (int k = from; k < to; k++) {
+                int index = (int) keys[k];
+                results[index] = new LiftOverResult(intervals[index], null, LiftOverStatus.UNKNOWN_CONTIG);
+            }
+            return;
+        }
+
+        LiftOverTarget target = new LiftOverTarget();
+        int cursor = contig.firstCandidate((int) (keys[from] >> 32) - 1);
+        for (int k = from; k < to; k++) {
+            int index = (int) keys[k];
+            Interval interval = intervals[index];
+            int start = interval.getStart() - 1;
+            while (cursor < contig.size && contig.maxEnd(cursor) <= start) {
+                cursor++;
+            }
+            liftOver(contig, cursor, start, interval.getEnd(), minMatch, target);
+            results[index] = toResult(interval, target);
+        }
+    }
+
+    private LiftOverStatus liftOver(ContigIndex contig, int first, int start, int end, double minMatch,
+                                    LiftOverTarget target) {
+        Hits hits = target.hits;
+        hits.clear();
+        for (int i = first; i < contig.size && contig.start(i) < end; i++) {
+            int blockEnd = contig.end(i);
+            if (blockEnd > start) {
+                int overlap = Math.min(end, blockEnd) - Math.max(start, contig.start(i));
+                hits.add(contig.chain(i), i, overlap);
+            }
+        }
+
+        double minMatchSize = minMatch * (end - start);
+        int hit = -1;
+        for (int h = 0; h < hits.count; h++) {
+            if (hits.lengths[h] >= minMatchSize) {
+                if (hit >= 0) {
+                    // Multiple chains cover the interval, the liftover is ambiguous
+                    return target.fail(LiftOverStatus.MULTIPLE_CHAINS);
+                }
+                hit = h;
+            }
+        }
+        if (hit < 0) {
+            return target.fail(hits.count == 0 ? LiftOverStatus.UNMAPPED : LiftOverStatus.BELOW_MIN_MATCH);
+        }
+
+        int firstBlock = hits.firstBlocks[hit];
+        int lastBlock = hits.lastBlocks[hit];
+        int chain = hits.chains[hit];
+        int toStart = contig.toStart(firstBlock) + Math.max(0, start - contig.start(firstBlock));
+        int lastEnd = contig.end(lastBlock);
+        int toEnd = contig.toStart(lastBlock) + (lastEnd - contig.start(lastBlock)) - Math.max(0, lastEnd - end);
+        if (chainNegative[chain]) {
+            int negativeStart = chainToSizes[chain] - toEnd;
+            toEnd = chainToSizes[chain] - toStart;
+            toStart = negativeStart;
+        }
+        return target.map(chainToContigs[chain], toStart + 1, toEnd, chainNegative[chain], chainIds[chain],
+                chainScores[chain], hits.lengths[hit] / (double) (end - start));
+    }
+
+    private static LiftOverResult toResult(Interval interval, LiftOverTarget target) {
+        if (!target.isMapped()) {
+            return new LiftOverResult(interval, null, target.getStatus());
+        }
+        boolean negativeStrand = target.isReverseComplemented() != interval.isNegativeStrand();
+        Interval lifted = new Interval(target.getContig(), target.getStart(), target.getEnd(), negativeStrand,
+                interval.getName());
+        return new LiftOverResult(interval, lifted, LiftOverStatus.MAPPED, target.getChainId(), target.getScore(),
+                target.getMatchedFraction());
+    }
+
+    /**
+     * Compose two indexes into a single index lifting over in one step, ie hg17 to hg19 and hg19 to hg38 into hg17
+     * to hg38. Every block of the first index is projected through the blocks of the second index it overlaps, and
+     * each pair of chains yields one composed chain holding the projected blocks.
+     * <p>
+     * Single positions lift over exactly as they would through both indexes in turn. Longer intervals are matched
+     * against the composed blocks once, so minMatch is applied to the whole path instead of to every step.
+     *
+     * @param first  index lifting over from the starting build to an intermediate build
+     * @param second index lifting over from the intermediate build to the target build
+     * @return composed index
+     */
+    public static UCSCChainIndex compose(UCSCChainIndex first, UCSCChainIndex second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Indexes cannot be null");
+        }
+        Builder builder = new Builder();
+        Map<Long, Integer> composedChains = new HashMap<>();
+
+        for (Map.Entry<String, ContigIndex> entry : first.contigs.entrySet()) {
+            String fromContig = entry.getKey();
+            ContigIndex blocks = entry.getValue();
+            for (int i = 0; i < blocks.size; i++) {
+                int chain = blocks.chain(i);
+                ContigIndex middle = second.contigs.get(first.chainToContigs[chain]);
+                if (middle == null) {
+                    continue;
+                }
+                int fromStart = blocks.start(i);
+                int length = blocks.end(i) - fromStart;
+                int middleStart = blocks.toStart(i);
+                boolean negative = first.chainNegative[chain];
+                int middleSize = first.chainToSizes[chain];
+
+                // Blocks of the second index are on the positive strand of the intermediate build
+                int start = negative ? middleSize - (middleStart + length) : middleStart;
+                int end = start + length;
+                for (int j = middle.firstCandidate(start); j < middle.size && middle.start(j) < end; j++) {
+                    int overlapStart = Math.max(start, middle.start(j));
+                    int overlapEnd = Math.min(end, middle.end(j));
+                    if (overlapEnd <= overlapStart) {
+                        continue;
+                    }
+                    int secondChain = middle.chain(j);
+                    int size = overlapEnd - overlapStart;
+                    int toStart = middle.toStart(j) + (overlapStart - middle.start(j));
+                    int composedFromStart;
+                    if (negative) {
+                        // Walking forward on the starting build walks backward on the intermediate build
+                        composedFromStart = fromStart + (middleSize - overlapEnd) - middleStart;
+                        toStart = second.chainToSizes[secondChain] - (toStart + size);
+                    } else {
+                        composedFromStart = fromStart + (overlapStart - start);
+                    }
+
+                    long key = ((long) chain << 32) | secondChain;
+                    Integer composed = composedChains.get(key);
+                    if (composed == null) {
+                        composed = builder.addChain(fromContig, second.chainToContigs[secondChain],
+                                second.chainToSizes[secondChain], negative != second.chainNegative[secondChain],
+                                Math.min(first.chainScores[chain], second.chainScores[secondChain]),
+                                composedChains.size() + 1);
+                        composedChains.put(key, composed);
+                    }
+                    builder.addBlock(composed, composedFromStart, toStart, size);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    static void checkLength(Interval interval) {
+        if (interval.length() == 0) {
+            throw new IllegalArgumentException("Zero-length interval cannot be lifted over.  Interval: " + interval.getName());
+        }
+    }
+
+    /**
+     * Sorted blocks of all chains starting on a single source contig. Blocks are sorted by start, and maxEnd holds
+     * the largest block end seen up to each position so the first block that can overlap a position is found with a
+     * binary search even though blocks of different chains overlap each other.
+     * <p>
+     * Parsed indexes keep the blocks in int[] arrays on the heap, memory mapped index files read them from views of
+     * the mapping.
+     */
+    abstract static class ContigIndex {
+        final int size;
+
+        ContigIndex(int size) {
+            this.size = size;
+        }
+
+        abstract int start(int block);
+
+        abstract int end(int block);
+
+        abstract int toStart(int block);
+
+        abstract int chain(int block);
+
+        abstract int maxEnd(int block);
+
+        /**
+         * Find the first block whose running maximum end is past a position
+         *
+         * @param position 0-based position
+         * @return index of the first block that may overlap the position
+         */
+        abstract int firstCandidate(int position);
+
+        /**
+         * Find the last block starting at or before a position
+         *
+         * @param position 0-based position
+         * @return index of the block, or -1 if every block starts after the position
+         */
+        abstract int lastStartAtOrBefore(int position);
+    }
+
+    /**
+     * Blocks of a parsed index, held in int[] arrays
+     */
+    static final class HeapContigIndex extends ContigIndex {
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] toStarts;
+        private final int[] chains;
+        private final int[] maxEnds;
+
+        HeapContigIndex(int[] starts, int[] ends, int[] toStarts, int[] chains) {
+            super(starts.length);
+            this.starts = starts;
+            this.ends = ends;
+            this.toStarts = toStarts;
+            this.chains = chains;
+            this.maxEnds = runningMax(ends);
+        }
+
+        private static int[] runningMax(int[] ends) {
+            int[] maxEnds = new int[ends.length];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+            return maxEnds;
+        }
+
+        @Override
+        int start(int block) {
+            return starts[block];
+        }
+
+        @Override
+        int end(int block) {
+            return ends[block];
+        }
+
+        @Override
+        int toStart(int block) {
+            return toStarts[block];
+        }
+
+        @Override
+        int chain(int block) {
+            return chains[block];
+        }
+
+        @Override
+        int maxEnd(int block) {
+            return maxEnds[block];
+        }
+
+        @Override
+        int firstCandidate(int position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (maxEnds[middle] <= position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        int lastStartAtOrBefore(int position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] <= position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+    }
+
+    /**
+     * Blocks of a memory mapped index file, read from IntBuffer views of the mapping
+     */
+    static final class MappedContigIndex extends ContigIndex {
+        private final IntBuffer starts;
+        private final IntBuffer ends;
+        private final IntBuffer toStarts;
+        private final IntBuffer chains;
+        private final IntBuffer maxEnds;
+
+        MappedContigIndex(IntBuffer starts, IntBuffer ends, IntBuffer toStarts, IntBuffer chains, IntBuffer maxEnds) {
+            super(starts.limit());
+            this.starts = starts;
+            this.ends = ends;
+            this.toStarts = toStarts;
+            this.chains = chains;
+            this.maxEnds = maxEnds;
+        }
+
+        @Override
+        int start(int block) {
+            return starts.get(block);
+        }
+
+        @Override
+        int end(int block) {
+            return ends.get(block);
+        }
+
+        @Override
+        int toStart(int block) {
+            return toStarts.get(block);
+        }
+
+        @Override
+        int chain(int block) {
+            return chains.get(block);
+        }
+
+        @Override
+        int maxEnd(int block) {
+            return maxEnds.get(block);
+        }
+
+        @Override
+        int firstCandidate(int position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (maxEnds.get(middle) <= position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        int lastStartAtOrBefore(int position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (starts.get(middle) <= position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+    }
+
+    /**
+     * Per chain overlap totals collected while scanning the blocks overlapping an interval
+     */
+    static final class Hits {
+        private int count;
+        private int[] chains = new int[4];
+        private int[] lengths = new int[4];
+        private int[] firstBlocks = new int[4];
+        private int[] lastBlocks = new int[4];
+
+        private void clear() {
+            count = 0;
+        }
+
+        private void add(int chain, int block, int overlap) {
+            for (int h = 0; h < count; h++) {
+                if (chains[h] == chain) {
+                    lengths[h] += overlap;
+                    lastBlocks[h] = block;
+                    return;
+                }
+            }
+            if (count == chains.length) {
+                chains = Arrays.copyOf(chains, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+                firstBlocks = Arrays.copyOf(firstBlocks, count * 2);
+                lastBlocks = Arrays.copyOf(lastBlocks, count * 2);
+            }
+            chains[count] = chain;
+            lengths[count] = overlap;
+            firstBlocks[count] = block;
+            lastBlocks[count] = block;
+            count++;
+        }
+    }
+
+    /**
+     * Collects chains and their blocks and sorts them into an index
+     */
+    static final class Builder {
+        private int chainCount;
+        private String[] chainToContigs = new String[256];
+        private String[] chainFromContigs = new String[256];
+        private int[] chainToSizes = new int[256];
+        private boolean[] chainNegative = new boolean[256];
+        private double[] chainScores = new double[256];
+        private int[] chainIds = new int[256];
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<String, BlockList> blocks = new HashMap<>();
+
+        /**
+         * Add a chain
+         *
+         * @param fromContig source contig of the chain
+         * @param toContig   target contig of the chain
+         * @param toSize     size of the target contig
+         * @param negative   whether the chain maps onto the negative strand of the target contig
+         * @param score      chain score
+         * @param id         chain id
+         * @return index of the chain, used to add its blocks
+         */
+        int addChain(String fromContig, String toContig, int toSize, boolean negative, double score, int id) {
+            if (chainCount == chainIds.length) {
+                int capacity = chainCount * 2;
+                chainToContigs = Arrays.copyOf(chainToContigs, capacity);
+                chainFromContigs = Arrays.copyOf(chainFromContigs, capacity);
+                chainToSizes = Arrays.copyOf(chainToSizes, capacity);
+                chainNegative = Arrays.copyOf(chainNegative, capacity);
+                chainScores = Arrays.copyOf(chainScores, capacity);
+                chainIds = Arrays.copyOf(chainIds, capacity);
+            }
+            chainFromContigs[chainCount] = name(fromContig);
+            chainToContigs[chainCount] = name(toContig);
+            chainToSizes[chainCount] = toSize;
+            chainNegative[chainCount] = negative;
+            chainScores[chainCount] = score;
+            chainIds[chainCount] = id;
+            return chainCount++;
+        }
+
+        /**
+         * Add an aligned block to a chain
+         *
+         * @param chain     index of the chain returned by addChain
+         * @param fromStart 0-based start of the block in the source contig
+         * @param toStart   0-based start of the block in the target contig, on the strand of the chain
+         * @param size      length of the block
+         */
+        void addBlock(int chain, int fromStart, int toStart, int size) {
+            if (size <= 0) {
+                return;
+            }
+            String contig = chainFromContigs[chain];
+            BlockList list = blocks.get(contig);
+            if (list == null) {
+                list = new BlockList();
+                blocks.put(contig, list);
+            }
+            list.add(fromStart, fromStart + size, toStart, chain);
+        }
+
+        UCSCChainIndex build() {
+            Map<String, ContigIndex> contigs = new HashMap<>();
+            for (Map.Entry<String, BlockList> entry : blocks.entrySet()) {
+                contigs.put(entry.getKey(), entry.getValue().toContigIndex());
+            }
+            return new UCSCChainIndex(Arrays.copyOf(chainToContigs, chainCount), Arrays.copyOf(chainToSizes, chainCount),
+                    Arrays.copyOf(chainNegative, chainCount), Arrays.copyOf(chainScores, chainCount),
+                    Arrays.copyOf(chainIds, chainCount), contigs);
+        }
+
+        private String name(String name) {
+            String existing = names.get(name);
+            if (existing == null) {
+                names.put(name, name);
+                existing = name;
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * Growable, unsorted block arrays for a single contig
+     */
+    private static final class BlockList {
+        private int size;
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private int[] toStarts = new int[1024];
+        private int[] chains = new int[1024];
+
+        private void add(int start, int end, int toStart, int chain) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                toStarts = Arrays.copyOf(toStarts, size * 2);
+                chains = Arrays.copyOf(chains, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            toStarts[size] = toStart;
+            chains[size] = chain;
+            size++;
+        }
+
+        private ContigIndex toContigIndex() {
+            // Sort by start through packed (start, position) keys so that blocks with equal starts keep their order
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) starts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sortedStarts = new int[size];
+            int[] sortedEnds = new int[size];
+            int[] sortedToStarts = new int[size];
+            int[] sortedChains = new int[size];
+            for (int i = 0; i < size; i++) {
+                int position = (int) keys[i];
+                sortedStarts[i] = starts[position];
+                sortedEnds[i] = ends[position];
+                sortedToStarts[i] = toStarts[position];
+                sortedChains[i] = chains[position];
+            }
+            return new HeapContigIndex(sortedStarts, sortedEnds, sortedToStarts, sortedChains);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.ChainFile;
+import com.dnastack.beacon.converter.metrics.Metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>UCSCChainIndexFile</p>
+ * <p>
+ * Compact binary form of a UCSCChainIndex. Compiling a chain file once and memory mapping the result avoids parsing
+ * the text chain file in every JVM: the block arrays are used in place from the mapped file, so they are loaded
+ * lazily by the operating system and shared between processes through the page cache.
+ * <p>
+ * The file is big endian and laid out as:
+ * <pre>
+ * int     magic, version
+ * int     number of names, then each name as a UTF-8 length prefixed string
+ * int     number of chains, then per chain: target name index, target size, strand byte, score, id
+ * int     number of contigs, then per contig: name index, block count, offset of its arrays in ints
+ * padding to a multiple of 4 bytes
+ * int[]   per contig: block starts, ends, target starts, chain indexes and running maximum ends
+ * </pre>
+ * Compile from the command line with:
+ * <pre>
+ * java -cp genome-coordinates-converter.jar com.dnastack.beacon.converter.liftover.ucsc.UCSCChainIndexFile \
+ *     hg19ToHg38.over.chain hg19ToHg38.over.idx
+ * </pre>
+ *
+ * @author patrickmagee
+ */
+public class UCSCChainIndexFile {
+
+    private static final int MAGIC = 0x47434349;
+    private static final int VERSION = 1;
+
+    private UCSCChainIndexFile() {
+    }
+
+    /**
+     * Compile a chain file into a binary index file
+     *
+     * @param chainFile chain file to compile
+     * @param output    file to write the index to
+     * @throws IOException
+     */
+    public static void compile(ChainFile chainFile, File output) throws IOException {
+        if (chainFile == null || output == null) {
+            throw new IllegalArgumentException("Chain file and output cannot be null");
+        }
+        write(UCSCChainIndex.load(chainFile), output);
+    }
+
+    /**
+     * Write an index to a binary index file
+     *
+     * @param index  chain index
+     * @param output file to write the index to
+     * @throws IOException
+     */
+    public static void write(UCSCChainIndex index, File output) throws IOException {
+        if (index == null || output == null) {
+            throw new IllegalArgumentException("Index and output cannot be null");
+        }
+
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> nameIndexes = new HashMap<>();
+        for (String name : index.chainToContigs) {
+            addName(name, names, nameIndexes);
+        }
+        List<String> contigs = new ArrayList<>(index.contigs.keySet());
+        for (String contig : contigs) {
+            addName(contig, names, nameIndexes);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            int chains = index.chainToContigs.length;
+            out.writeInt(chains);
+            for (int chain = 0; chain < chains; chain++) {
+                out.writeInt(nameIndexes.get(index.chainToContigs[chain]));
+                out.writeInt(index.chainToSizes[chain]);
+                out.writeByte(index.chainNegative[chain] ? 1 : 0);
+                out.writeDouble(index.chainScores[chain]);
+                out.writeInt(index.chainIds[chain]);
+            }
+
+            out.writeInt(contigs.size());
+            long offset = 0;
+            for (String contig : contigs) {
+                int size = index.contigs.get(contig).size;
+                out.writeInt(nameIndexes.get(contig));
+                out.writeInt(size);
+                out.writeLong(offset);
+                offset += 5L * size;
+            }
+            while (out.size() % 4 != 0) {
+                out.writeByte(0);
+            }
+
+            for (String contig : contigs) {
+                UCSCChainIndex.ContigIndex blocks = index.contigs.get(contig);
+                for (int i = 0; i < blocks.size; i++) {
+                    out.writeInt(blocks.start(i));
+                }
+                for (int i = 0; i < blocks.size; i++) {
+                    out.writeInt(blocks.end(i));
+                }
+                for (int i = 0; i < blocks.size; i++) {
+                    out.writeInt(blocks.toStart(i));
+                }
+                for (int i = 0; i < blocks.size; i++) {
+                    out.writeInt(blocks.chain(i));
+                }
+                for (int i = 0; i < blocks.size; i++) {
+                    out.writeInt(blocks.maxEnd(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Memory map a binary index file. Only the chain and contig tables are read eagerly, the block arrays are read
+     * from the mapping on demand
+     *
+     * @param file index file created by compile
+     * @return chain index
+     * @throws IOException if the file cannot be mapped or is not an index file
+     */
+    public static UCSCChainIndex map(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Index file cannot be null");
+        }
+
+        long start = Metrics.start();
+        ByteBuffer buffer;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a chain index file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported chain index version " + version + ": " + file);
+            }
+
+            // Counts are checked against the bytes left so a corrupt count cannot allocate huge arrays
+            int nameCount = buffer.getInt();
+            if (nameCount < 0 || nameCount > buffer.remaining() / 4) {
+                throw corrupt(file, "invalid name count " + nameCount);
+            }
+            String[] names = new String[nameCount];
+            for (int i = 0; i < names.length; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw corrupt(file, "invalid name length " + length);
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int chains = buffer.getInt();
+            if (chains < 0 || chains > buffer.remaining() / 21) {
+                throw corrupt(file, "invalid chain count " + chains);
+            }
+            String[] chainToContigs = new String[chains];
+            int[] chainToSizes = new int[chains];
+            boolean[] chainNegative = new boolean[chains];
+            double[] chainScores = new double[chains];
+            int[] chainIds = new int[chains];
+            for (int chain = 0; chain < chains; chain++) {
+                chainToContigs[chain] = names[buffer.getInt()];
+                chainToSizes[chain] = buffer.getInt();
+                chainNegative[chain] = buffer.get() != 0;
+                chainScores[chain] = buffer.getDouble();
+                chainIds[chain] = buffer.getInt();
+            }
+
+            int contigCount = buffer.getInt();
+            if (contigCount < 0 || contigCount > buffer.remaining() / 16) {
+                throw corrupt(file, "invalid contig count " + contigCount);
+            }
+            String[] contigNames = new String[contigCount];
+            int[] sizes = new int[contigCount];
+            long[] offsets = new long[contigCount];
+            for (int i = 0; i < contigCount; i++) {
+                contigNames[i] = names[buffer.getInt()];
+                sizes[i] = buffer.getInt();
+                offsets[i] = buffer.getLong();
+            }
+            int dataStart = (buffer.position() + 3) & ~3;
+            ((Buffer) buffer).position(dataStart);
+            IntBuffer data = buffer.slice().asIntBuffer();
+
+            Map<String, UCSCChainIndex.ContigIndex> contigs = new HashMap<>();
+            for (int i = 0; i < contigCount; i++) {
+                long offset = offsets[i];
+                int size = sizes[i];
+                if (size < 0 || offset < 0 || offset + 5L * size > data.limit()) {
+                    throw corrupt(file, "blocks of contig " + contigNames[i] + " lie outside the file");
+                }
+                int from = (int) offset;
+                IntBuffer blockChains = view(data, from + 3 * size, size);
+                for (int block = 0; block < size; block++) {
+                    int chain = blockChains.get(block);
+                    if (chain < 0 || chain >= chains) {
+                        throw corrupt(file, "block of contig " + contigNames[i] + " refers to unknown chain " + chain);
+                    }
+                }
+                contigs.put(contigNames[i], new UCSCChainIndex.MappedContigIndex(
+                        view(data, from, size),
+                        view(data, from + size, size),
+                        view(data, from + 2 * size, size),
+                        blockChains,
+                        view(data, from + 4 * size, size)));
+            }
+            UCSCChainIndex index = new UCSCChainIndex(chainToContigs, chainToSizes, chainNegative, chainScores,
+                    chainIds, contigs);
+            Metrics.recordSince(Metrics.CHAIN_MAP, start);
+            return index;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupt chain index file: " + file);
+        }
+    }
+
+    private static void addName(String name, List<String> names, Map<String, Integer> nameIndexes) {
+        if (!nameIndexes.containsKey(name)) {
+            nameIndexes.put(name, names.size());
+            names.add(name);
+        }
+    }
+
+    private static IOException corrupt(File file, String reason) {
+        return new IOException("Truncated or corrupt chain index file: " + file + " (" + reason + ")");
+    }
+
+    private static IntBuffer view(IntBuffer data, int offset, int size) {
+        IntBuffer view = data.duplicate();
+        ((Buffer) view).limit(offset + size);
+        ((Buffer) view).position(offset);
+        return view.slice();
+    }
+
+    /**
+     * Compile a chain file into a binary index file
+     *
+     * @param args path of the chain file and path of the index file to create
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: UCSCChainIndexFile <input.over.chain> <output.idx>");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        write(UCSCChainIndex.load(new File(args[0])), new File(args[1]));
+        System.out.println("Compiled " + args[0] + " to " + args[1] + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
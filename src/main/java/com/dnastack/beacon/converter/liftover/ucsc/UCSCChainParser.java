@@ -0,0 +1,436 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.util.DaemonThreadFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>UCSCChainParser</p>
+ * <p>
+ * Parallel parser for chain files. The file is read in chunks of a few megabytes which are cut at chain header lines,
+ * so every chunk holds whole chains. Chunks are parsed from bytes on a pool of threads while the next chunks are
+ * read, and merged into the index builder in file order, so the resulting index does not depend on the chunk size or
+ * the number of threads. Gzip and BGZF compressed files are decompressed while reading.
+ *
+ * @author patrickmagee
+ */
+final class UCSCChainParser {
+
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private static final byte[] CHAIN = "chain".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private UCSCChainParser() {
+    }
+
+    /**
+     * Check whether a stream starts with the gzip magic number, without consuming it
+     *
+     * @param input stream supporting mark and reset
+     * @return true if the stream is gzip compressed
+     * @throws IOException
+     */
+    static boolean isGzipped(InputStream input) throws IOException {
+        input.mark(2);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+        return first == 0x1f && second == 0x8b;
+    }
+
+    /**
+     * Open a stream over the decompressed contents of a chain file
+     *
+     * @param input raw contents of a plain or gzip compressed chain file
+     * @return decompressed contents
+     * @throws IOException
+     */
+    static InputStream decompress(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        return isGzipped(buffered) ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    /**
+     * Parse the decompressed contents of a chain file
+     *
+     * @param input       decompressed chain file contents, not closed by this method
+     * @param source      name of the chain file used in error messages
+     * @param parallelism number of threads parsing chunks, 1 to parse on the calling thread
+     * @param chunkSize   approximate number of bytes per chunk
+     * @return chain index
+     * @throws IOException if the contents cannot be read or are not a valid chain file
+     */
+    static UCSCChainIndex parse(InputStream input, String source, int parallelism, int chunkSize) throws IOException {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be at least 1");
+        }
+        ExecutorService executor = parallelism == 1 ? null
+                : Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("chain-parser"));
+        try {
+            Merger merger = new Merger(source);
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            boolean eof = false;
+            while (!eof) {
+                int read = input.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    length += read;
+                    if (length < buffer.length) {
+                        continue;
+                    }
+                }
+
+                int cut = eof ? length : lastHeaderStart(buffer, length);
+                if (cut == 0 && !eof) {
+                    // A single chain is longer than the buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+
+                final byte[] data = Arrays.copyOf(buffer, cut);
+                final boolean last = eof;
+                System.arraycopy(buffer, cut, buffer, 0, length - cut);
+                length -= cut;
+                if (executor == null) {
+                    merger.merge(Chunk.parse(data, last));
+                } else {
+                    pending.add(executor.submit(new Callable<Chunk>() {
+                        @Override
+                        public Chunk call() {
+                            return Chunk.parse(data, last);
+                        }
+                    }));
+                    // Bound the chunks held in memory while parsing runs ahead of merging
+                    while (pending.size() > 2 * parallelism || (!pending.isEmpty() && pending.peek().isDone())) {
+                        merger.merge(get(pending.poll()));
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                merger.merge(get(pending.poll()));
+            }
+            return merger.finish();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static Chunk get(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Could not parse chain file: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing chain file");
+        }
+    }
+
+    /**
+     * Find the start of the last line starting with "chain"
+     *
+     * @param buffer bytes read so far
+     * @param length number of valid bytes
+     * @return offset of the last header line, or 0 if there is none after the first line
+     */
+    private static int lastHeaderStart(byte[] buffer, int length) {
+        for (int i = length - CHAIN.length; i > 0; i--) {
+            if (buffer[i - 1] == '\n' && buffer[i] == 'c' && startsWith(buffer, i, length, CHAIN)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean startsWith(byte[] data, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends parsed chunks to the index builder in file order, renumbering their chains
+     */
+    private static final class Merger {
+        private final String source;
+        private final UCSCChainIndex.Builder builder = new UCSCChainIndex.Builder();
+        private int lines;
+        private boolean ended;
+
+        private Merger(String source) {
+            this.source = source;
+        }
+
+        private void merge(Chunk chunk) throws IOException {
+            if (chunk.error != null) {
+                throw invalid(lines + chunk.errorLine, chunk.error);
+            }
+            int offset = -1;
+            for (int chain = 0; chain < chunk.chainCount; chain++) {
+                int index = builder.addChain(chunk.fromContigs[chain], chunk.toContigs[chain], chunk.toSizes[chain],
+                        chunk.negative[chain], chunk.scores[chain], chunk.ids[chain]);
+                if (offset < 0) {
+                    offset = index;
+                }
+            }
+            for (int block = 0; block < chunk.blockCount; block++) {
+                builder.addBlock(offset + chunk.blockChains[block], chunk.blockFromStarts[block],
+                        chunk.blockToStarts[block], chunk.blockSizes[block]);
+            }
+            lines += chunk.lines;
+            ended = chunk.last;
+        }
+
+        private UCSCChainIndex finish() throws IOException {
+            if (!ended) {
+                throw invalid(lines, "reached end of file without seeing the terminal block of a chain");
+            }
+            return builder.build();
+        }
+
+        private IOException invalid(int lineNumber, String message) {
+            return new IOException("Invalid chain file " + source + " at line " + lineNumber + ": " + message);
+        }
+    }
+
+    /**
+     * Chains and blocks parsed from one chunk. Chains are numbered from 0 within the chunk, and errors are reported
+     * with line numbers relative to the chunk
+     */
+    private static final class Chunk {
+        private boolean last;
+        private int lines;
+        private String error;
+        private int errorLine;
+
+        private int chainCount;
+        private String[] fromContigs = new String[64];
+        private String[] toContigs = new String[64];
+        private int[] toSizes = new int[64];
+        private boolean[] negative = new boolean[64];
+        private double[] scores = new double[64];
+        private int[] ids = new int[64];
+
+        private int blockCount;
+        private int[] blockChains = new int[4096];
+        private int[] blockFromStarts = new int[4096];
+        private int[] blockToStarts = new int[4096];
+        private int[] blockSizes = new int[4096];
+
+        private final int[] values = new int[3];
+
+        private static Chunk parse(byte[] data, boolean last) {
+            Chunk chunk = new Chunk();
+            chunk.last = last;
+            int chain = -1;
+            int fromStart = 0;
+            int toStart = 0;
+            int position = 0;
+            while (position < data.length) {
+                int end = position;
+                while (end < data.length && data[end] != '\n') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end > position && data[end - 1] == '\r') {
+                    end--;
+                }
+                chunk.lines++;
+
+                if (chain < 0) {
+                    if (end == position || data[position] == '#') {
+                        position = next;
+                        continue;
+                    }
+                    String[] fields = new String(data, position, end - position, StandardCharsets.US_ASCII)
+                            .split("\\s+");
+                    if (fields.length < 12 || fields.length > 13 || !"chain".equals(fields[0])) {
+                        return chunk.fail("invalid chain header");
+                    }
+                    try {
+                        double score = Double.parseDouble(fields[1]);
+                        int toSize = Integer.parseInt(fields[8]);
+                        int id = fields.length == 13 ? Integer.parseInt(fields[12]) : 0;
+                        fromStart = Integer.parseInt(fields[5]);
+                        toStart = Integer.parseInt(fields[10]);
+                        chain = chunk.addChain(fields[2], fields[7], toSize, "-".equals(fields[9]), score, id);
+                    } catch (NumberFormatException e) {
+                        return chunk.fail("invalid number in chain header");
+                    }
+                } else {
+                    int count = chunk.parseBlock(data, position, end);
+                    if (count == 1) {
+                        chunk.addBlock(chain, fromStart, toStart, chunk.values[0]);
+                        chain = -1;
+                    } else if (count == 2) {
+                        return chunk.fail("block line has unexpected number of fields");
+                    } else if (count == 3) {
+                        int size = chunk.values[0];
+                        chunk.addBlock(chain, fromStart, toStart, size);
+                        fromStart += size + chunk.values[1];
+                        toStart += size + chunk.values[2];
+                    } else {
+                        return chunk.fail("invalid number in block line");
+                    }
+                }
+                position = next;
+            }
+            if (chain >= 0 && !last) {
+                // The next chunk starts with a chain header, which reads as an invalid block line within a chain
+                chunk.lines++;
+                return chunk.fail("invalid number in block line");
+            }
+            chunk.last = last && chain < 0;
+            return chunk;
+        }
+
+        /**
+         * Parse a block line into values, splitting it at the first two tabs or spaces, with the size taken as is and
+         * the gaps trimmed
+         *
+         * @return number of fields, or -1 if a field is not a valid number
+         */
+        private int parseBlock(byte[] data, int from, int to) {
+            int first = nextSeparator(data, from, to);
+            if (first < 0) {
+                return parseInt(data, from, to, true, 0) ? 1 : -1;
+            }
+            int second = nextSeparator(data, first + 1, to);
+            if (second < 0) {
+                return 2;
+            }
+            return parseInt(data, from, first, false, 0)
+                    && parseInt(data, first + 1, second, true, 1)
+                    && parseInt(data, second + 1, to, true, 2) ? 3 : -1;
+        }
+
+        private static int nextSeparator(byte[] data, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (data[i] == '\t' || data[i] == ' ') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Parse a decimal int with the rules of Integer.parseInt, optionally trimming the field like String.trim
+         *
+         * @return true if the field is a valid int, stored in values
+         */
+        private boolean parseInt(byte[] data, int from, int to, boolean trim, int value) {
+            if (trim) {
+                while (from < to && (data[from] & 0xff) <= ' ') {
+                    from++;
+                }
+                while (to > from && (data[to - 1] & 0xff) <= ' ') {
+                    to--;
+                }
+            }
+            boolean negate = false;
+            if (from < to && (data[from] == '-' || data[from] == '+')) {
+                negate = data[from] == '-';
+                from++;
+            }
+            if (from == to) {
+                return false;
+            }
+            long result = 0;
+            for (int i = from; i < to; i++) {
+                if (data[i] < '0' || data[i] > '9') {
+                    return false;
+                }
+                result = result * 10 + (data[i] - '0');
+                if (result > Integer.MAX_VALUE + 1L) {
+                    return false;
+                }
+            }
+            result = negate ? -result : result;
+            if (result > Integer.MAX_VALUE) {
+                return false;
+            }
+            values[value] = (int) result;
+            return true;
+        }
+
+        private Chunk fail(String message) {
+            error = message;
+            errorLine = lines;
+            return this;
+        }
+
+        private int addChain(String fromContig, String toContig, int toSize, boolean negativeStrand, double score,
+                             int id) {
+            if (chainCount == ids.length) {
+                int capacity = chainCount * 2;
+                fromContigs = Arrays.copyOf(fromContigs, capacity);
+                toContigs = Arrays.copyOf(toContigs, capacity);
+                toSizes = Arrays.copyOf(toSizes, capacity);
+                negative = Arrays.copyOf(negative, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            fromContigs[chainCount] = fromContig;
+            toContigs[chainCount] = toContig;
+            toSizes[chainCount] = toSize;
+            negative[chainCount] = negativeStrand;
+            scores[chainCount] = score;
+            ids[chainCount] = id;
+            return chainCount++;
+        }
+
+        private void addBlock(int chain, int fromStart, int toStart, int size) {
+            if (blockCount == blockSizes.length) {
+                int capacity = blockCount * 2;
+                blockChains = Arrays.copyOf(blockChains, capacity);
+                blockFromStarts = Arrays.copyOf(blockFromStarts, capacity);
+                blockToStarts = Arrays.copyOf(blockToStarts, capacity);
+                blockSizes = Arrays.copyOf(blockSizes, capacity);
+            }
+            blockChains[blockCount] = chain;
+            blockFromStarts[blockCount] = fromStart;
+            blockToStarts[blockCount] = toStart;
+            blockSizes[blockCount] = size;
+            blockCount++;
+        }
+    }
+}
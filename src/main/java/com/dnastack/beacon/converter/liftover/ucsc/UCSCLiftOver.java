@@ -16,25 +16,47 @@
 package com.dnastack.beacon.converter.liftover.ucsc;
 
 import com.dnastack.beacon.converter.liftover.api.ChainFile;
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.api.LiftOverSegment;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
 import com.dnastack.beacon.converter.util.GenomeBuild;
 import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
-import htsjdk.samtools.liftover.LiftOver;
+import com.dnastack.beacon.converter.metrics.Metrics;
 import htsjdk.samtools.util.Interval;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * <p>UCSCLiftOver</p>
  * <p>
- * UCSCLiftOver is a conveience wrapper around htsjdk liftOver. The implementation is the same, however
- * it provides easy methods for the user to implement the liftOver tool.
+ * UCSCLiftOver provides easy methods for the user to implement the liftOver tool. Chain files are loaded into a
+ * UCSCChainIndex, which gives the same results as htsjdk liftOver with primitive arrays instead of chain objects.
+ * <p>
+ * Instances are immutable and safe for concurrent use by any number of threads: the chain index is never modified
+ * after loading and every lookup keeps its working state local to the call. Use LiftOvers to share instances.
  *
  * @author patrickmagee
  */
 public class UCSCLiftOver implements com.dnastack.beacon.converter.liftover.api.LiftOver {
 
-    private final ChainFile chainFile;
-    private final LiftOver liftOverContainer;
+    public static final double DEFAULT_MIN_MATCH = htsjdk.samtools.liftover.LiftOver.DEFAULT_LIFTOVER_MINMATCH;
+
+    private static final String[] STATUS_METRICS = new String[LiftOverStatus.values().length];
+
+    static {
+        for (LiftOverStatus status : LiftOverStatus.values()) {
+            STATUS_METRICS[status.ordinal()] = Metrics.LIFTOVER_STATUS + status.name();
+        }
+    }
+
+    private final String buildFrom;
+    private final String buildTo;
+    private final UCSCChainIndex index;
 
     /**
      * Constructor for creating the UCSCLiftOver Object. Uses chain files in resources
@@ -47,21 +69,68 @@ public class UCSCLiftOver implements com.dnastack.beacon.converter.liftover.api.
         if (from == null || to == null) {
             throw new IllegalArgumentException("Genomne Builds cannot be null");
         }
-        chainFile = new UCSChainFile(from, to);
-        liftOverContainer = new LiftOver(chainFile);
+        ChainFile chainFile = new UCSChainFile(from, to);
+        buildFrom = chainFile.getBuildFrom();
+        buildTo = chainFile.getBuildTo();
+        index = UCSCChainIndex.load(chainFile);
     }
 
     /**
      * Constructor for creating the UCSCLiftOver Object. Uses a custom defined ChainFIle
      *
      * @param chainFile Chainfile to use for liftover
+     * @throws UncheckedIOException if the chain file cannot be read or is not a valid chain file
      */
     public UCSCLiftOver(ChainFile chainFile) {
         if (chainFile == null) {
             throw new IllegalArgumentException("Chainfile cannot be null");
         }
-        this.chainFile = chainFile;
-        liftOverContainer = new LiftOver(chainFile);
+        buildFrom = chainFile.getBuildFrom();
+        buildTo = chainFile.getBuildTo();
+        try {
+            index = UCSCChainIndex.load(chainFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Constructor for creating the UCSCLiftOver Object from an already loaded chain index
+     *
+     * @param index     Chain index to use for liftover
+     * @param buildFrom Starting genome build name
+     * @param buildTo   Target genome build name
+     */
+    public UCSCLiftOver(UCSCChainIndex index, String buildFrom, String buildTo) {
+        if (index == null || buildFrom == null || buildTo == null) {
+            throw new IllegalArgumentException("Index and build versions cannot be null");
+        }
+        this.buildFrom = buildFrom;
+        this.buildTo = buildTo;
+        this.index = index;
+    }
+
+    /**
+     * Create a UCSCLiftOver from a binary index file compiled with UCSCChainIndexFile. The index file is memory
+     * mapped instead of parsed, so this is much faster than loading the text chain file
+     *
+     * @param indexFile binary chain index file
+     * @param buildFrom Starting genome build name
+     * @param buildTo   Target genome build name
+     * @return UCSCLiftOver
+     * @throws IOException
+     */
+    public static UCSCLiftOver fromIndexFile(File indexFile, String buildFrom, String buildTo) throws IOException {
+        return new UCSCLiftOver(UCSCChainIndexFile.map(indexFile), buildFrom, buildTo);
+    }
+
+    /**
+     * Get the chain index used by this liftover
+     *
+     * @return chain index
+     */
+    public UCSCChainIndex getIndex() {
+        return index;
     }
 
     /**
@@ -72,7 +141,7 @@ public class UCSCLiftOver implements com.dnastack.beacon.converter.liftover.api.
         if (contig == null) {
             throw new IllegalArgumentException("Contig cannot be null");
         }
-        if (start < 0 || end < 0 || start <= end) {
+        if (start < 1 || start > end) {
             throw new IllegalArgumentException("Invalid start and end values");
         }
 
@@ -88,7 +157,7 @@ public class UCSCLiftOver implements com.dnastack.beacon.converter.liftover.api.
         if (contig == null) {
             throw new IllegalArgumentException("Contig cannot be null");
         }
-        if (start < 0 || end < 0 || start <= end) {
+        if (start < 1 || start > end) {
             throw new IllegalArgumentException("Invalid start and end values");
         }
 
@@ -96,42 +165,198 @@ public class UCSCLiftOver implements com.dnastack.beacon.converter.liftover.api.
         return liftOver(interval, minMatch);
     }
 
+    /**
+     * LiftOver a single coordinate without allocating. The result is written to a caller supplied holder which can be
+     * reused for every query, and failures are reported through the returned status instead of a LiftOverException
+     *
+     * @param contig chromosome or contig reference. ie "chr1"
+     * @param start  1-based start position
+     * @param end    1-based, inclusive end position
+     * @param target holder receiving the lifted over coordinates
+     * @return status of the liftover
+     */
+    public LiftOverStatus liftOver(String contig, int start, int end, LiftOverTarget target) {
+        return index.liftOver(contig, start, end, DEFAULT_MIN_MATCH, target);
+    }
+
+    /**
+     * LiftOver a single coordinate without allocating. The result is written to a caller supplied holder which can be
+     * reused for every query, and failures are reported through the returned status instead of a LiftOverException
+     *
+     * @param contig   chromosome or contig reference. ie "chr1"
+     * @param start    1-based start position
+     * @param end      1-based, inclusive end position
+     * @param minMatch minimum fraction of bases that must be covered by the chain
+     * @param target   holder receiving the lifted over coordinates
+     * @return status of the liftover
+     */
+    public LiftOverStatus liftOver(String contig, int start, int end, double minMatch, LiftOverTarget target) {
+        if (minMatch < 0 || minMatch > 1.0) {
+            throw new IllegalArgumentException("Illegal min match value. must be between 0 and 1");
+        }
+        return index.liftOver(contig, start, end, minMatch, target);
+    }
+
+    /**
+     * LiftOver a single position, ie of a SNV. The position is resolved with one binary search over the chain blocks
+     * instead of the interval overlap and minMatch logic, nothing is allocated and failures are reported through the
+     * returned status. The lifted over position is the start and end of the holder
+     *
+     * @param contig   chromosome or contig reference. ie "chr1"
+     * @param position 1-based position
+     * @param target   holder receiving the lifted over position
+     * @return status of the liftover
+     */
+    public LiftOverStatus liftPosition(String contig, int position, LiftOverTarget target) {
+        return index.liftPosition(contig, position, target);
+    }
+
     /**
      * {@inheritDocs}
      */
     @Override
     public Interval liftOver(Interval interval) throws LiftOverException {
+        return liftOver(interval, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public Interval liftOver(Interval interval, double minMatch) throws LiftOverException {
+        LiftOverResult result = tryLiftOver(interval, minMatch);
+        if (!result.isMapped()) {
+            throw new LiftOverException("Could not perform " + buildFrom + " to " + buildTo + " liftover for: " + interval
+                    .getContig() + " start: " + interval.getStart() + " end" + interval.getEnd() + " (" + result
+                    .getStatus() + ")");
+
+        }
+        return result.getTarget();
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public LiftOverResult tryLiftOver(Interval interval) {
+        return tryLiftOver(interval, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public LiftOverResult tryLiftOver(Interval interval, double minMatch) {
         if (interval == null) {
             throw new IllegalArgumentException("Interval cannot be null");
         }
-        Interval result = liftOverContainer.liftOver(interval);
-        if (result == null) {
-            throw new LiftOverException("Could not perform " + chainFile.getBuildFrom() + " to " + chainFile.getBuildTo() + " liftover for: " + interval
-                    .getContig() + " start: " + interval.getStart() + " end" + interval.getEnd());
-
+        if (minMatch < 0 || minMatch > 1.0) {
+            throw new IllegalArgumentException("Illegal min match value. must be between 0 and 1");
+        }
+        long start = Metrics.start();
+        LiftOverResult result = index.liftOverResult(interval, minMatch);
+        if (start != 0) {
+            Metrics.recordSince(Metrics.LIFTOVER_LOOKUP, start);
+            Metrics.increment(STATUS_METRICS[result.getStatus().ordinal()], 1);
         }
         return result;
     }
 
     /**
-     * {@inheritDocs}
+     * LiftOver a region block by block. Unlike liftOver, which fails when a region spans a chain gap or is split
+     * across chains, every part of the region covered by a chain is lifted over and returned as its own segment, with
+     * the source sub-range it came from and the fraction of the region it covers
+     *
+     * @param interval region to start with
+     * @return lifted over segments ordered by source start, empty if no part of the region can be lifted over
      */
-    @Override
-    public Interval liftOver(Interval interval, double minMatch) throws LiftOverException {
+    public List<LiftOverSegment> liftOverSegments(Interval interval) {
         if (interval == null) {
             throw new IllegalArgumentException("Interval cannot be null");
         }
+        long start = Metrics.start();
+        List<LiftOverSegment> segments = index.liftOverSegments(interval);
+        Metrics.recordSince(Metrics.LIFTOVER_SEGMENTS, start);
+        return segments;
+    }
+
+    /**
+     * {@inheritDocs}
+     */
+    @Override
+    public List<LiftOverResult> liftOverAll(List<Interval> intervals) {
+        return liftOverAll(intervals, DEFAULT_MIN_MATCH);
+    }
+
+    /**
+     * {@inheritDocs}
+     * <p>
+     * Intervals are visited in contig and start order, so each contig of the chain index is swept once, and
+     * unmapped intervals are recorded without building an exception.
+     */
+    @Override
+    public List<LiftOverResult> liftOverAll(List<Interval> intervals, double minMatch) {
+        if (intervals == null) {
+            throw new IllegalArgumentException("Intervals cannot be null");
+        }
         if (minMatch < 0 || minMatch > 1.0) {
             throw new IllegalArgumentException("Illegal min match value. must be between 0 and 1");
         }
 
-        Interval result = liftOverContainer.liftOver(interval, minMatch);
-        if (result == null) {
-            throw new LiftOverException("Could not perform " + chainFile.getBuildFrom() + " to " + chainFile.getBuildTo() + " liftover for: " + interval
-                    .getContig() + " start: " + interval.getStart() + " end" + interval.getEnd());
+        long start = Metrics.start();
+        LiftOverResult[] results = new LiftOverResult[intervals.size()];
+        index.liftOverSorted(intervals, sortedOrder(intervals), minMatch, results);
+        if (start != 0) {
+            Metrics.recordSince(Metrics.LIFTOVER_BATCH, start);
+            recordStatuses(results);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Count the results of a batch by status
+     *
+     * @param results liftover results
+     */
+    static void recordStatuses(LiftOverResult[] results) {
+        long[] counts = new long[STATUS_METRICS.length];
+        for (LiftOverResult result : results) {
+            counts[result.getStatus().ordinal()]++;
+        }
+        for (int status = 0; status < counts.length; status++) {
+            if (counts[status] > 0) {
+                Metrics.increment(STATUS_METRICS[status], counts[status]);
+            }
+        }
+    }
 
+    /**
+     * Compute the order in which to visit a batch of intervals, sorted by contig and then by start position
+     *
+     * @param intervals intervals to sort
+     * @return indexes into the interval list
+     */
+    static Integer[] sortedOrder(final List<Interval> intervals) {
+        Integer[] order = new Integer[intervals.size()];
+        for (int i = 0; i < order.length; i++) {
+            if (intervals.get(i) == null) {
+                throw new IllegalArgumentException("Interval cannot be null");
+            }
+            order[i] = i;
         }
-        return result;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer left, Integer right) {
+                Interval a = intervals.get(left);
+                Interval b = intervals.get(right);
+                int result = a.getContig().compareTo(b.getContig());
+                if (result == 0) {
+                    result = Integer.compare(a.getStart(), b.getStart());
+                }
+                return result;
+            }
+        });
+        return order;
     }
 
 }
@@ -19,11 +19,14 @@ import com.dnastack.beacon.converter.liftover.api.ChainFile;
 import com.dnastack.beacon.converter.util.GenomeBuild;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
-import java.util.zip.GZIPInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Class for wrapping the chain files used in the liftOver process. Extends java.io.file
@@ -34,7 +37,6 @@ import java.util.zip.GZIPInputStream;
 public class UCSChainFile extends ChainFile {
 
     private static final String FILE_PATH_TEMPLATE = "chains/%s/hg%dToHg%d.over.chain";
-    private static final String UCSC_REMOTE_TEMPLATE = "http://hgdownload.cse.ucsc.edu/goldenPath/%s/liftOver/%s";
 
     /**
      * Constructor for The Chainfile.
@@ -118,41 +120,62 @@ public class UCSChainFile extends ChainFile {
     }
 
     /**
-     * This method takes a url pointing to a chainfile hosted on a remote server, and attempts to download the file.
-     * The file is saved as a temp file.
-     * Note:
-     * There is no cleanup after this method, and the temp file is not deleted once all references to it are gone
+     * Check whether the resource bundle contains a chain file for a pair of GenomeBuilds
      *
-     * @param url       Url to a chainFile
-     * @param buildFrom Starting GenomeBuild
-     * @param buildTo   Target GenomeBuild
-     * @return ChainFile
-     * @throws IOException
+     * @param from Starting GenomeBuild
+     * @param to   Target GenomeBuild
+     * @return true if a chain file is bundled
      */
-    private static ChainFile fromUrl(URL url, String buildFrom, String buildTo) throws IOException {
-        if (url == null) {
-            throw new IllegalArgumentException("url cannot be null");
+    public static boolean isBundled(GenomeBuild from, GenomeBuild to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("GenomeBuilds cannot be null");
         }
+        String resourcePath = String.format(FILE_PATH_TEMPLATE, from.getBuildName(), from.getBuild(), to.getBuild());
+        return ChainFile.class.getClassLoader().getResource(resourcePath) != null;
+    }
 
-        InputStream stream;
-        InputStream inStream = url.openStream();
-        if (url.getPath().endsWith(".gz")) {
-            GZIPInputStream gzipInputStream = new GZIPInputStream(inStream);
-            stream = gzipInputStream;
-        } else {
-            stream = inStream;
+    /**
+     * Find the shortest sequence of bundled chain files leading from one GenomeBuild to another, ie hg17, hg19, hg38.
+     * When several paths are equally short, the one through the newest intermediate builds is used
+     *
+     * @param from Starting GenomeBuild
+     * @param to   Target GenomeBuild
+     * @return builds along the path, starting with from and ending with to
+     * @throws IOException if there is no path between the builds
+     */
+    public static List<GenomeBuild> findPath(GenomeBuild from, GenomeBuild to) throws IOException {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("GenomeBuilds cannot be null");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("Starting and target GenomeBuilds must differ");
         }
 
-        File temp = File.createTempFile("chain", "temp");
-        FileOutputStream fileOutputStream = new FileOutputStream(temp);
-        byte[] bytes = new byte[1024];
-        int read = 0;
+        GenomeBuild[] builds = GenomeBuild.values();
+        Map<GenomeBuild, GenomeBuild> previous = new EnumMap<>(GenomeBuild.class);
+        Deque<GenomeBuild> queue = new ArrayDeque<>();
+        previous.put(from, from);
+        queue.add(from);
+        while (!queue.isEmpty() && !previous.containsKey(to)) {
+            GenomeBuild current = queue.poll();
+            for (int i = builds.length - 1; i >= 0; i--) {
+                GenomeBuild next = builds[i];
+                if (!previous.containsKey(next) && isBundled(current, next)) {
+                    previous.put(next, current);
+                    queue.add(next);
+                }
+            }
+        }
+        if (!previous.containsKey(to)) {
+            throw new IOException("No chain files lead from " + from.getBuildName() + " to " + to.getBuildName());
+        }
 
-        while ((read = stream.read(bytes)) != -1) {
-            fileOutputStream.write(bytes, 0, read);
+        LinkedList<GenomeBuild> path = new LinkedList<>();
+        for (GenomeBuild build = to; build != from; build = previous.get(build)) {
+            path.addFirst(build);
         }
-        fileOutputStream.close();
-        return fromFile(temp, buildFrom, buildTo);
+        path.addFirst(from);
+        return path;
     }
 
     /**
@@ -178,6 +201,9 @@ public class UCSChainFile extends ChainFile {
      * Usage of this methods simply requires the user to defined the build that they are starting with, the build
      * they are going to and the file name that they would like to retrieve.
      * <p>
+     * Files are downloaded into the default ChainFileStore, so each file is only downloaded once and reused by later
+     * calls and runs.
+     * <p>
      * For a full list of all buiilds and downloads:
      *
      * @param buildFrom Starting GenomeBuild
@@ -192,9 +218,7 @@ public class UCSChainFile extends ChainFile {
             throw new IllegalArgumentException("Arguments cannot be null");
         }
 
-        URL url = new URL(String.format(UCSC_REMOTE_TEMPLATE, buildFrom, fileName));
-
-        return fromUrl(url, buildFrom, buildTo);
+        return ChainFileStore.getDefault().fromUCSC(buildFrom, buildTo, fileName);
     }
 
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetricsRecorder reporting to a Dropwizard MetricRegistry. Latencies are recorded in timers, counters in counters
+ * and gauges in gauges, all under the metric names prefixed with the given prefix. Dropwizard metrics is an optional
+ * dependency, and has to be added to projects using this adapter.
+ *
+ * @author patrickmagee
+ */
+public class DropwizardMetricsRecorder implements MetricsRecorder {
+
+    private final MetricRegistry registry;
+    private final String prefix;
+
+    /**
+     * Constructor
+     *
+     * @param registry registry to report to
+     * @param prefix   prefix of the metric names, ie "converter", or null for none
+     */
+    public DropwizardMetricsRecorder(MetricRegistry registry, String prefix) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null");
+        }
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void recordTime(String name, long nanos) {
+        registry.timer(MetricRegistry.name(prefix, name)).update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void increment(String name, long count) {
+        registry.counter(MetricRegistry.name(prefix, name)).inc(count);
+    }
+
+    @Override
+    public void registerGauge(String name, final Gauge gauge) {
+        String fullName = MetricRegistry.name(prefix, name);
+        registry.remove(fullName);
+        registry.register(fullName, new com.codahale.metrics.Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return gauge.getValue();
+            }
+        });
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+/**
+ * Value sampled by the metrics library whenever it reports, ie the memory used by loaded chain files
+ *
+ * @author patrickmagee
+ */
+public interface Gauge {
+
+    /**
+     * Get the current value
+     *
+     * @return current value
+     */
+    long getValue();
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Metrics</p>
+ * <p>
+ * Holder of the MetricsRecorder the liftover and HGVS code report to, and the names of the metrics they report. No
+ * time is measured while the NoopMetricsRecorder is installed, so instrumentation costs a volatile read when it is
+ * disabled.
+ * <p>
+ * Gauges are remembered here and registered again with every recorder installed later, so a recorder installed after
+ * the converters were initialised still receives them.
+ *
+ * @author patrickmagee
+ */
+public final class Metrics {
+
+    /**
+     * Time to parse a text chain file into a chain index
+     */
+    public static final String CHAIN_LOAD = "liftover.chain.load";
+
+    /**
+     * Time to memory map a compiled chain index file
+     */
+    public static final String CHAIN_MAP = "liftover.chain.map";
+
+    /**
+     * Time to download or copy a chain file into the chain file store
+     */
+    public static final String CHAIN_FETCH = "liftover.chain.fetch";
+
+    /**
+     * Number of chain files served from the chain file store without fetching them
+     */
+    public static final String CHAIN_STORE_HITS = "liftover.chain.storeHits";
+
+    /**
+     * Time of a single interval liftover
+     */
+    public static final String LIFTOVER_LOOKUP = "liftover.lookup";
+
+    /**
+     * Time of a batch liftover
+     */
+    public static final String LIFTOVER_BATCH = "liftover.batch";
+
+    /**
+     * Time to lift over a region into segments
+     */
+    public static final String LIFTOVER_SEGMENTS = "liftover.segments";
+
+    /**
+     * Prefix of the counters of liftover results by status, ie liftover.status.UNKNOWN_CONTIG
+     */
+    public static final String LIFTOVER_STATUS = "liftover.status.";
+
+    /**
+     * Estimated size of the chain indexes loaded by the shared LiftOvers registry
+     */
+    public static final String REGISTRY_LOADED_BYTES = "liftover.registry.loadedBytes";
+
+    /**
+     * Number of liftovers loaded by the shared LiftOvers registry
+     */
+    public static final String REGISTRY_SIZE = "liftover.registry.size";
+
+    /**
+     * Time to start a task process
+     */
+    public static final String TASK_SPAWN = "task.spawn";
+
+    /**
+     * Time from starting a task process until it exited and its output was read
+     */
+    public static final String TASK_RUN = "task.run";
+
+    /**
+     * Number of task processes which failed or were cancelled
+     */
+    public static final String TASK_FAILURES = "task.failures";
+
+    /**
+     * Time to read and parse the output of the HGVS converter, which includes waiting for output when streaming
+     */
+    public static final String HGVS_PARSE = "hgvs.parse";
+
+    /**
+     * Number of identifiers converted in Java
+     */
+    public static final String HGVS_IN_PROCESS = "hgvs.inProcess";
+
+    /**
+     * Number of identifiers handed to python
+     */
+    public static final String HGVS_PYTHON = "hgvs.python";
+
+    /**
+     * Number of conversions reported as invalid by python
+     */
+    public static final String HGVS_INVALID = "hgvs.invalid";
+
+    private static final Map<String, Gauge> GAUGES = new ConcurrentHashMap<>();
+
+    private static volatile MetricsRecorder recorder = NoopMetricsRecorder.INSTANCE;
+
+    private Metrics() {
+    }
+
+    /**
+     * Install the recorder to report to
+     *
+     * @param metricsRecorder recorder, or null to stop recording
+     */
+    public static synchronized void setRecorder(MetricsRecorder metricsRecorder) {
+        MetricsRecorder installed = metricsRecorder == null ? NoopMetricsRecorder.INSTANCE : metricsRecorder;
+        for (Map.Entry<String, Gauge> gauge : GAUGES.entrySet()) {
+            installed.registerGauge(gauge.getKey(), gauge.getValue());
+        }
+        recorder = installed;
+    }
+
+    /**
+     * Get the installed recorder
+     *
+     * @return recorder
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Whether a recorder other than the NoopMetricsRecorder is installed
+     *
+     * @return true if measurements are recorded
+     */
+    public static boolean isEnabled() {
+        return recorder != NoopMetricsRecorder.INSTANCE;
+    }
+
+    /**
+     * Start timing an operation
+     *
+     * @return start time to pass to recordSince, or 0 if no recorder is installed
+     */
+    public static long start() {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time since start was called
+     *
+     * @param name  metric name
+     * @param start value returned by start
+     */
+    public static void recordSince(String name, long start) {
+        if (start != 0) {
+            recorder.recordTime(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Increment a counter
+     *
+     * @param name  metric name
+     * @param count amount to add
+     */
+    public static void increment(String name, long count) {
+        recorder.increment(name, count);
+    }
+
+    /**
+     * Register a gauge with the installed recorder and every recorder installed later
+     *
+     * @param name  metric name
+     * @param gauge gauge to sample
+     */
+    public static synchronized void registerGauge(String name, Gauge gauge) {
+        if (name == null || gauge == null) {
+            throw new IllegalArgumentException("Name and gauge cannot be null");
+        }
+        GAUGES.put(name, gauge);
+        recorder.registerGauge(name, gauge);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+/**
+ * Instrumentation surface the converters report to. Implementations forward the measurements to a metrics library,
+ * and must be thread safe and cheap, since they are called on every lookup and conversion.
+ *
+ * @author patrickmagee
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Record a latency in a histogram
+     *
+     * @param name  metric name, one of the names defined in Metrics
+     * @param nanos duration in nanoseconds
+     */
+    void recordTime(String name, long nanos);
+
+    /**
+     * Increment a counter
+     *
+     * @param name  metric name, one of the names defined in Metrics
+     * @param count amount to add
+     */
+    void increment(String name, long count);
+
+    /**
+     * Register a gauge
+     *
+     * @param name  metric name, one of the names defined in Metrics
+     * @param gauge gauge to sample
+     */
+    void registerGauge(String name, Gauge gauge);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+/**
+ * MetricsRecorder which discards every measurement. This is the default, so the converters do not measure anything
+ * until a recorder is installed with Metrics.setRecorder
+ *
+ * @author patrickmagee
+ */
+public final class NoopMetricsRecorder implements MetricsRecorder {
+
+    public static final NoopMetricsRecorder INSTANCE = new NoopMetricsRecorder();
+
+    private NoopMetricsRecorder() {
+    }
+
+    @Override
+    public void recordTime(String name, long nanos) {
+    }
+
+    @Override
+    public void increment(String name, long count) {
+    }
+
+    @Override
+    public void registerGauge(String name, Gauge gauge) {
+    }
+}
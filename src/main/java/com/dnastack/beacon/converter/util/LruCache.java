@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe, bounded cache evicting the least recently used entries. The capacity is a total weight, which is the
+ * number of entries unless a Weigher is given, ie to bound the cache in bytes.
+ * <p>
+ * Entries are spread over independently locked segments so that concurrent readers rarely wait for each other.
+ * Recency is tracked per segment, so eviction is least recently used within a segment.
+ *
+ * @author patmagee
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final long MIN_SEGMENT_WEIGHT = 256;
+
+    private final Segment<K, V>[] segments;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maxWeight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for a cache bounded by its number of entries
+     *
+     * @param maxEntries maximum number of entries
+     */
+    public LruCache(long maxEntries) {
+        this(maxEntries, new Weigher<K, V>() {
+            @Override
+            public long weigh(K key, V value) {
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Constructor for a cache bounded by the total weight of its entries
+     *
+     * @param maxWeight maximum total weight
+     * @param weigher   computes the weight of an entry
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(long maxWeight, Weigher<? super K, ? super V> weigher) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+        int count = 1;
+        while (count < MAX_SEGMENTS && maxWeight / (count * 2) >= MIN_SEGMENT_WEIGHT) {
+            count *= 2;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(maxWeight / count + (i < maxWeight % count ? 1 : 0));
+        }
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Get a cached value, marking it as recently used
+     *
+     * @param key key to look up
+     * @return cached value, or null if the key is not cached
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segment(key);
+        V value;
+        synchronized (segment) {
+            value = segment.map.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Cache a value, evicting least recently used entries if the cache is full. Values heavier than the capacity of a
+     * segment are not cached
+     *
+     * @param key   key to cache the value under
+     * @param value value to cache
+     */
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key and value cannot be null");
+        }
+        long weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            if (weight > segment.maxWeight) {
+                V previous = segment.map.remove(key);
+                if (previous != null) {
+                    segment.weight -= weigher.weigh(key, previous);
+                }
+                return;
+            }
+            V previous = segment.map.put(key, value);
+            if (previous != null) {
+                segment.weight -= weigher.weigh(key, previous);
+            }
+            segment.weight += weight;
+
+            Iterator<Map.Entry<K, V>> eldest = segment.map.entrySet().iterator();
+            while (segment.weight > segment.maxWeight && eldest.hasNext()) {
+                Map.Entry<K, V> entry = eldest.next();
+                segment.weight -= weigher.weigh(entry.getKey(), entry.getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Remove all entries. Statistics are kept
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached entries
+     *
+     * @return number of entries
+     */
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the total weight of the cached entries
+     *
+     * @return weight
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Get the maximum total weight of the cache
+     *
+     * @return capacity
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Get the number of lookups that found a cached value
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that did not find a cached value
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of entries evicted to make room for new ones
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the fraction of lookups that found a cached value
+     *
+     * @return hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private Segment<K, V> segment(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * Computes the weight of a cache entry
+     */
+    public interface Weigher<K, V> {
+
+        /**
+         * Compute the weight of an entry
+         *
+         * @param key   key of the entry
+         * @param value value of the entry
+         * @return weight, at least 0
+         */
+        long weigh(K key, V value);
+    }
+
+    private static final class Segment<K, V> {
+        private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxWeight;
+        private long weight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+}
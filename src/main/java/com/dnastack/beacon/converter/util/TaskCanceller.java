@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.util;
+
+/**
+ * Handle for cancelling a task run by TaskRunner from another thread. Cancelling kills the process of a running task,
+ * and a task cancelled before it was started is never started
+ *
+ * @author patmagee
+ */
+public class TaskCanceller {
+
+    private Process process;
+    private boolean cancelled;
+
+    /**
+     * Cancel the task, killing its process if it is running
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Whether cancel has been called
+     *
+     * @return true if the task has been cancelled
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    synchronized void started(Process process) {
+        this.process = process;
+        if (cancelled) {
+            process.destroy();
+        }
+    }
+
+    synchronized void finished() {
+        process = null;
+    }
+}
@@ -27,6 +27,8 @@ import java.io.OutputStream;
  */
 public abstract class TaskOutput<Stream extends OutputStream> {
 
+    private static final Gson GSON = new GsonBuilder().create();
+
     private Stream output;
 
     public TaskOutput(Stream output) {
@@ -42,7 +44,15 @@ public abstract class TaskOutput<Stream extends OutputStream> {
     }
 
     public <T> T toObject(JSONObject object, Class<T> clazz) {
-        Gson gson = new GsonBuilder().create();
-        return gson.fromJson(object.toJSONString(), clazz);
+        return GSON.fromJson(object.toJSONString(), clazz);
+    }
+
+    /**
+     * Get the Gson instance shared by all task outputs. Gson is thread safe, so there is no need to create one per
+     * conversion
+     * @return shared Gson
+     */
+    protected static Gson getGson() {
+        return GSON;
     }
 }
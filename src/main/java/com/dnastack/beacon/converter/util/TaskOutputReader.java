@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader for the standard output of a task while the task is still running
+ *
+ * @author patmagee
+ */
+public interface TaskOutputReader {
+
+    /**
+     * Read the standard output of a task. Any output left unread when this method returns is discarded
+     *
+     * @param output standard output of the task
+     * @throws IOException if the output cannot be read or parsed
+     */
+    void read(InputStream output) throws IOException;
+}
@@ -15,12 +15,18 @@
  */
 package com.dnastack.beacon.converter.util;
 
+import com.dnastack.beacon.converter.metrics.Metrics;
 import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteStreamHandler;
 import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.exec.StreamPumper;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 
 /**
  * Class for executing generic command line tasks in the local environment.
@@ -41,13 +47,157 @@ public class TaskRunner {
         OutputStream outputStream = task.getOutputStream();
         PumpStreamHandler streamHandler = new PumpStreamHandler(outputStream);
 
-        DefaultExecutor executor = new DefaultExecutor();
+        DefaultExecutor executor = new TaskExecutor(null);
         executor.setExitValue(0);
         executor.setStreamHandler(streamHandler);
-        executor.execute(cmd);
+        execute(executor, cmd, null);
 
         //The input task also defines the output object that it expects
         return task.generateOutput(outputStream);
     }
 
+    /**
+     * Execute a command as defined by the task object and hand its standard output to a reader while the command is
+     * running, instead of capturing it. The reader runs on the calling thread
+     *
+     * @param task   An object defining the task to perform
+     * @param reader reader for the standard output
+     * @throws IOException if the command fails or the reader fails to read the output
+     */
+    public void exec(Task task, TaskOutputReader reader) throws IOException {
+        exec(task, reader, null);
+    }
+
+    /**
+     * Execute a command like {@link #exec(Task, TaskOutputReader)}, killing it when the canceller is cancelled
+     *
+     * @param task      An object defining the task to perform
+     * @param reader    reader for the standard output
+     * @param canceller canceller for the task, or null if it cannot be cancelled
+     * @throws IOException if the command fails, is cancelled or the reader fails to read the output
+     */
+    public void exec(Task task, TaskOutputReader reader, TaskCanceller canceller) throws IOException {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null");
+        }
+        CommandLine cmd = CommandLine.parse(task.getCommand());
+        ReadingStreamHandler streamHandler = new ReadingStreamHandler(reader);
+
+        DefaultExecutor executor = new TaskExecutor(canceller);
+        executor.setExitValue(0);
+        executor.setStreamHandler(streamHandler);
+        execute(executor, cmd, canceller);
+
+        // A failed command is reported by its exit value above, since a reader usually fails on its truncated output
+        if (streamHandler.failure instanceof IOException) {
+            throw (IOException) streamHandler.failure;
+        } else if (streamHandler.failure instanceof RuntimeException) {
+            throw (RuntimeException) streamHandler.failure;
+        }
+    }
+
+    private static void execute(DefaultExecutor executor, CommandLine cmd, TaskCanceller canceller)
+            throws IOException {
+        if (canceller != null && canceller.isCancelled()) {
+            throw new IOException("Task was cancelled");
+        }
+        long start = Metrics.start();
+        try {
+            executor.execute(cmd);
+        } catch (IOException e) {
+            Metrics.increment(Metrics.TASK_FAILURES, 1);
+            if (canceller != null && canceller.isCancelled()) {
+                throw new IOException("Task was cancelled");
+            }
+            throw e;
+        } finally {
+            if (canceller != null) {
+                canceller.finished();
+            }
+            Metrics.recordSince(Metrics.TASK_RUN, start);
+        }
+    }
+
+    /**
+     * Executor which times process launches and hands the process to the canceller as soon as it is launched. The
+     * executor itself only starts watchdogs once the output has been read
+     */
+    private static class TaskExecutor extends DefaultExecutor {
+
+        private final TaskCanceller canceller;
+
+        private TaskExecutor(TaskCanceller canceller) {
+            this.canceller = canceller;
+        }
+
+        @Override
+        protected Process launch(CommandLine command, Map<String, String> env, File dir) throws IOException {
+            long start = Metrics.start();
+            Process process = super.launch(command, env, dir);
+            Metrics.recordSince(Metrics.TASK_SPAWN, start);
+            if (canceller != null) {
+                canceller.started(process);
+            }
+            return process;
+        }
+    }
+
+    /**
+     * Stream handler which runs the reader from start, which the executor calls on the executing thread before
+     * waiting for the process. Standard error is pumped to System.err like PumpStreamHandler does
+     */
+    private static class ReadingStreamHandler implements ExecuteStreamHandler {
+
+        private final TaskOutputReader reader;
+        private InputStream output;
+        private InputStream error;
+        private Thread errorPumper;
+        private Throwable failure;
+
+        private ReadingStreamHandler(TaskOutputReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public void setProcessInputStream(OutputStream os) throws IOException {
+            os.close();
+        }
+
+        @Override
+        public void setProcessErrorStream(InputStream is) {
+            error = is;
+        }
+
+        @Override
+        public void setProcessOutputStream(InputStream is) {
+            output = is;
+        }
+
+        @Override
+        public void start() throws IOException {
+            errorPumper = new Thread(new StreamPumper(error, System.err));
+            errorPumper.setDaemon(true);
+            errorPumper.start();
+            try {
+                reader.read(output);
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+
+            // Drain what the reader left so the process is never blocked on a full pipe
+            byte[] buffer = new byte[8192];
+            while (output.read(buffer) >= 0) {
+                // discard
+            }
+        }
+
+        @Override
+        public void stop() {
+            try {
+                errorPumper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs;
+
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.hgvs.task.HgvsToGenomicTask;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class AsyncHGVSConverterTest {
+
+    private static final String SLOW = "slow_000001.1:c.1A>G";
+
+    private AsyncHGVSConverter converter;
+
+    @Before
+    public void setUp() {
+        System.setProperty(HgvsToGenomicTask.SCRIPT_PROPERTY, "src/test/resources/hgvs/stubHgvsToGenomic.py");
+        converter = new AsyncHGVSConverter(1, 20000);
+    }
+
+    @After
+    public void tearDown() {
+        converter.close();
+        System.clearProperty(HgvsToGenomicTask.SCRIPT_PROPERTY);
+    }
+
+    @Test
+    public void testConversion() throws Exception {
+        List<String> hgvss = Arrays.asList("NM_182763.2:c.688+403C>T", "INVALID", "NM_182763.2:c.689C>T");
+        List<GenomeInterval> intervals = converter.hgvsToGenomic(hgvss).get(10, TimeUnit.SECONDS);
+        assertEquals(3, intervals.size());
+        assertEquals(Long.valueOf(1), intervals.get(0).getStart());
+        assertNotNull(intervals.get(1).getError());
+        assertEquals(Long.valueOf(2), intervals.get(2).getStart());
+        assertEquals(0, converter.getPendingCount());
+    }
+
+    @Test
+    public void testInProcessConversionCompletesImmediately() throws Exception {
+        HGVSConverter.setGenomicInProcess(true);
+        try {
+            CompletableFuture<GenomeInterval> future = converter.hgvsToGenomic("NC_000017.10:g.41197701G>A");
+            assertTrue(future.isDone());
+            assertEquals(Long.valueOf(41197701), future.get().getStart());
+        } finally {
+            HGVSConverter.setGenomicInProcess(false);
+        }
+    }
+
+    @Test
+    public void testCancelKillsProcess() throws Exception {
+        CompletableFuture<List<GenomeInterval>> slow = converter.hgvsToGenomic(Arrays.asList(SLOW));
+        CompletableFuture<GenomeInterval> queued = converter.hgvsToGenomic("NM_182763.2:c.688+403C>T");
+        Thread.sleep(500);
+        assertTrue(slow.cancel(true));
+
+        // With a single python slot the queued conversion can only finish once the slow process has been killed
+        assertEquals(Long.valueOf(1), queued.get(10, TimeUnit.SECONDS).getStart());
+    }
+
+    @Test
+    public void testCancelSingleIdentifierKillsProcess() throws Exception {
+        CompletableFuture<GenomeInterval> slow = converter.hgvsToGenomic(SLOW);
+        CompletableFuture<GenomeInterval> queued = converter.hgvsToGenomic("NM_182763.2:c.688+403C>T");
+        Thread.sleep(500);
+        assertTrue(slow.cancel(true));
+
+        // The cancellation has to reach the list conversion behind the single identifier future to free the slot
+        assertEquals(Long.valueOf(1), queued.get(10, TimeUnit.SECONDS).getStart());
+        assertEquals(0, converter.getPendingCount());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        converter.close();
+        converter = new AsyncHGVSConverter(1, 300);
+        CompletableFuture<List<GenomeInterval>> slow = converter.hgvsToGenomic(Arrays.asList(SLOW));
+        try {
+            slow.get(10, TimeUnit.SECONDS);
+            fail("Expected the conversion to time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(Long.valueOf(1), converter.hgvsToGenomic("NM_182763.2:c.688+403C>T").get(10, TimeUnit.SECONDS)
+                .getStart());
+    }
+
+    @Test
+    public void testCloseCancelsPendingConversions() {
+        CompletableFuture<List<GenomeInterval>> slow = converter.hgvsToGenomic(Arrays.asList(SLOW));
+        converter.close();
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedConverterThrowsError() {
+        converter.close();
+        converter.hgvsToGenomic("NM_182763.2:c.688+403C>T");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyListThrowsError() {
+        converter.hgvsToGenomic(Arrays.<String>asList());
+    }
+}
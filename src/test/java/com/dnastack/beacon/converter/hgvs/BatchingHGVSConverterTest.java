@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class BatchingHGVSConverterTest {
+
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+    private volatile boolean failing;
+    private BatchingHGVSConverter converter;
+
+    private final HGVSMapper recordingMapper = new HGVSMapper() {
+        @Override
+        public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+            batches.add(new ArrayList<>(identifiers));
+            if (failing) {
+                throw new HGVSException("Conversion failed");
+            }
+            List<GenomeInterval> intervals = new ArrayList<>();
+            for (String identifier : identifiers) {
+                GenomeInterval interval = new GenomeInterval();
+                interval.setVariant(identifier);
+                interval.setStart((long) identifier.length());
+                intervals.add(interval);
+            }
+            return intervals;
+        }
+    };
+
+    @After
+    public void tearDown() {
+        if (converter != null) {
+            converter.close();
+        }
+    }
+
+    @Test
+    public void testRequestsWithinWindowShareBatch() throws Exception {
+        converter = new BatchingHGVSConverter(recordingMapper, 100, 200, 1);
+        CompletableFuture<GenomeInterval> first = converter.submit("A");
+        CompletableFuture<GenomeInterval> second = converter.submit("BB");
+        CompletableFuture<GenomeInterval> third = converter.submit("CCC");
+
+        assertEquals("A", first.get(5, TimeUnit.SECONDS).getVariant());
+        assertEquals(Long.valueOf(2), second.get(5, TimeUnit.SECONDS).getStart());
+        assertEquals("CCC", third.get(5, TimeUnit.SECONDS).getVariant());
+        assertEquals(Arrays.asList(Arrays.asList("A", "BB", "CCC")), batches);
+    }
+
+    @Test
+    public void testFullBatchIsSentImmediately() throws Exception {
+        converter = new BatchingHGVSConverter(recordingMapper, 2, 60000, 1);
+        CompletableFuture<GenomeInterval> first = converter.submit("A");
+        CompletableFuture<GenomeInterval> second = converter.submit("B");
+        CompletableFuture<GenomeInterval> third = converter.submit("C");
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(Arrays.asList("A", "B")), batches);
+        assertFalse(third.isDone());
+
+        converter.flush();
+        third.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("C"), batches.get(1));
+    }
+
+    @Test
+    public void testDuplicateIdentifiersAreConvertedOnce() throws Exception {
+        converter = new BatchingHGVSConverter(recordingMapper, 100, 60000, 1);
+        CompletableFuture<GenomeInterval> first = converter.submit("A");
+        CompletableFuture<GenomeInterval> second = converter.submit("A");
+        assertNotSame(first, second);
+
+        converter.flush();
+        GenomeInterval firstInterval = first.get(5, TimeUnit.SECONDS);
+        GenomeInterval secondInterval = second.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(Arrays.asList("A")), batches);
+
+        // Callers sharing a conversion get their own intervals, so one caller's changes stay private
+        assertNotSame(firstInterval, secondInterval);
+        firstInterval.setStart(100L);
+        assertEquals(Long.valueOf(1), secondInterval.getStart());
+
+        converter.submit("A");
+        converter.flush();
+        assertEquals(2, waitForBatches(2));
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        converter = new BatchingHGVSConverter(recordingMapper, 1000, 100, 1);
+        List<Thread> threads = new ArrayList<>();
+        final List<GenomeInterval> results = Collections.synchronizedList(new ArrayList<GenomeInterval>());
+        for (int i = 0; i < 50; i++) {
+            final String identifier = "ID" + i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        GenomeInterval interval = converter.hgvsToGenomic(identifier);
+                        assertEquals(identifier, interval.getVariant());
+                        results.add(interval);
+                    } catch (HGVSException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(50, results.size());
+        assertTrue(batches.size() < 50);
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryCaller() throws Exception {
+        failing = true;
+        converter = new BatchingHGVSConverter(recordingMapper, 100, 10, 1);
+        try {
+            converter.hgvsToGenomic(Arrays.asList("A", "B"));
+            fail("Expected the batch to fail");
+        } catch (HGVSException e) {
+            assertEquals("Conversion failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseFailsQueuedConversions() throws Exception {
+        converter = new BatchingHGVSConverter(recordingMapper, 100, 60000, 1);
+        CompletableFuture<GenomeInterval> queued = converter.submit("A");
+        converter.close();
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            fail("Expected the conversion to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HGVSException);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedConverterThrowsError() {
+        converter = new BatchingHGVSConverter(recordingMapper, 100, 10, 1);
+        converter.close();
+        converter.submit("A");
+    }
+
+    private int waitForBatches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batches.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return batches.size();
+    }
+}
@@ -2,11 +2,15 @@ package com.dnastack.beacon.converter.hgvs;
 
 import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
 import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import com.dnastack.beacon.converter.hgvs.task.HgvsToGenomicTask;
+import com.dnastack.beacon.converter.hgvs.transcript.TranscriptIndex;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.*;
 
@@ -64,6 +68,76 @@ public class HGVSConverterTest {
         }
     }
 
+    @Test
+    public void testGenomicVariantWithoutPython() throws HGVSException {
+        HGVSConverter.setGenomicInProcess(true);
+        try {
+            GenomeInterval interval = HGVSConverter.hgvsToGenomic("NC_000017.10:g.41197701G>A");
+            assertEquals(Long.valueOf(41197701), interval.getStart());
+            assertEquals(Long.valueOf(41197701), interval.getEnd());
+            assertEquals("17", interval.getRef());
+            assertNull(interval.getError());
+        } finally {
+            HGVSConverter.setGenomicInProcess(false);
+        }
+    }
+
+    @Test
+    public void testGenomicVariantUsesPythonByDefault() throws HGVSException {
+        System.setProperty(HgvsToGenomicTask.SCRIPT_PROPERTY, "src/test/resources/hgvs/stubHgvsToGenomic.py");
+        try {
+            // The stub maps the first identifier to position 1
+            assertEquals(Long.valueOf(1), HGVSConverter.hgvsToGenomic("NC_000017.10:g.41197701G>A").getStart());
+        } finally {
+            System.clearProperty(HgvsToGenomicTask.SCRIPT_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testTranscriptVariantWithoutPython() throws Exception {
+        HGVSConverter.setTranscriptIndex(TranscriptIndex.load(
+                new File(getClass().getResource("/hgvs/transcripts.genePred").getFile())));
+        try {
+            GenomeInterval interval = HGVSConverter.hgvsToGenomic("NM_000002.2:c.1_3del");
+            assertEquals(Long.valueOf(6198), interval.getStart());
+            assertEquals(Long.valueOf(6200), interval.getEnd());
+            assertEquals("2", interval.getRef());
+            assertNull(interval.getError());
+        } finally {
+            HGVSConverter.setTranscriptIndex(null);
+        }
+    }
+
+    @Test
+    public void testStreamingKeepsInputOrder() throws HGVSException {
+        System.setProperty(HgvsToGenomicTask.SCRIPT_PROPERTY, "src/test/resources/hgvs/stubHgvsToGenomic.py");
+        HGVSConverter.setGenomicInProcess(true);
+        try {
+            List<String> hgvss = Arrays.asList("INVALID", "NM_182763.2:c.688+403C>T", "NC_000017.10:g.41197701G>A",
+                    "NM_182763.2:c.689C>T", "INVALID");
+            final List<GenomeInterval> intervals = new ArrayList<>();
+            HGVSConverter.hgvsToGenomic(hgvss, new Consumer<GenomeInterval>() {
+                @Override
+                public void accept(GenomeInterval interval) {
+                    intervals.add(interval);
+                }
+            });
+
+            assertEquals(hgvss.size(), intervals.size());
+            for (int i = 0; i < hgvss.size(); i++) {
+                assertEquals(hgvss.get(i), intervals.get(i).getVariant());
+            }
+            assertNotNull(intervals.get(0).getError());
+            assertEquals(Long.valueOf(1), intervals.get(1).getStart());
+            assertEquals(Long.valueOf(41197701), intervals.get(2).getStart());
+            assertEquals(Long.valueOf(2), intervals.get(3).getStart());
+            assertNotNull(intervals.get(4).getError());
+        } finally {
+            HGVSConverter.setGenomicInProcess(false);
+            System.clearProperty(HgvsToGenomicTask.SCRIPT_PROPERTY);
+        }
+    }
+
     @Test(expected = NullPointerException.class)
     public void testNullHGVSThrowsError() throws HGVSException {
         List<String> hgvs = null;
@@ -76,5 +150,19 @@ public class HGVSConverterTest {
         HGVSConverter.hgvsToGenomic(hgvs);
     }
 
+    @Test
+    public void testChunkedConversionKeepsInputOrder() throws HGVSException {
+        List<String> hgvss = Arrays.asList("NM_182763.2:c.688+403C>T", "INVALID", "NM_182763.2:c.688+403C>T", "INVALID");
+        List<GenomeInterval> intervals = HGVSConverter.hgvsToGenomic(hgvss, 1, 2);
+        assertTrue(intervals.size() == hgvss.size());
+        for (int i = 0; i < intervals.size(); i++) {
+            assertTrue(intervals.get(i).getVariant().equals(hgvss.get(i)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSizeThrowsError() throws HGVSException {
+        HGVSConverter.hgvsToGenomic(Arrays.asList("NM_182763.2:c.688+403C>T"), 0, 1);
+    }
 
-}
\ No newline at end of file
+}
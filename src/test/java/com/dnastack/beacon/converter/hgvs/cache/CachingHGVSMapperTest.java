@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.cache;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class CachingHGVSMapperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyMissesAreConverted() throws HGVSException {
+        CountingMapper counting = new CountingMapper();
+        CachingHGVSMapper mapper = new CachingHGVSMapper(counting, 100);
+
+        List<GenomeInterval> first = mapper.hgvsToGenomic(Arrays.asList("NC_000001.10:g.100A>G", "NC_000001.10:g.200A>G"));
+        List<GenomeInterval> second = mapper.hgvsToGenomic(Arrays.asList("NC_000001.10:g.200A>G", "NC_000001.10:g.300A>G",
+                "NC_000001.10:g.100A>G"));
+
+        assertEquals(Arrays.asList(Arrays.asList("NC_000001.10:g.100A>G", "NC_000001.10:g.200A>G"),
+                Arrays.asList("NC_000001.10:g.300A>G")), counting.requests);
+        assertEquals(Long.valueOf(100), first.get(0).getStart());
+        assertEquals(Long.valueOf(200), second.get(0).getStart());
+        assertEquals(Long.valueOf(300), second.get(1).getStart());
+        assertEquals(Long.valueOf(100), second.get(2).getStart());
+        assertEquals("NC_000001.10:g.100A>G", second.get(2).getVariant());
+    }
+
+    @Test
+    public void testDuplicatesAreConvertedOnce() throws HGVSException {
+        CountingMapper counting = new CountingMapper();
+        CachingHGVSMapper mapper = new CachingHGVSMapper(counting, 100);
+
+        List<GenomeInterval> intervals = mapper.hgvsToGenomic(Arrays.asList("NC_000001.10:g.100A>G", "NC_000001.10:g.100A>G"));
+        assertEquals(1, counting.requests.get(0).size());
+        assertEquals(2, intervals.size());
+        assertNotSame(intervals.get(0), intervals.get(1));
+        assertEquals(intervals.get(0).getStart(), intervals.get(1).getStart());
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws HGVSException {
+        CountingMapper counting = new CountingMapper();
+        CachingHGVSMapper mapper = new CachingHGVSMapper(counting, 100);
+
+        assertNotNull(mapper.hgvsToGenomic(Arrays.asList("invalid")).get(0).getError());
+        assertNotNull(mapper.hgvsToGenomic(Arrays.asList("invalid")).get(0).getError());
+        assertEquals(2, counting.requests.size());
+    }
+
+    @Test
+    public void testCachedIntervalsCannotBeModified() throws HGVSException {
+        CachingHGVSMapper mapper = new CachingHGVSMapper(new CountingMapper(), 100);
+        mapper.hgvsToGenomic(Arrays.asList("NC_000001.10:g.100A>G")).get(0).setStart(5L);
+        assertEquals(Long.valueOf(100), mapper.hgvsToGenomic(Arrays.asList("NC_000001.10:g.100A>G")).get(0).getStart());
+    }
+
+    @Test
+    public void testPersistentTierSurvivesRestart() throws IOException, HGVSException {
+        File file = folder.newFile("hgvs.cache");
+        try (HGVSResultStore store = new HGVSResultStore(file)) {
+            new CachingHGVSMapper(new CountingMapper(), 100, store, "uta_20150827")
+                    .hgvsToGenomic(Arrays.asList("NC_000001.10:g.100A>G", "NC_000001.10:g.200A>G"));
+        }
+
+        try (HGVSResultStore store = new HGVSResultStore(file)) {
+            assertEquals(2, store.size());
+            CountingMapper counting = new CountingMapper();
+            List<GenomeInterval> intervals = new CachingHGVSMapper(counting, 100, store, "uta_20150827")
+                    .hgvsToGenomic(Arrays.asList("NC_000001.10:g.200A>G"));
+            assertEquals(0, counting.requests.size());
+            assertEquals(Long.valueOf(200), intervals.get(0).getStart());
+            assertEquals("1", intervals.get(0).getRef());
+
+            new CachingHGVSMapper(counting, 100, store, "uta_20170117").hgvsToGenomic(Arrays.asList("NC_000001.10:g.200A>G"));
+            assertEquals(1, counting.requests.size());
+        }
+    }
+
+    @Test
+    public void testStoreDropsIncompleteLine() throws IOException {
+        File file = folder.newFile("hgvs.cache");
+        GenomeInterval interval = new GenomeInterval();
+        interval.setStart(1L);
+        try (HGVSResultStore store = new HGVSResultStore(file)) {
+            store.put("v1", "a", interval);
+        }
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write("v1\tb\t{\"sta".getBytes(StandardCharsets.UTF_8));
+        }
+        try (HGVSResultStore store = new HGVSResultStore(file)) {
+            assertEquals(1, store.size());
+            assertNull(store.get("v1", "b"));
+            store.put("v1", "b", interval);
+        }
+        try (HGVSResultStore store = new HGVSResultStore(file)) {
+            assertEquals(Long.valueOf(1), store.get("v1", "a").getStart());
+            assertEquals(Long.valueOf(1), store.get("v1", "b").getStart());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStoreRequiresDataVersion() throws IOException {
+        try (HGVSResultStore store = new HGVSResultStore(folder.newFile("hgvs.cache"))) {
+            new CachingHGVSMapper(new CountingMapper(), 100, store, null);
+        }
+    }
+
+    /**
+     * Maps g. identifiers to their position and records every request
+     */
+    private static final class CountingMapper implements HGVSMapper {
+        private final List<List<String>> requests = new ArrayList<>();
+
+        @Override
+        public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) {
+            requests.add(new ArrayList<>(identifiers));
+            List<GenomeInterval> intervals = new ArrayList<>();
+            for (String identifier : identifiers) {
+                GenomeInterval interval = new GenomeInterval();
+                interval.setVariant(identifier);
+                if (identifier.startsWith("invalid")) {
+                    interval.setError(identifier + " is an invalid HGVS variant");
+                } else {
+                    long position = Long.parseLong(identifier.replaceAll("^.*g\\.(\\d+).*$", "$1"));
+                    interval.setStart(position);
+                    interval.setEnd(position);
+                    interval.setRef("1");
+                }
+                intervals.add(interval);
+            }
+            return intervals;
+        }
+    }
+}
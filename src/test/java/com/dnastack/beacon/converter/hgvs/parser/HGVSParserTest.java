@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.parser;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class HGVSParserTest {
+
+    @Test
+    public void testParse() {
+        HGVSVariant variant = HGVSParser.parse("NM_182763.2:c.688+403C>T");
+        assertEquals("NM_182763.2", variant.getAccession());
+        assertEquals('c', variant.getType());
+        assertEquals("688+403C>T", variant.getPosEdit());
+
+        assertEquals("NG_012232.1", HGVSParser.parse("NG_012232.1(NM_004006.1):c.93+1G>T").getAccession());
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertNull(HGVSParser.parse("ASDASDASDASD"));
+        assertNull(HGVSParser.parse("INVALID"));
+        assertNull(HGVSParser.parse("NM_182763.2:x.688C>T"));
+        assertNull(HGVSParser.parse("NM_182763.2:c."));
+        assertNull(HGVSParser.parse("NM_182763.2:c.688 C>T"));
+    }
+
+    @Test
+    public void testGenomicSubstitution() {
+        GenomeInterval interval = HGVSParser.toGenomic(HGVSParser.parse("NC_000017.10:g.41197701G>A"));
+        assertEquals("NC_000017.10:g.41197701G>A", interval.getVariant());
+        assertEquals(Long.valueOf(41197701), interval.getStart());
+        assertEquals(Long.valueOf(41197701), interval.getEnd());
+        assertEquals("17", interval.getRef());
+        assertNull(interval.getError());
+    }
+
+    @Test
+    public void testGenomicEdits() {
+        assertRange("NC_000001.10:g.100_102del", 100, 102);
+        assertRange("NC_000001.10:g.100delA", 100, 100);
+        assertRange("NC_000001.10:g.100_101insAT", 100, 101);
+        assertRange("NC_000001.10:g.100_102delinsGG", 100, 102);
+        assertRange("NC_000001.10:g.100_102dup", 100, 102);
+        assertRange("NC_000001.10:g.100_102inv", 100, 102);
+        assertRange("NC_000001.10:g.100=", 100, 100);
+    }
+
+    @Test
+    public void testInvalidGenomicEdits() {
+        assertNotNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.100_102A>G")).getError());
+        assertNotNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.100insA")).getError());
+        assertEquals("NC_000001.10:g.102_100del is an invalid HGVS variant",
+                HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.102_100del")).getError());
+    }
+
+    @Test
+    public void testUnsupportedGenomicEditsNeedMapper() {
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.0A>G")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.100A>R")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.100_102del3")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.(100_110)del")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000001.10:g.99999999999999999999A>G")));
+    }
+
+    @Test
+    public void testNonChromosomalVariantsNeedMapper() {
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NM_182763.2:c.688+403C>T")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NG_012232.1:g.100A>G")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_012920.1:m.100A>G")));
+        assertNull(HGVSParser.toGenomic(HGVSParser.parse("NC_000025.1:g.100A>G")));
+    }
+
+    @Test
+    public void testConvert() {
+        assertEquals("INVALID is an invalid HGVS variant", HGVSParser.convert("INVALID").getError());
+        assertEquals("X", HGVSParser.convert("NC_000023.10:g.100A>G").getRef());
+        assertNull(HGVSParser.convert("NM_182763.2:c.688+403C>T"));
+        assertNull(HGVSParser.convert("NC_000023.10:g.100A>G", false));
+        assertNotNull(HGVSParser.convert("INVALID", false).getError());
+    }
+
+    @Test
+    public void testGetReference() {
+        assertEquals("1", HGVSParser.getReference("NC_000001.10"));
+        assertEquals("17", HGVSParser.getReference("NC_000017.10"));
+        assertEquals("X", HGVSParser.getReference("NC_000023.10"));
+        assertEquals("Y", HGVSParser.getReference("NC_000024.9"));
+    }
+
+    @Test
+    public void testParsingMapperOnlyPassesOnRemainingIdentifiers() throws HGVSException {
+        final List<List<String>> requests = new ArrayList<>();
+        HGVSMapper mapper = new ParsingHGVSMapper(new HGVSMapper() {
+            @Override
+            public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) {
+                requests.add(new ArrayList<>(identifiers));
+                List<GenomeInterval> intervals = new ArrayList<>();
+                for (String identifier : identifiers) {
+                    GenomeInterval interval = new GenomeInterval();
+                    interval.setVariant(identifier);
+                    intervals.add(interval);
+                }
+                return intervals;
+            }
+        });
+
+        List<GenomeInterval> intervals = mapper.hgvsToGenomic(Arrays.asList("INVALID", "NM_182763.2:c.688+403C>T",
+                "NC_000023.10:g.100A>G"));
+        assertEquals(Arrays.asList(Arrays.asList("NM_182763.2:c.688+403C>T")), requests);
+        assertEquals("INVALID is an invalid HGVS variant", intervals.get(0).getError());
+        assertEquals("NM_182763.2:c.688+403C>T", intervals.get(1).getVariant());
+        assertEquals("X", intervals.get(2).getRef());
+
+        mapper.hgvsToGenomic(Arrays.asList("NC_000001.10:g.100A>G", "???"));
+        assertTrue(requests.size() == 1);
+    }
+
+    private static void assertRange(String identifier, long start, long end) {
+        GenomeInterval interval = HGVSParser.toGenomic(HGVSParser.parse(identifier));
+        assertNull(interval.getError());
+        assertEquals(Long.valueOf(start), interval.getStart());
+        assertEquals(Long.valueOf(end), interval.getEnd());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.task;
+
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class HGVSToGenomicTaskOutputTest {
+
+    private static final String OUTPUT = "[{\"variant\": \"NM_182763.2:c.688+403C>T\", \"start\": 10, \"end\": 11, "
+            + "\"ref\": \"1\"}, {\"variant\": \"INVALID\", \"error\": \"INVALID is an invalid HGVS variant\"}]\n";
+
+    @Test
+    public void testParseOutput() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(OUTPUT.getBytes(StandardCharsets.UTF_8));
+        assertIntervals(new HGVSToGenomicTaskOutput(output).parseOutput());
+    }
+
+    @Test
+    public void testStreamingParseOutput() throws IOException {
+        final List<GenomeInterval> intervals = new ArrayList<>();
+        HGVSToGenomicTaskOutput.parseOutput(new ByteArrayInputStream(OUTPUT.getBytes(StandardCharsets.UTF_8)),
+                new Consumer<GenomeInterval>() {
+                    @Override
+                    public void accept(GenomeInterval interval) {
+                        intervals.add(interval);
+                    }
+                });
+        assertIntervals(intervals);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedOutputIsError() throws IOException {
+        HGVSToGenomicTaskOutput.parseOutput(new ByteArrayInputStream(OUTPUT.substring(0, 40).getBytes(
+                StandardCharsets.UTF_8)), new Consumer<GenomeInterval>() {
+            @Override
+            public void accept(GenomeInterval interval) {
+            }
+        });
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmptyOutputIsError() throws IOException {
+        new HGVSToGenomicTaskOutput(new ByteArrayOutputStream()).parseOutput();
+    }
+
+    private void assertIntervals(List<GenomeInterval> intervals) {
+        assertEquals(2, intervals.size());
+        assertEquals("NM_182763.2:c.688+403C>T", intervals.get(0).getVariant());
+        assertEquals(Long.valueOf(10), intervals.get(0).getStart());
+        assertEquals(Long.valueOf(11), intervals.get(0).getEnd());
+        assertEquals("1", intervals.get(0).getRef());
+        assertNull(intervals.get(0).getError());
+        assertEquals("INVALID is an invalid HGVS variant", intervals.get(1).getError());
+        assertNull(intervals.get(1).getStart());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.transcript;
+
+import com.dnastack.beacon.converter.hgvs.api.HGVSMapper;
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class TranscriptMapperTest {
+
+    private TranscriptIndex index;
+    private TranscriptMapper mapper;
+    private List<String> delegated;
+
+    @Before
+    public void setUp() throws IOException {
+        index = TranscriptIndex.load(new File(getClass().getResource("/hgvs/transcripts.genePred").getFile()));
+        delegated = new ArrayList<>();
+        mapper = new TranscriptMapper(index, new HGVSMapper() {
+            @Override
+            public List<GenomeInterval> hgvsToGenomic(List<String> identifiers) throws HGVSException {
+                delegated.addAll(identifiers);
+                List<GenomeInterval> intervals = new ArrayList<>();
+                for (String identifier : identifiers) {
+                    GenomeInterval interval = new GenomeInterval();
+                    interval.setVariant(identifier);
+                    interval.setError("delegated");
+                    intervals.add(interval);
+                }
+                return intervals;
+            }
+        });
+    }
+
+    @Test
+    public void testLoad() {
+        assertEquals(3, index.size());
+        assertEquals("NM_000001.1", index.get("NM_000001").getName());
+        assertNull(index.get("NM_000001.2"));
+        assertTrue(index.get("NM_000002.2").isNegativeStrand());
+        assertEquals(1, index.getOverlapping("chr1", 1999, 3000).size());
+        assertEquals(0, index.getOverlapping("chr1", 2000, 3000).size());
+        assertEquals(0, index.getOverlapping("chr9", 0, 3000).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadMalformed() throws IOException {
+        TranscriptIndex.load(new StringReader("NM_1.1\tchr1\t+\t10\t20\t10\t20\t2\t10,\t20,\n"));
+    }
+
+    @Test
+    public void testPlusStrand() {
+        assertRange("NM_000001.1:c.1A>G", 1101, 1101, "1");
+        assertRange("NM_000001.1:c.100A>G", 1200, 1200, "1");
+        assertRange("NM_000001.1:c.101A>G", 1501, 1501, "1");
+        assertRange("NM_000001.1:c.100+5A>G", 1205, 1205, "1");
+        assertRange("NM_000001.1:c.101-3A>G", 1498, 1498, "1");
+        assertRange("NM_000001.1:c.-1A>G", 1100, 1100, "1");
+        assertRange("NM_000001.1:c.*1A>G", 1901, 1901, "1");
+        assertRange("NM_000001.1:c.99_102del", 1199, 1502, "1");
+        assertRange("NM_000001.1:n.701A>G", 2001, 2001, "1");
+        assertRange("NM_000001:n.-1A>G", 1000, 1000, "1");
+    }
+
+    @Test
+    public void testMinusStrand() {
+        assertRange("NM_000002.2:c.1A>G", 6200, 6200, "2");
+        assertRange("NM_000002.2:c.200A>G", 6001, 6001, "2");
+        assertRange("NM_000002.2:c.201A>G", 5100, 5100, "2");
+        assertRange("NM_000002.2:c.200+2A>G", 5999, 5999, "2");
+        assertRange("NM_000002.2:c.201-2A>G", 5102, 5102, "2");
+        assertRange("NM_000002.2:c.1_3del", 6198, 6200, "2");
+        assertRange("NM_000002.2:c.-1A>G", 6201, 6201, "2");
+    }
+
+    @Test
+    public void testNonCoding() {
+        assertRange("NR_000003.1:n.5A>G", 105, 105, "X");
+        assertInvalid("NR_000003.1:c.5A>G");
+    }
+
+    @Test
+    public void testInvalid() {
+        assertInvalid("NM_000001.1:c.0A>G");
+        assertInvalid("NM_000001.1:c.1X>G");
+        assertInvalid("NM_000001.1:n.*1A>G");
+        assertInvalid("NM_000001.1:c.-200+1A>G");
+    }
+
+    @Test
+    public void testUnknownTranscriptIsDelegated() throws HGVSException {
+        List<GenomeInterval> intervals = mapper.hgvsToGenomic(Arrays.asList("NM_000001.1:c.1A>G",
+                "NM_999999.1:c.1A>G", "NC_000001.10:g.100A>G", "NM_000001.2:c.1A>G"));
+        assertEquals(4, intervals.size());
+        assertEquals(Long.valueOf(1101), intervals.get(0).getStart());
+        assertEquals("NM_999999.1:c.1A>G", intervals.get(1).getVariant());
+        assertEquals("delegated", intervals.get(1).getError());
+        assertEquals("NC_000001.10:g.100A>G", intervals.get(2).getVariant());
+        assertEquals("NM_000001.2:c.1A>G", intervals.get(3).getVariant());
+        assertEquals(Arrays.asList("NM_999999.1:c.1A>G", "NC_000001.10:g.100A>G", "NM_000001.2:c.1A>G"), delegated);
+    }
+
+    private void assertRange(String identifier, long start, long end, String ref) {
+        GenomeInterval interval = mapper.toGenomic(identifier);
+        assertNotNull(identifier, interval);
+        assertNull(identifier, interval.getError());
+        assertEquals(identifier, Long.valueOf(start), interval.getStart());
+        assertEquals(identifier, Long.valueOf(end), interval.getEnd());
+        assertEquals(identifier, ref, interval.getRef());
+        assertEquals(identifier, interval.getVariant());
+    }
+
+    private void assertInvalid(String identifier) {
+        GenomeInterval interval = mapper.toGenomic(identifier);
+        assertNotNull(identifier, interval);
+        assertNotNull(identifier, interval.getError());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.hgvs.worker;
+
+import com.dnastack.beacon.converter.hgvs.exceptions.HGVSException;
+import com.dnastack.beacon.converter.hgvs.models.GenomeInterval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the pool against a stub worker so the tests do not depend on hgvs or UTA
+ *
+ * @author patmagee
+ */
+public class HGVSWorkerPoolTest {
+
+    private static final String STUB_WORKER = "src/test/resources/hgvs/stubWorker.py";
+
+    private HGVSWorkerPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new HGVSWorkerPool(2, Arrays.asList("python", new File(STUB_WORKER).getAbsolutePath()));
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testGetMultipleCoordinates() throws HGVSException {
+        List<GenomeInterval> intervals = pool.hgvsToGenomic(Arrays.asList("NM_1:c.1A>T", "invalid", "NM_2:c.2A>T"));
+
+        assertEquals(3, intervals.size());
+        assertEquals("NM_1:c.1A>T", intervals.get(0).getVariant());
+        assertEquals(Long.valueOf(1), intervals.get(0).getStart());
+        assertNull(intervals.get(0).getError());
+        assertNotNull(intervals.get(1).getError());
+        assertEquals("NM_2:c.2A>T", intervals.get(2).getVariant());
+    }
+
+    @Test
+    public void testWorkersAreReused() throws HGVSException {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("NM_" + i, pool.hgvsToGenomic("NM_" + i).getVariant());
+        }
+    }
+
+    @Test
+    public void testCrashedWorkerIsReplaced() throws HGVSException {
+        try {
+            pool.hgvsToGenomic("crash");
+            fail("Expected the conversion to fail");
+        } catch (HGVSException e) {
+            assertNotNull(e.getMessage());
+        }
+        for (int i = 0; i < pool.getSize() * 2; i++) {
+            assertNull(pool.hgvsToGenomic("NM_182763.2:c.688+403C>T").getError());
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullHGVSThrowsError() throws HGVSException {
+        List<String> hgvs = null;
+        pool.hgvsToGenomic(hgvs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyListThrowsError() throws HGVSException {
+        pool.hgvsToGenomic(new ArrayList<String>());
+    }
+
+    @Test
+    public void testHungWorkerIsKilledAndReplaced() throws IOException, HGVSException {
+        HGVSWorkerPool timed = new HGVSWorkerPool(1, Arrays.asList("python", new File(STUB_WORKER).getAbsolutePath()),
+                500);
+        try {
+            long start = System.currentTimeMillis();
+            try {
+                timed.hgvsToGenomic("hang");
+                fail("Expected the conversion to time out");
+            } catch (HGVSException e) {
+                assertTrue(e.getMessage().contains("did not respond"));
+            }
+            assertTrue(System.currentTimeMillis() - start < 10000);
+            assertEquals("NM_1", timed.hgvsToGenomic("NM_1").getVariant());
+        } finally {
+            timed.close();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.cache;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
+import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
+import com.dnastack.beacon.converter.liftover.ucsc.LiftOvers;
+import com.dnastack.beacon.converter.liftover.ucsc.UCSCLiftOver;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.util.Interval;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class CachingLiftOverTest {
+
+    private static final Interval VALID_INTERVAL = new Interval("chr1", 743267, 743268);
+    private static final Interval INVALID_INTERVAL = new Interval("chr20", 77777777, 777777778);
+
+    private UCSCLiftOver liftOver;
+    private CachingLiftOver cachingLiftOver;
+
+    @Before
+    public void setUp() throws IOException {
+        liftOver = LiftOvers.get(GenomeBuild.HG19, GenomeBuild.HG38);
+        cachingLiftOver = new CachingLiftOver(liftOver, 100);
+    }
+
+    @Test
+    public void testRepeatedLookupsHitCache() throws LiftOverException {
+        Interval first = cachingLiftOver.liftOver(VALID_INTERVAL);
+        Interval second = cachingLiftOver.liftOver(VALID_INTERVAL);
+
+        assertEquals(liftOver.liftOver(VALID_INTERVAL), first);
+        assertSame(first, second);
+        assertEquals(1, cachingLiftOver.getCache().getMissCount());
+        assertEquals(1, cachingLiftOver.getCache().getHitCount());
+    }
+
+    @Test
+    public void testInvalidArgumentsAreNotCached() {
+        try {
+            cachingLiftOver.liftOver(null, 1, 2);
+            assertTrue(false);
+        } catch (IllegalArgumentException | LiftOverException e) {
+            // expected
+        }
+        assertEquals(0, cachingLiftOver.getCache().size());
+    }
+
+    @Test
+    public void testFailuresAreCached() {
+        for (int i = 0; i < 3; i++) {
+            try {
+                cachingLiftOver.liftOver(INVALID_INTERVAL);
+                assertTrue(false);
+            } catch (LiftOverException e) {
+                // expected
+            }
+        }
+        LiftOverResult result = cachingLiftOver.tryLiftOver(INVALID_INTERVAL);
+        assertFalse(result.isMapped());
+        assertEquals(LiftOverStatus.UNMAPPED, result.getStatus());
+        assertEquals(1, cachingLiftOver.getCache().getMissCount());
+        assertEquals(3, cachingLiftOver.getCache().getHitCount());
+    }
+
+    @Test
+    public void testNamesAndStrandsAreKeptApart() throws LiftOverException {
+        Interval named = new Interval("chr1", 743267, 743268, false, "rs1");
+        Interval negative = new Interval("chr1", 743267, 743268, true, null);
+
+        assertEquals("rs1", cachingLiftOver.liftOver(named).getName());
+        assertEquals(null, cachingLiftOver.liftOver(VALID_INTERVAL).getName());
+        assertEquals(liftOver.liftOver(negative).isNegativeStrand(), cachingLiftOver.liftOver(negative).isNegativeStrand());
+    }
+
+    @Test
+    public void testBatchOnlyLiftsOverMisses() throws LiftOverException {
+        cachingLiftOver.liftOver(VALID_INTERVAL);
+        Interval other = new Interval("chr1", 1000000, 1000001);
+        List<LiftOverResult> results = cachingLiftOver.liftOverAll(Arrays.asList(other, VALID_INTERVAL, INVALID_INTERVAL));
+
+        assertEquals(liftOver.liftOver(other), results.get(0).getTarget());
+        assertEquals(liftOver.liftOver(VALID_INTERVAL), results.get(1).getTarget());
+        assertFalse(results.get(2).isMapped());
+        assertEquals(1, cachingLiftOver.getCache().getHitCount());
+        assertEquals(3, cachingLiftOver.getCache().size());
+    }
+
+    @Test
+    public void testBoundedInBytes() throws LiftOverException {
+        CachingLiftOver bounded = CachingLiftOver.withMaxBytes(liftOver, 2000);
+        for (int i = 0; i < 100; i++) {
+            bounded.tryLiftOver(new Interval("chr1", 743267 + i, 743268 + i));
+        }
+        assertTrue(bounded.getCache().getWeight() <= 2000);
+        assertTrue(bounded.getCache().getEvictionCount() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullLiftOver() {
+        new CachingLiftOver(null, 10);
+    }
+
+    @Test
+    public void testCachedResultsKeepChainMetadata() {
+        LiftOverResult expected = liftOver.tryLiftOver(VALID_INTERVAL);
+        cachingLiftOver.tryLiftOver(VALID_INTERVAL);
+        LiftOverResult cached = cachingLiftOver.tryLiftOver(VALID_INTERVAL);
+
+        assertEquals(1, cachingLiftOver.getCache().getHitCount());
+        assertEquals(expected.getChainId(), cached.getChainId());
+        assertEquals(expected.getScore(), cached.getScore(), 0);
+        assertEquals(expected.getMatchedFraction(), cached.getMatchedFraction(), 0);
+        assertEquals(expected.isReverseComplemented(), cached.isReverseComplemented());
+        assertTrue(cached.getChainId() != LiftOverResult.NO_CHAIN);
+    }
+
+    @Test
+    public void testCoordinateLookupsHitCache() throws LiftOverException {
+        Interval first = cachingLiftOver.liftOver(VALID_INTERVAL.getContig(), VALID_INTERVAL.getStart(),
+                VALID_INTERVAL.getEnd());
+        Interval second = cachingLiftOver.liftOver(VALID_INTERVAL.getContig(), VALID_INTERVAL.getStart(),
+                VALID_INTERVAL.getEnd());
+
+        assertEquals(liftOver.liftOver(VALID_INTERVAL), first);
+        assertSame(first, second);
+        assertEquals(1, cachingLiftOver.getCache().getHitCount());
+
+        // Coordinate lookups cache the full result, so interval lookups hit the same entry
+        assertEquals(liftOver.tryLiftOver(VALID_INTERVAL).getChainId(),
+                cachingLiftOver.tryLiftOver(VALID_INTERVAL).getChainId());
+        assertEquals(1, cachingLiftOver.getCache().getMissCount());
+        assertEquals(2, cachingLiftOver.getCache().getHitCount());
+    }
+
+    @Test
+    public void testCoordinateFailuresAreCachedOnce() {
+        try {
+            cachingLiftOver.liftOver(INVALID_INTERVAL.getContig(), INVALID_INTERVAL.getStart(), INVALID_INTERVAL.getEnd());
+            assertTrue(false);
+        } catch (LiftOverException e) {
+            assertTrue(e.getMessage().contains("UNMAPPED"));
+        }
+        assertEquals(LiftOverStatus.UNMAPPED, cachingLiftOver.tryLiftOver(INVALID_INTERVAL).getStatus());
+        assertEquals(1, cachingLiftOver.getCache().getMissCount());
+        assertEquals(1, cachingLiftOver.getCache().getHitCount());
+    }
+
+    @Test
+    public void testInvalidCoordinatesAreNotCached() throws LiftOverException {
+        try {
+            cachingLiftOver.liftOver(VALID_INTERVAL.getContig(), VALID_INTERVAL.getEnd(), VALID_INTERVAL.getStart());
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            cachingLiftOver.liftOver(VALID_INTERVAL.getContig(), 0, VALID_INTERVAL.getEnd());
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, cachingLiftOver.getCache().size());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.stream;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOver;
+import com.dnastack.beacon.converter.liftover.ucsc.UCSCLiftOver;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class LiftOverPipelineTest {
+
+    private static LiftOver liftover;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        liftover = new UCSCLiftOver(GenomeBuild.HG19, GenomeBuild.HG38);
+    }
+
+    private static String[] run(LiftOverPipeline pipeline, String input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream rejects = new ByteArrayOutputStream();
+        pipeline.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output, rejects);
+        return new String[]{output.toString("UTF-8"), rejects.toString("UTF-8")};
+    }
+
+    @Test
+    public void testBedLiftOverIsSortedWithRejects() throws IOException {
+        LiftOverPipeline pipeline = new LiftOverPipeline(liftover, new BedCodec());
+        pipeline.setBatchSize(2);
+        pipeline.setSortBufferSize(1);
+
+        String input = "track name=test\n"
+                + "chr10\t1000000\t1000001\tb\n"
+                + "chr20\t77777776\t77777778\tmissing\n"
+                + "chr1\t1000000\t1000001\ta\n"
+                + "chr2\t1000000\t1000001\tc\n"
+                + "chr1\tnot-a-number\t1\tbad\n"
+                + "chr1\t743266\t743268\td\n";
+        String[] result = run(pipeline, input);
+
+        assertEquals("track name=test\n"
+                + "chr1\t807886\t807888\td\n"
+                + "chr1\t1064620\t1064621\ta\n"
+                + "chr2\t1004314\t1004315\tc\n"
+                + "chr10\t954060\t954061\tb\n", result[0]);
+        assertEquals("track name=test\n"
+                + "chr20\t77777776\t77777778\tmissing\n"
+                + "chr1\tnot-a-number\t1\tbad\n", result[1]);
+    }
+
+    @Test
+    public void testVcfLiftOver() throws IOException {
+        LiftOverPipeline pipeline = new LiftOverPipeline(liftover, new VcfCodec());
+
+        String input = "##fileformat=VCFv4.1\n"
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n"
+                + "chr1\t743267\trs1\tA\tG\t.\tPASS\t.\n"
+                + "chr20\t77777777\trs2\tC\tT\t.\tPASS\t.\n";
+        String[] result = run(pipeline, input);
+
+        assertEquals("##fileformat=VCFv4.1\n"
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n"
+                + "chr1\t807887\trs1\tA\tG\t.\tPASS\t.\n", result[0]);
+        assertEquals("##fileformat=VCFv4.1\n"
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n"
+                + "chr20\t77777777\trs2\tC\tT\t.\tPASS\t.\n", result[1]);
+    }
+
+    @Test
+    public void testContigOrder() {
+        assertEquals(-1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr2", "chr10")));
+        assertEquals(-1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr10", "chrX")));
+        assertEquals(1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr10", "chr1")));
+        assertEquals(0, ExternalSorter.CONTIG_ORDER.compare("chr1", "chr1"));
+        assertEquals(-1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr02", "chr10")));
+        assertEquals(-1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr19", "chr21")));
+        assertEquals(-1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr0", "chr1")));
+        assertEquals(1, Integer.signum(ExternalSorter.CONTIG_ORDER.compare("chr00", "chr0")));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.ChainFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class ChainFileStoreTest {
+
+    private static final String FILE_NAME = "hg38ToHg19.over.chain";
+    private static final String SHA256_OF_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private File mirror;
+    private byte[] contents;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("store");
+        mirror = folder.newFolder("mirror");
+        File liftOver = new File(mirror, "hg38/liftOver");
+        assertTrue(liftOver.mkdirs());
+        contents = Files.readAllBytes(new File("src/main/resources/chains/hg38/" + FILE_NAME).toPath());
+        Files.write(new File(liftOver, FILE_NAME).toPath(), contents);
+    }
+
+    private File[] objects() {
+        return new File(directory, "objects").listFiles();
+    }
+
+    @Test
+    public void testFetchFromMirrorOnce() throws IOException {
+        ChainFileStore store = new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror);
+        ChainFile chainFile = store.fromUCSC("hg38", "hg19", FILE_NAME);
+        assertEquals("hg38", chainFile.getBuildFrom());
+        assertEquals("hg19", chainFile.getBuildTo());
+        assertArrayEquals(contents, Files.readAllBytes(chainFile.toPath()));
+        assertEquals(contents.length, store.size());
+
+        // Served from the store, the mirror is not read again
+        Files.write(new File(mirror, "hg38/liftOver/" + FILE_NAME).toPath(), "changed".getBytes());
+        assertEquals(chainFile, store.fromUCSC("hg38", "hg19", FILE_NAME));
+        assertEquals(1, objects().length);
+        assertEquals(0, new File(directory, "tmp").listFiles().length);
+    }
+
+    @Test
+    public void testReuseAcrossStores() throws IOException {
+        ChainFile chainFile = new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror)
+                .fromUCSC("hg38", "hg19", FILE_NAME);
+        assertTrue(new File(mirror, "hg38/liftOver/" + FILE_NAME).delete());
+
+        ChainFile reused = new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror)
+                .fromUCSC("hg38", "hg19", FILE_NAME);
+        assertEquals(chainFile, reused);
+        UCSCChainIndex.load(reused);
+    }
+
+    @Test
+    public void testCorruptFileIsFetchedAgain() throws IOException {
+        ChainFile chainFile = new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror)
+                .fromUCSC("hg38", "hg19", FILE_NAME);
+        Files.write(chainFile.toPath(), "corrupt".getBytes());
+
+        ChainFile fetched = new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror)
+                .fromUCSC("hg38", "hg19", FILE_NAME);
+        assertArrayEquals(contents, Files.readAllBytes(fetched.toPath()));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingFromMirror() throws IOException {
+        new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror).fromUCSC("hg38", "hg19", "missing.over.chain");
+    }
+
+    @Test
+    public void testChecksumValidation() throws IOException {
+        File source = folder.newFile("abc.over.chain");
+        Files.write(source.toPath(), "abc".getBytes(StandardCharsets.US_ASCII));
+        ChainFileStore store = new ChainFileStore(directory);
+        try {
+            store.fromUrl(source.toURI().toURL(), SHA256_OF_ABC.replace('b', 'c'), "a", "b");
+            fail("Expected a checksum mismatch");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Checksum mismatch"));
+        }
+        assertEquals(0, objects().length);
+        assertEquals(0, new File(directory, "tmp").listFiles().length);
+
+        ChainFile chainFile = store.fromUrl(source.toURI().toURL(), SHA256_OF_ABC.toUpperCase(), "a", "b");
+        assertEquals(SHA256_OF_ABC + ".over.chain", chainFile.getName());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        ChainFileStore store = new ChainFileStore(directory, 10, null);
+        List<File> files = new ArrayList<>();
+        for (String name : new String[]{"one", "two", "three"}) {
+            File source = folder.newFile(name);
+            Files.write(source.toPath(), (name + "-----").getBytes(StandardCharsets.US_ASCII));
+            files.add(store.fromUrl(source.toURI().toURL(), null, "a", "b"));
+            assertTrue(files.get(files.size() - 1).setLastModified(System.currentTimeMillis()
+                    - 2 * ChainFileStore.EVICTION_GRACE_MILLIS + files.size()));
+        }
+        assertFalse(files.get(0).exists());
+        assertFalse(files.get(1).exists());
+        assertTrue(files.get(2).exists());
+        assertTrue(store.size() <= 10);
+    }
+
+    @Test
+    public void testRecentlyUsedFilesAreNotEvicted() throws IOException {
+        ChainFileStore store = new ChainFileStore(directory, 10, null);
+        List<File> files = new ArrayList<>();
+        for (String name : new String[]{"one", "two"}) {
+            File source = folder.newFile(name);
+            Files.write(source.toPath(), (name + "-----").getBytes(StandardCharsets.US_ASCII));
+            files.add(store.fromUrl(source.toURI().toURL(), null, "a", "b"));
+        }
+        assertTrue(files.get(0).exists());
+        assertTrue(files.get(1).exists());
+        assertTrue(store.size() > 10);
+    }
+
+    @Test
+    public void testStaleTempsAreDeleted() throws IOException {
+        new ChainFileStore(directory);
+        File stale = new File(directory, "tmp/chain1.download");
+        File fresh = new File(directory, "tmp/chain2.download");
+        assertTrue(stale.createNewFile());
+        assertTrue(fresh.createNewFile());
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000L));
+
+        new ChainFileStore(directory);
+        assertFalse(stale.exists());
+        assertTrue(fresh.exists());
+    }
+
+    @Test
+    public void testConcurrentFetch() throws Exception {
+        final ChainFileStore store = new ChainFileStore(directory, ChainFileStore.NO_LIMIT, mirror);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ChainFile>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(new Callable<ChainFile>() {
+                    @Override
+                    public ChainFile call() throws IOException {
+                        return store.fromUCSC("hg38", "hg19", FILE_NAME);
+                    }
+                }));
+            }
+            for (Future<ChainFile> future : futures) {
+                assertEquals(futures.get(0).get(), future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, objects().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMirror() throws IOException {
+        new ChainFileStore(directory, ChainFileStore.NO_LIMIT, new File(mirror, "missing"));
+    }
+}
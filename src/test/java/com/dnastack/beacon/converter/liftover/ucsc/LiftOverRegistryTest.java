@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.util.Interval;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class LiftOverRegistryTest {
+
+    @Test
+    public void testInstancesAreShared() throws IOException {
+        assertSame(LiftOvers.get(GenomeBuild.HG19, GenomeBuild.HG38), LiftOvers.get(GenomeBuild.HG19, GenomeBuild.HG38));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSameGenomeBuild() throws IOException {
+        new LiftOverRegistry().get(GenomeBuild.HG19, GenomeBuild.HG19);
+    }
+
+    @Test
+    public void testFindPath() throws IOException {
+        assertEquals(Arrays.asList(GenomeBuild.HG19, GenomeBuild.HG38), UCSChainFile.findPath(GenomeBuild.HG19, GenomeBuild.HG38));
+        assertEquals(Arrays.asList(GenomeBuild.HG17, GenomeBuild.HG19, GenomeBuild.HG38), UCSChainFile.findPath(GenomeBuild.HG17, GenomeBuild.HG38));
+        assertEquals(Arrays.asList(GenomeBuild.HG38, GenomeBuild.HG19, GenomeBuild.HG18), UCSChainFile.findPath(GenomeBuild.HG38, GenomeBuild.HG18));
+    }
+
+    @Test
+    public void testMultiHopMatchesSequentialLiftOver() throws IOException {
+        LiftOverRegistry registry = new LiftOverRegistry();
+        UCSCChainIndex composed = registry.get(GenomeBuild.HG17, GenomeBuild.HG38).getIndex();
+        UCSCChainIndex first = registry.get(GenomeBuild.HG17, GenomeBuild.HG19).getIndex();
+        UCSCChainIndex second = registry.get(GenomeBuild.HG19, GenomeBuild.HG38).getIndex();
+
+        Random random = new Random(11);
+        int mapped = 0;
+        for (int i = 0; i < 5000; i++) {
+            int position = 1 + random.nextInt(200000000);
+            String contig = "chr" + (1 + random.nextInt(22));
+            Interval middle = first.liftOver(new Interval(contig, position, position), 1.0);
+            Interval expected = middle == null ? null : second.liftOver(middle, 1.0);
+            Interval actual = composed.liftOver(new Interval(contig, position, position), 1.0);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                mapped++;
+                assertEquals(expected, actual);
+                assertEquals(expected.isNegativeStrand(), actual.isNegativeStrand());
+            }
+        }
+        assertTrue(mapped > 0);
+    }
+
+    @Test
+    public void testConcurrentGetsLoadOnce() throws Exception {
+        final LiftOverRegistry registry = new LiftOverRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<UCSCLiftOver>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(new Callable<UCSCLiftOver>() {
+                    @Override
+                    public UCSCLiftOver call() throws IOException {
+                        return registry.get(GenomeBuild.HG18, GenomeBuild.HG19);
+                    }
+                }));
+            }
+            for (Future<UCSCLiftOver> future : futures) {
+                assertSame(futures.get(0).get(), future.get());
+            }
+            assertEquals(1, registry.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentReadersGetSameResults() throws Exception {
+        final UCSCLiftOver liftOver = new LiftOverRegistry().get(GenomeBuild.HG19, GenomeBuild.HG38);
+        final List<Interval> intervals = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int start = 1 + random.nextInt(200000000);
+            intervals.add(new Interval("chr" + (1 + random.nextInt(22)), start, start + random.nextInt(1000)));
+        }
+        final List<LiftOverResult> expected = liftOver.liftOverAll(intervals);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<LiftOverResult>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<List<LiftOverResult>>() {
+                    @Override
+                    public List<LiftOverResult> call() {
+                        List<LiftOverResult> results = new ArrayList<>();
+                        for (Interval interval : intervals) {
+                            results.add(liftOver.liftOverAll(Collections.singletonList(interval)).get(0));
+                        }
+                        return results;
+                    }
+                }));
+            }
+            for (Future<List<LiftOverResult>> future : futures) {
+                List<LiftOverResult> results = future.get();
+                for (int i = 0; i < intervals.size(); i++) {
+                    assertEquals(expected.get(i).getTarget(), results.get(i).getTarget());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemoryBudgetEvictsLeastRecentlyUsed() throws IOException {
+        LiftOverRegistry registry = new LiftOverRegistry(LiftOverRegistry.NO_LIMIT, 1);
+        UCSCLiftOver first = registry.get(GenomeBuild.HG19, GenomeBuild.HG38);
+        registry.get(GenomeBuild.HG38, GenomeBuild.HG19);
+        assertEquals(1, registry.size());
+        assertNotSame(first, registry.get(GenomeBuild.HG19, GenomeBuild.HG38));
+    }
+
+    @Test
+    public void testIdleInstancesAreEvicted() throws Exception {
+        LiftOverRegistry registry = new LiftOverRegistry(1, LiftOverRegistry.NO_LIMIT);
+        registry.get(GenomeBuild.HG19, GenomeBuild.HG38);
+        Thread.sleep(10);
+        registry.evictIdle();
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.getLoadedSize());
+    }
+}
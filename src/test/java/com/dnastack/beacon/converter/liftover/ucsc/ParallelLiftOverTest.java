@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.util.Interval;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class ParallelLiftOverTest {
+
+    private static UCSCLiftOver liftOver;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        liftOver = LiftOvers.get(GenomeBuild.HG19, GenomeBuild.HG38);
+    }
+
+    @Test
+    public void testMatchesSequentialBatch() {
+        List<Interval> intervals = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 50000; i++) {
+            int start = 1 + random.nextInt(250000000);
+            String contig = random.nextInt(50) == 0 ? "chrUnknown" : "chr" + (1 + random.nextInt(22));
+            intervals.add(new Interval(contig, start, start + random.nextInt(2000), random.nextBoolean(), null));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<LiftOverResult> expected = liftOver.liftOverAll(intervals);
+            List<LiftOverResult> actual = new ParallelLiftOver(liftOver, pool, 100).liftOverAll(new LinkedList<>(intervals));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(intervals.get(i), actual.get(i).getSource());
+                assertEquals(expected.get(i).getTarget(), actual.get(i).getTarget());
+                assertEquals(expected.get(i).getStatus(), actual.get(i).getStatus());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultPool() {
+        Interval interval = new Interval("chr1", 743267, 743268);
+        List<LiftOverResult> results = new ParallelLiftOver(liftOver).liftOverAll(Arrays.asList(interval, interval));
+        assertEquals(2, results.size());
+        assertEquals(liftOver.tryLiftOver(interval).getTarget(), results.get(1).getTarget());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(new ParallelLiftOver(liftOver).liftOverAll(new ArrayList<Interval>()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullInterval() {
+        new ParallelLiftOver(liftOver).liftOverAll(Arrays.asList(new Interval("chr1", 1, 2), null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPartitionSize() {
+        new ParallelLiftOver(liftOver, ForkJoinPool.commonPool(), 0);
+    }
+}
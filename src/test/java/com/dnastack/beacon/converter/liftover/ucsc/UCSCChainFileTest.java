@@ -17,7 +17,11 @@ package com.dnastack.beacon.converter.liftover.ucsc;
 
 import com.dnastack.beacon.converter.liftover.api.ChainFile;
 import com.dnastack.beacon.converter.util.GenomeBuild;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -38,6 +42,23 @@ public class UCSCChainFileTest {
     private static final String BUIILD_FROM = "hg38";
     private static final String BUILD_TO = "hg19";
 
+    @ClassRule
+    public static TemporaryFolder storeFolder = new TemporaryFolder();
+
+    /**
+     * Keep remote downloads out of the home directory. The default store is created on first use, which is in this
+     * class
+     */
+    @BeforeClass
+    public static void setUpStore() {
+        System.setProperty(ChainFileStore.DIRECTORY_PROPERTY, storeFolder.getRoot().getPath());
+    }
+
+    @AfterClass
+    public static void tearDownStore() {
+        System.clearProperty(ChainFileStore.DIRECTORY_PROPERTY);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testLeftNullGenomeBuild() {
         try {
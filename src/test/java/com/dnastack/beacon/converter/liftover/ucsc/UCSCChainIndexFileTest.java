@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.util.Interval;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class UCSCChainIndexFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMappedIndexMatchesParsedIndex() throws IOException {
+        UCSChainFile chainFile = new UCSChainFile(GenomeBuild.HG38, GenomeBuild.HG19);
+        File indexFile = folder.newFile("hg38ToHg19.over.idx");
+        UCSCChainIndexFile.compile(chainFile, indexFile);
+
+        UCSCChainIndex parsed = UCSCChainIndex.load(chainFile);
+        UCSCChainIndex mapped = UCSCChainIndexFile.map(indexFile);
+
+        Random random = new Random(38);
+        String[] contigs = {"chr1", "chr3", "chr19", "chrX", "chrUn_KI270442v1"};
+        for (int i = 0; i < 20000; i++) {
+            String contig = contigs[random.nextInt(contigs.length)];
+            int start = 1 + random.nextInt(100000000);
+            Interval interval = new Interval(contig, start, start + random.nextInt(5000));
+            assertEquals(parsed.liftOver(interval, 0.5), mapped.liftOver(interval, 0.5));
+        }
+    }
+
+    @Test
+    public void testLiftOverFromIndexFile() throws IOException, LiftOverException {
+        File indexFile = folder.newFile("hg19ToHg38.over.idx");
+        UCSCChainIndexFile.compile(new UCSChainFile(GenomeBuild.HG19, GenomeBuild.HG38), indexFile);
+
+        Interval result = UCSCLiftOver.fromIndexFile(indexFile, "hg19", "hg38").liftOver(new Interval("chr1", 743267, 743268));
+        assertEquals(807887, result.getStart());
+        assertEquals(807888, result.getEnd());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidIndexFile() throws IOException {
+        File indexFile = folder.newFile("invalid.idx");
+        try (FileOutputStream out = new FileOutputStream(indexFile)) {
+            out.write("chain 1 chr1".getBytes("US-ASCII"));
+        }
+        UCSCChainIndexFile.map(indexFile);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedIndexFile() throws IOException {
+        File indexFile = folder.newFile("truncated.idx");
+        try (FileOutputStream out = new FileOutputStream(indexFile)) {
+            out.write(new byte[]{0x47, 0x43, 0x43, 0x49, 0, 0, 0, 1, 0, 0});
+        }
+        UCSCChainIndexFile.map(indexFile);
+    }
+
+    private File compileSingleBlock() throws IOException {
+        File chainFile = folder.newFile("single.over.chain");
+        try (FileOutputStream out = new FileOutputStream(chainFile)) {
+            out.write("chain 100 chrA 1000 + 100 200 chrB 500 + 50 150 1\n100\n".getBytes("US-ASCII"));
+        }
+        File indexFile = folder.newFile("single.over.idx");
+        UCSCChainIndexFile.write(UCSCChainIndex.load(chainFile), indexFile);
+        return indexFile;
+    }
+
+    @Test
+    public void testUnknownChainInBlockIsRejected() throws IOException {
+        File indexFile = compileSingleBlock();
+        UCSCChainIndexFile.map(indexFile);
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            // Blocks are the last five ints, the chain index of the only block is the fourth of them
+            file.seek(file.length() - 8);
+            file.writeInt(99);
+        }
+        try {
+            UCSCChainIndexFile.map(indexFile);
+            fail("Expected a corrupt index file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("unknown chain 99"));
+        }
+    }
+
+    @Test
+    public void testTruncatedBlocksAreRejected() throws IOException {
+        File indexFile = compileSingleBlock();
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.setLength(file.length() - 4);
+        }
+        try {
+            UCSCChainIndexFile.map(indexFile);
+            fail("Expected a truncated index file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("outside the file"));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.liftover.LiftOver;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.Log;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the chain index against htsjdk liftOver on the bundled chain files
+ *
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class UCSCChainIndexTest {
+
+    private static final String[] CONTIGS = {"chr1", "chr2", "chr7", "chr17", "chrX", "chrY", "chr6_cox_hap2"};
+    private static final double[] MIN_MATCHES = {1.0, 0.95, 0.5, 0.1};
+
+    @BeforeClass
+    public static void setUpClass() {
+        Log.setGlobalLogLevel(Log.LogLevel.ERROR);
+    }
+
+    private static List<Interval> randomIntervals(long seed, int count) {
+        Random random = new Random(seed);
+        List<Interval> intervals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String contig = CONTIGS[random.nextInt(CONTIGS.length)];
+            int start = 1 + random.nextInt(150000000);
+            int length = random.nextBoolean() ? 1 + random.nextInt(10) : 1 + random.nextInt(100000);
+            intervals.add(new Interval(contig, start, start + length - 1, random.nextInt(10) == 0, "interval" + i));
+        }
+        return intervals;
+    }
+
+    private static void assertSameAsHtsjdk(GenomeBuild from, GenomeBuild to) throws IOException {
+        UCSChainFile chainFile = new UCSChainFile(from, to);
+        LiftOver expected = new LiftOver(chainFile);
+        UCSCChainIndex index = UCSCChainIndex.load(chainFile);
+
+        int mapped = 0;
+        for (Interval interval : randomIntervals(from.getBuild() * 100 + to.getBuild(), 4000)) {
+            for (double minMatch : MIN_MATCHES) {
+                Interval result = index.liftOver(interval, minMatch);
+                Interval reference = expected.liftOver(interval, minMatch);
+                assertEquals(interval + " " + minMatch, reference, result);
+                if (reference != null) {
+                    assertEquals(reference.isNegativeStrand(), result.isNegativeStrand());
+                    assertEquals(reference.getName(), result.getName());
+                    mapped++;
+                }
+            }
+        }
+        assertTrue(mapped > 0);
+    }
+
+    private static UCSCChainIndex parse(String chains) throws IOException {
+        return UCSCChainIndex.parse(new ByteArrayInputStream(chains.getBytes(StandardCharsets.US_ASCII)), "test");
+    }
+
+    @Test
+    public void testHg19ToHg38MatchesHtsjdk() throws IOException {
+        assertSameAsHtsjdk(GenomeBuild.HG19, GenomeBuild.HG38);
+    }
+
+    @Test
+    public void testHg38ToHg19MatchesHtsjdk() throws IOException {
+        assertSameAsHtsjdk(GenomeBuild.HG38, GenomeBuild.HG19);
+    }
+
+    @Test
+    public void testHg18ToHg17MatchesHtsjdk() throws IOException {
+        assertSameAsHtsjdk(GenomeBuild.HG18, GenomeBuild.HG17);
+    }
+
+    @Test
+    public void testSortedSweepMatchesSingleLookups() throws IOException {
+        UCSCChainIndex index = UCSCChainIndex.load(new UCSChainFile(GenomeBuild.HG38, GenomeBuild.HG19));
+        List<Interval> intervals = randomIntervals(42, 5000);
+        LiftOverResult[] results = new LiftOverResult[intervals.size()];
+        index.liftOverSorted(intervals, UCSCLiftOver.sortedOrder(intervals), 0.5, results);
+
+        for (int i = 0; i < intervals.size(); i++) {
+            assertEquals(index.liftOver(intervals.get(i), 0.5), results[i].getTarget());
+        }
+    }
+
+    @Test
+    public void testNegativeStrandChain() throws IOException {
+        String chain = "chain 100 chrA 1000 + 100 200 chrB 500 - 50 150 1\n"
+                + "40\t10\t10\n"
+                + "50\n"
+                + "\n";
+        UCSCChainIndex index = parse(chain);
+
+        Interval result = index.liftOver(new Interval("chrA", 101, 110), 1.0);
+        assertEquals(new Interval("chrB", 441, 450), result);
+        assertTrue(result.isNegativeStrand());
+
+        assertNull(index.liftOver(new Interval("chrA", 141, 150), 0.1));
+        assertNull(index.liftOver(new Interval("chrC", 101, 110), 0.1));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedChainFile() throws IOException {
+        parse("chain 100 chrA 1000 + 100 200 chrB 500 + 50 150 1\n40\t10\t10\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidChainHeader() throws IOException {
+        parse("chain 100 chrA\n");
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.liftover.ucsc;
+
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that parallel, chunked and compressed chain file loading builds the same index as parsing the whole file as
+ * a single chunk on the calling thread
+ *
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class UCSCChainParserTest {
+
+    private static final String CHAINS = "chain 100 chrA 1000 + 100 200 chrB 500 - 50 150 1\n"
+            + "40\t10\t10\n"
+            + "50\n"
+            + "\n"
+            + "chain 200 chrA 1000 + 300 400 chrC 800 + 0 100 2\n"
+            + "100\n"
+            + "\n"
+            + "chain 300 chrD 900 + 0 60 chrB 500 + 200 260 3\n"
+            + "20 5 5\n"
+            + "10 5 5\n"
+            + "15\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static UCSCChainIndex singleChunk(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return UCSCChainIndex.parse(input, file.toString());
+        }
+    }
+
+    private static UCSCChainIndex singleChunk(String chains) throws IOException {
+        return UCSCChainIndex.parse(new ByteArrayInputStream(chains.getBytes(StandardCharsets.US_ASCII)), "test");
+    }
+
+    private static UCSCChainIndex parallel(String chains, int chunkSize) throws IOException {
+        InputStream input = new ByteArrayInputStream(chains.getBytes(StandardCharsets.US_ASCII));
+        return UCSCChainParser.parse(input, "test", 4, chunkSize);
+    }
+
+    private static void assertSameIndex(UCSCChainIndex expected, UCSCChainIndex actual) {
+        assertArrayEquals(expected.chainToContigs, actual.chainToContigs);
+        assertArrayEquals(expected.chainToSizes, actual.chainToSizes);
+        assertArrayEquals(expected.chainIds, actual.chainIds);
+        assertArrayEquals(expected.chainScores, actual.chainScores, 0);
+        assertEquals(expected.chainNegative.length, actual.chainNegative.length);
+        for (int i = 0; i < expected.chainNegative.length; i++) {
+            assertEquals(expected.chainNegative[i], actual.chainNegative[i]);
+        }
+        assertEquals(expected.contigs.keySet(), actual.contigs.keySet());
+        for (String contig : expected.contigs.keySet()) {
+            UCSCChainIndex.ContigIndex left = expected.contigs.get(contig);
+            UCSCChainIndex.ContigIndex right = actual.contigs.get(contig);
+            assertEquals(left.size, right.size);
+            for (int block = 0; block < left.size; block++) {
+                assertEquals(left.start(block), right.start(block));
+                assertEquals(left.end(block), right.end(block));
+                assertEquals(left.toStart(block), right.toStart(block));
+                assertEquals(left.chain(block), right.chain(block));
+                assertEquals(left.maxEnd(block), right.maxEnd(block));
+            }
+        }
+    }
+
+    private static String error(String chains, int chunkSize) {
+        try {
+            parallel(chains, chunkSize);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        fail("Expected an IOException");
+        return null;
+    }
+
+    private static String singleChunkError(String chains) {
+        try {
+            singleChunk(chains);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        fail("Expected an IOException");
+        return null;
+    }
+
+    @Test
+    public void testSmallChunksMatchSingleChunk() throws IOException {
+        UCSCChainIndex expected = singleChunk(CHAINS);
+        for (int chunkSize = 1; chunkSize < CHAINS.length() + 2; chunkSize++) {
+            assertSameIndex(expected, parallel(CHAINS, chunkSize));
+        }
+        assertSameIndex(expected, parallel(CHAINS.replace("\n", "\r\n"), 16));
+    }
+
+    @Test
+    public void testBundledChainFileMatchesSingleChunk() throws IOException {
+        File file = new UCSChainFile(GenomeBuild.HG19, GenomeBuild.HG38);
+        UCSCChainIndex expected = singleChunk(file);
+        try (InputStream input = UCSCChainParser.decompress(new FileInputStream(file))) {
+            assertSameIndex(expected, UCSCChainParser.parse(input, file.toString(), 4, 1 << 16));
+        }
+        assertSameIndex(expected, UCSCChainIndex.load(file, 1));
+    }
+
+    @Test
+    public void testGzippedChainFile() throws IOException {
+        File file = new UCSChainFile(GenomeBuild.HG19, GenomeBuild.HG38);
+        File compressed = folder.newFile("hg19ToHg38.over.chain.gz");
+        try (InputStream input = new FileInputStream(file);
+             OutputStream output = new GZIPOutputStream(new FileOutputStream(compressed))) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        assertSameIndex(singleChunk(file), UCSCChainIndex.load(compressed));
+    }
+
+    @Test
+    public void testMultiMemberGzip() throws IOException {
+        // BGZF files are a series of independent gzip members
+        File compressed = folder.newFile("test.over.chain.gz");
+        int split = CHAINS.indexOf("chain 200");
+        try (OutputStream output = new FileOutputStream(compressed)) {
+            for (String member : new String[]{CHAINS.substring(0, split), CHAINS.substring(split)}) {
+                GZIPOutputStream gzip = new GZIPOutputStream(output);
+                gzip.write(member.getBytes(StandardCharsets.US_ASCII));
+                gzip.finish();
+            }
+        }
+        assertSameIndex(singleChunk(CHAINS), UCSCChainIndex.load(compressed, 2));
+    }
+
+    @Test
+    public void testErrorsMatchSingleChunk() {
+        String[] invalid = {
+                CHAINS.replace("100\n", "100\t5\n"),
+                CHAINS.replace("10 5 5\n", "10 x 5\n"),
+                CHAINS.replace("chrC 800", "chrC size"),
+                CHAINS.replace("chain 300 chrD 900 + 0 60", "chain 300 chrD 900"),
+                CHAINS.replace("100\n\n", "100\t5\t5\n\n"),
+                CHAINS.replace("15\n", "15\t2\t2\n"),
+                CHAINS.replace("40\t10", "99999999999\t10")
+        };
+        for (String chains : invalid) {
+            String expected = singleChunkError(chains);
+            for (int chunkSize = 1; chunkSize < chains.length() + 2; chunkSize += 7) {
+                assertEquals(expected, error(chains, chunkSize));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyChainFile() throws IOException {
+        assertEquals(0, parallel("", 16).chainIds.length);
+        assertEquals(0, parallel("# comment only\n", 16).chainIds.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() throws IOException {
+        UCSCChainIndex.load(new UCSChainFile(GenomeBuild.HG19, GenomeBuild.HG38), 0);
+    }
+}
@@ -16,6 +16,9 @@
 package com.dnastack.beacon.converter.liftover.ucsc;
 
 import com.dnastack.beacon.converter.liftover.api.LiftOver;
+import com.dnastack.beacon.converter.liftover.api.LiftOverResult;
+import com.dnastack.beacon.converter.liftover.api.LiftOverSegment;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
 import com.dnastack.beacon.converter.util.GenomeBuild;
 import com.dnastack.beacon.converter.liftover.exception.LiftOverException;
 import htsjdk.samtools.util.Interval;
@@ -24,9 +27,24 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author patrickmagee
@@ -53,6 +71,10 @@ public class UCSCLiftOverTest {
         liftover = new UCSCLiftOver(GenomeBuild.HG19, GenomeBuild.HG38);
     }
 
+    private static UCSCChainIndex parse(String chains) throws IOException {
+        return UCSCChainIndex.parse(new ByteArrayInputStream(chains.getBytes(StandardCharsets.US_ASCII)), "test");
+    }
+
     @Test
     public void testIntervalLiftOverCreation() throws IOException {
         LiftOver liftOver = new UCSCLiftOver(GenomeBuild.HG19, GenomeBuild.HG38);
@@ -64,6 +86,17 @@ public class UCSCLiftOverTest {
 
     }
 
+    @Test(expected = UncheckedIOException.class)
+    public void testIntervalLiftOverCreationFromInvalidChainFile() throws IOException {
+        File file = File.createTempFile("invalid", ".chain");
+        try {
+            Files.write(file.toPath(), "not a chain file\n".getBytes(StandardCharsets.US_ASCII));
+            new UCSCLiftOver(new UCSChainFile(file.getAbsolutePath(), "a", "b"));
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testIntervalLiftOverCreationLeftNullParams() throws IOException {
         LiftOver liftOver = new UCSCLiftOver(null, GenomeBuild.HG38);
@@ -94,6 +127,16 @@ public class UCSCLiftOverTest {
         liftover.liftOver(VALID_CONTIG, ERROR_VALUE, VALID_STOP);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testLiftOverWithZeroStart() throws LiftOverException {
+        liftover.liftOver(VALID_CONTIG, 0, VALID_STOP);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLiftOverWithZeroStartAndMinMatch() throws LiftOverException {
+        liftover.liftOver(VALID_CONTIG, 0, VALID_STOP, UCSCLiftOver.DEFAULT_MIN_MATCH);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testLiftOverWithInvalidStop() throws LiftOverException {
         liftover.liftOver(VALID_CONTIG, VALID_START, ERROR_VALUE);
@@ -121,4 +164,344 @@ public class UCSCLiftOverTest {
         Interval result = liftover.liftOver(INVALID_INTERVAL);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLiftOverAllPreservesInputOrder() throws LiftOverException {
+        Interval later = new Interval(VALID_CONTIG, 1000000, 1000001);
+        List<Interval> intervals = Arrays.asList(later, INVALID_INTERVAL, VALID_INTERVAL);
+
+        List<LiftOverResult> results = liftover.liftOverAll(intervals);
+        assertEquals(intervals.size(), results.size());
+
+        assertSame(later, results.get(0).getSource());
+        assertTrue(results.get(0).isMapped());
+        assertEquals(liftover.liftOver(later), results.get(0).getTarget());
+
+        assertSame(INVALID_INTERVAL, results.get(1).getSource());
+        assertFalse(results.get(1).isMapped());
+        assertNull(results.get(1).getTarget());
+
+        assertSame(VALID_INTERVAL, results.get(2).getSource());
+        assertEquals(liftover.liftOver(VALID_INTERVAL), results.get(2).getTarget());
+    }
+
+    @Test
+    public void testLiftOverAllEmpty() {
+        assertTrue(liftover.liftOverAll(new ArrayList<Interval>()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLiftOverAllWithNullIntervals() {
+        liftover.liftOverAll(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLiftOverAllWithNullInterval() {
+        liftover.liftOverAll(Arrays.asList(VALID_INTERVAL, null));
+    }
+
+    @Test
+    public void testTryLiftOver() throws LiftOverException {
+        LiftOverResult result = liftover.tryLiftOver(VALID_INTERVAL);
+        assertTrue(result.isMapped());
+        assertEquals(LiftOverStatus.MAPPED, result.getStatus());
+        assertSame(VALID_INTERVAL, result.getSource());
+        assertEquals(liftover.liftOver(VALID_INTERVAL), result.getTarget());
+    }
+
+    @Test
+    public void testTryLiftOverReportsReason() {
+        LiftOverResult result = liftover.tryLiftOver(INVALID_INTERVAL);
+        assertFalse(result.isMapped());
+        assertNull(result.getTarget());
+        assertEquals(LiftOverStatus.UNMAPPED, result.getStatus());
+
+        assertEquals(LiftOverStatus.UNKNOWN_CONTIG, liftover.tryLiftOver(new Interval("chrUnknown", VALID_START, VALID_STOP)).getStatus());
+        assertEquals(LiftOverStatus.UNKNOWN_CONTIG, liftover.liftOverAll(Arrays.asList(new Interval("chrUnknown", VALID_START, VALID_STOP))).get(0).getStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTryLiftOverWithNullInterval() {
+        liftover.tryLiftOver(null);
+    }
+
+    @Test
+    public void testLiftOverIntoTarget() throws LiftOverException {
+        UCSCLiftOver ucscLiftOver = (UCSCLiftOver) liftover;
+        LiftOverTarget target = new LiftOverTarget();
+        Interval expected = liftover.liftOver(VALID_INTERVAL);
+
+        assertEquals(LiftOverStatus.MAPPED, ucscLiftOver.liftOver(VALID_CONTIG, VALID_START, VALID_STOP, target));
+        assertTrue(target.isMapped());
+        assertEquals(expected.getContig(), target.getContig());
+        assertEquals(expected.getStart(), target.getStart());
+        assertEquals(expected.getEnd(), target.getEnd());
+        assertEquals(expected.isNegativeStrand(), target.isReverseComplemented());
+    }
+
+    @Test
+    public void testLiftOverIntoTargetStatuses() {
+        UCSCLiftOver ucscLiftOver = (UCSCLiftOver) liftover;
+        LiftOverTarget target = new LiftOverTarget();
+
+        assertEquals(LiftOverStatus.UNMAPPED, ucscLiftOver.liftOver(INVALID_CONTIG, INVALID_START, INVALID_STOP, target));
+        assertFalse(target.isMapped());
+        assertNull(target.getContig());
+        assertEquals(LiftOverStatus.UNKNOWN_CONTIG, ucscLiftOver.liftOver("chrUnknown", VALID_START, VALID_STOP, target));
+        assertEquals(LiftOverStatus.INVALID_INTERVAL, ucscLiftOver.liftOver(VALID_CONTIG, VALID_STOP, VALID_START, target));
+        assertEquals(LiftOverStatus.INVALID_INTERVAL, ucscLiftOver.liftOver(VALID_CONTIG, 0, VALID_STOP, target));
+        assertEquals(LiftOverStatus.MAPPED, ucscLiftOver.liftOver(VALID_CONTIG, VALID_START, VALID_START, target));
+    }
+
+    @Test
+    public void testLiftOverIntoTargetMatchesIntervals() {
+        UCSCLiftOver ucscLiftOver = (UCSCLiftOver) liftover;
+        LiftOverTarget target = new LiftOverTarget();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            int start = 1 + random.nextInt(200000000);
+            Interval interval = new Interval("chr" + (1 + random.nextInt(22)), start, start + random.nextInt(5000));
+            Interval expected = ucscLiftOver.getIndex().liftOver(interval, UCSCLiftOver.DEFAULT_MIN_MATCH);
+
+            LiftOverStatus status = ucscLiftOver.liftOver(interval.getContig(), interval.getStart(), interval.getEnd(), target);
+            assertEquals(expected != null, status.isMapped());
+            if (expected != null) {
+                assertEquals(expected, new Interval(target.getContig(), target.getStart(), target.getEnd(),
+                        target.isReverseComplemented(), null));
+            }
+        }
+    }
+
+    @Test
+    public void testLiftOverIntoTargetDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        UCSCLiftOver ucscLiftOver = (UCSCLiftOver) liftover;
+        LiftOverTarget target = new LiftOverTarget();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20000; i++) {
+            ucscLiftOver.liftOver(VALID_CONTIG, VALID_START + i, VALID_STOP + i, target);
+        }
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100000; i++) {
+            ucscLiftOver.liftOver(VALID_CONTIG, VALID_START + i, VALID_STOP + i, target);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("Allocated " + allocated + " bytes", allocated < 16 * 1024);
+    }
+
+    @Test
+    public void testLiftOverSegmentsAcrossGapsAndChains() throws IOException {
+        String chains = "chain 100 chrA 1000 + 100 200 chrB 500 + 50 150 7\n"
+                + "40\t10\t10\n"
+                + "50\n"
+                + "\n"
+                + "chain 50 chrA 1000 + 300 400 chrC 800 - 0 100 8\n"
+                + "100\n";
+        UCSCLiftOver ucscLiftOver = new UCSCLiftOver(parse(chains), "a", "b");
+        Interval region = new Interval("chrA", 121, 330);
+        assertFalse(ucscLiftOver.tryLiftOver(region).isMapped());
+
+        List<LiftOverSegment> segments = ucscLiftOver.liftOverSegments(region);
+        assertEquals(3, segments.size());
+        assertEquals(new Interval("chrA", 121, 140), segments.get(0).getSource());
+        assertEquals(new Interval("chrB", 71, 90), segments.get(0).getTarget());
+        assertEquals(7, segments.get(0).getChainId());
+        assertEquals(20 / 210.0, segments.get(0).getFraction(), 1e-9);
+        assertEquals(new Interval("chrA", 151, 200), segments.get(1).getSource());
+        assertEquals(new Interval("chrB", 101, 150), segments.get(1).getTarget());
+        assertEquals(new Interval("chrA", 301, 330), segments.get(2).getSource());
+        assertEquals(new Interval("chrC", 771, 800, true, null), segments.get(2).getTarget());
+        assertEquals(8, segments.get(2).getChainId());
+
+        assertTrue(ucscLiftOver.liftOverSegments(new Interval("chrA", 201, 300)).isEmpty());
+        assertTrue(ucscLiftOver.liftOverSegments(new Interval("chrZ", 1, 100)).isEmpty());
+    }
+
+    @Test
+    public void testUnmappedIsDistinctFromBelowMinMatch() throws IOException {
+        String chains = "chain 100 chrA 1000 + 100 200 chrB 500 + 50 150 7\n"
+                + "40\t10\t10\n"
+                + "50\n";
+        UCSCLiftOver ucscLiftOver = new UCSCLiftOver(parse(chains), "a", "b");
+        LiftOverTarget target = new LiftOverTarget();
+
+        assertEquals(LiftOverStatus.UNMAPPED, ucscLiftOver.tryLiftOver(new Interval("chrA", 142, 149)).getStatus());
+        assertEquals(LiftOverStatus.UNMAPPED, ucscLiftOver.liftOver("chrA", 142, 149, target));
+        assertEquals(LiftOverStatus.UNMAPPED, ucscLiftOver.liftPosition("chrA", 145, target));
+        assertEquals(LiftOverStatus.BELOW_MIN_MATCH, ucscLiftOver.tryLiftOver(new Interval("chrA", 131, 160)).getStatus());
+        assertEquals(LiftOverStatus.BELOW_MIN_MATCH, ucscLiftOver.liftOver("chrA", 131, 160, target));
+        assertEquals(LiftOverStatus.MAPPED, ucscLiftOver.tryLiftOver(new Interval("chrA", 131, 160), 0.5).getStatus());
+
+        List<LiftOverResult> batch = ucscLiftOver.liftOverAll(Arrays.asList(new Interval("chrA", 142, 149),
+                new Interval("chrA", 131, 160)));
+        assertEquals(LiftOverStatus.UNMAPPED, batch.get(0).getStatus());
+        assertEquals(LiftOverStatus.BELOW_MIN_MATCH, batch.get(1).getStatus());
+    }
+
+    @Test
+    public void testLiftOverSegmentsMatchLiftOver() {
+        UCSCLiftOver ucscLiftOver = (UCSCLiftOver) liftover;
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int start = 1 + random.nextInt(100000000);
+            Interval position = new Interval(VALID_CONTIG, start, start);
+            LiftOverResult result = ucscLiftOver.tryLiftOver(position, 1.0);
+            List<LiftOverSegment> segments = ucscLiftOver.liftOverSegments(position);
+            if (result.isMapped()) {
+                assertEquals(1, segments.size());
+                assertEquals(result.getTarget(), segments.get(0).getTarget());
+                assertEquals(1.0, segments.get(0).getFraction(), 0);
+            } else if (result.getStatus() == LiftOverStatus.UNMAPPED) {
+                assertTrue(segments.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testResultCarriesChainMetadata() throws IOException {
+        String chains = "chain 100 chrA 1000 + 100 200 chrB 500 + 50 150 7\n"
+                + "40\t10\t10\n"
+                + "50\n"
+                + "\n"
+                + "chain 50 chrA 1000 + 300 400 chrC 800 - 0 100 8\n"
+                + "100\n";
+        UCSCLiftOver ucscLiftOver = new UCSCLiftOver(parse(chains), "a", "b");
+
+        LiftOverResult forward = ucscLiftOver.tryLiftOver(new Interval("chrA", 131, 160), 0.5);
+        assertEquals(new Interval("chrB", 81, 110), forward.getTarget());
+        assertEquals(7, forward.getChainId());
+        assertEquals(100, forward.getScore(), 0);
+        assertEquals(20 / 30.0, forward.getMatchedFraction(), 1e-9);
+        assertFalse(forward.isNegativeStrand());
+        assertFalse(forward.isReverseComplemented());
+
+        LiftOverResult reverse = ucscLiftOver.tryLiftOver(new Interval("chrA", 301, 310));
+        assertEquals(8, reverse.getChainId());
+        assertEquals(50, reverse.getScore(), 0);
+        assertEquals(1.0, reverse.getMatchedFraction(), 0);
+        assertTrue(reverse.isNegativeStrand());
+        assertTrue(reverse.isReverseComplemented());
+
+        LiftOverResult reverseOfNegative = ucscLiftOver.tryLiftOver(new Interval("chrA", 301, 310, true, null));
+        assertFalse(reverseOfNegative.isNegativeStrand());
+        assertTrue(reverseOfNegative.isReverseComplemented());
+
+        LiftOverResult unmapped = ucscLiftOver.tryLiftOver(new Interval("chrA", 201, 300));
+        assertEquals(LiftOverResult.NO_CHAIN, unmapped.getChainId());
+        assertTrue(Double.isNaN(unmapped.getScore()));
+        assertFalse(unmapped.isReverseComplemented());
+
+        LiftOverTarget target = new LiftOverTarget();
+        ucscLiftOver.liftOver("chrA", 301, 310, target);
+        assertEquals(8, target.getChainId());
+        assertEquals(50, target.getScore(), 0);
+        ucscLiftOver.liftOver("chrA", 201, 300, target);
+        assertEquals(LiftOverResult.NO_CHAIN, target.getChainId());
+
+        List<LiftOverResult> batch = ucscLiftOver.liftOverAll(Arrays.asList(new Interval("chrA", 101, 140),
+                new Interval("chrA", 301, 310)));
+        assertEquals(7, batch.get(0).getChainId());
+        assertEquals(8, batch.get(1).getChainId());
+    }
+
+    @Test
+    public void testLiftOverCoordinates() throws LiftOverException {
+        assertEquals(liftover.liftOver(VALID_INTERVAL), liftover.liftOver(VALID_CONTIG, VALID_START, VALID_STOP));
+        assertEquals(liftover.liftOver(new Interval(VALID_CONTIG, VALID_START, VALID_START)),
+                liftover.liftOver(VALID_CONTIG, VALID_START, VALID_START, 1.0));
+    }
+
+    @Test
+    public void testLiftPositionMatchesSingleBaseLiftOver() throws IOException {
+        UCSCLiftOver[] liftOvers = {(UCSCLiftOver) liftover, LiftOvers.get(GenomeBuild.HG17, GenomeBuild.HG38)};
+        LiftOverTarget expected = new LiftOverTarget();
+        LiftOverTarget actual = new LiftOverTarget();
+        Random random = new Random(11);
+        for (UCSCLiftOver ucscLiftOver : liftOvers) {
+            for (int i = 0; i < 20000; i++) {
+                String contig = random.nextInt(50) == 0 ? INVALID_CONTIG : "chr" + (1 + random.nextInt(3));
+                int position = 1 + random.nextInt(200000000);
+                LiftOverStatus status = ucscLiftOver.liftOver(contig, position, position, 1.0, expected);
+                assertEquals(status, ucscLiftOver.liftPosition(contig, position, actual));
+                assertEquals(expected.toString(), actual.toString());
+                assertEquals(expected.getChainId(), actual.getChainId());
+            }
+        }
+        assertEquals(LiftOverStatus.INVALID_INTERVAL, liftOvers[0].liftPosition(VALID_CONTIG, 0, actual));
+    }
+
+    @Test
+    public void testLiftPositionOnNegativeStrandChain() throws IOException {
+        String chains = "chain 50 chrA 1000 + 300 400 chrC 800 - 0 100 8\n"
+                + "100\n";
+        UCSCLiftOver ucscLiftOver = new UCSCLiftOver(parse(chains), "a", "b");
+        LiftOverTarget target = new LiftOverTarget();
+        assertEquals(LiftOverStatus.MAPPED, ucscLiftOver.liftPosition("chrA", 301, target));
+        assertEquals("chrC", target.getContig());
+        assertEquals(800, target.getStart());
+        assertEquals(800, target.getEnd());
+        assertTrue(target.isReverseComplemented());
+        assertEquals(LiftOverStatus.MAPPED, ucscLiftOver.liftPosition("chrA", 400, target));
+        assertEquals(701, target.getStart());
+        assertEquals(LiftOverStatus.UNMAPPED, ucscLiftOver.liftPosition("chrA", 401, target));
+        assertEquals(LiftOverStatus.UNMAPPED, ucscLiftOver.liftPosition("chrA", 300, target));
+    }
+
+    @Test
+    public void testLiftPositionDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        UCSCLiftOver ucscLiftOver = (UCSCLiftOver) liftover;
+        LiftOverTarget target = new LiftOverTarget();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20000; i++) {
+            ucscLiftOver.liftPosition(VALID_CONTIG, VALID_START + i, target);
+        }
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100000; i++) {
+            ucscLiftOver.liftPosition(VALID_CONTIG, VALID_START + i, target);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("Allocated " + allocated + " bytes", allocated < 16 * 1024);
+    }
+
+    @Test
+    public void testDefaultMethodsOfExternalLiftOver() {
+        LiftOver external = new LiftOver() {
+            @Override
+            public Interval liftOver(String contig, int start, int end) throws LiftOverException {
+                return liftover.liftOver(contig, start, end);
+            }
+
+            @Override
+            public Interval liftOver(String contig, int start, int end, double minMatch) throws LiftOverException {
+                return liftover.liftOver(contig, start, end, minMatch);
+            }
+
+            @Override
+            public Interval liftOver(Interval interval) throws LiftOverException {
+                return liftover.liftOver(interval);
+            }
+
+            @Override
+            public Interval liftOver(Interval interval, double minMatch) throws LiftOverException {
+                return liftover.liftOver(interval, minMatch);
+            }
+        };
+
+        assertEquals(liftover.tryLiftOver(VALID_INTERVAL).getTarget(), external.tryLiftOver(VALID_INTERVAL).getTarget());
+        assertFalse(external.tryLiftOver(INVALID_INTERVAL, 0.5).isMapped());
+        List<LiftOverResult> results = external.liftOverAll(Arrays.asList(VALID_INTERVAL, INVALID_INTERVAL));
+        assertTrue(results.get(0).isMapped());
+        assertFalse(results.get(1).isMapped());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class DropwizardMetricsRecorderTest {
+
+    @Test
+    public void testRecordsToRegistry() {
+        MetricRegistry registry = new MetricRegistry();
+        DropwizardMetricsRecorder recorder = new DropwizardMetricsRecorder(registry, "converter");
+
+        recorder.recordTime(Metrics.LIFTOVER_LOOKUP, TimeUnit.MILLISECONDS.toNanos(2));
+        recorder.recordTime(Metrics.LIFTOVER_LOOKUP, TimeUnit.MILLISECONDS.toNanos(4));
+        recorder.increment(Metrics.TASK_FAILURES, 3);
+        recorder.registerGauge(Metrics.REGISTRY_SIZE, new Gauge() {
+            @Override
+            public long getValue() {
+                return 7;
+            }
+        });
+
+        assertEquals(2, registry.timer("converter." + Metrics.LIFTOVER_LOOKUP).getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(4),
+                registry.timer("converter." + Metrics.LIFTOVER_LOOKUP).getSnapshot().getMax());
+        assertEquals(3, registry.counter("converter." + Metrics.TASK_FAILURES).getCount());
+        assertEquals(7L, registry.getGauges().get("converter." + Metrics.REGISTRY_SIZE).getValue());
+    }
+
+    @Test
+    public void testGaugeCanBeRegisteredAgain() {
+        MetricRegistry registry = new MetricRegistry();
+        DropwizardMetricsRecorder recorder = new DropwizardMetricsRecorder(registry, null);
+        recorder.registerGauge(Metrics.REGISTRY_SIZE, new Gauge() {
+            @Override
+            public long getValue() {
+                return 1;
+            }
+        });
+        recorder.registerGauge(Metrics.REGISTRY_SIZE, new Gauge() {
+            @Override
+            public long getValue() {
+                return 2;
+            }
+        });
+        assertEquals(2L, registry.getGauges().get(Metrics.REGISTRY_SIZE).getValue());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.metrics;
+
+import com.dnastack.beacon.converter.hgvs.HGVSConverter;
+import com.dnastack.beacon.converter.hgvs.task.HgvsToGenomicTask;
+import com.dnastack.beacon.converter.liftover.api.LiftOverStatus;
+import com.dnastack.beacon.converter.liftover.ucsc.LiftOvers;
+import com.dnastack.beacon.converter.liftover.ucsc.UCSCLiftOver;
+import com.dnastack.beacon.converter.util.GenomeBuild;
+import htsjdk.samtools.util.Interval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patrickmagee
+ */
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+    private RecordingMetricsRecorder recorder;
+
+    @Before
+    public void setUp() {
+        recorder = new RecordingMetricsRecorder();
+        Metrics.setRecorder(recorder);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setRecorder(null);
+        System.clearProperty(HgvsToGenomicTask.SCRIPT_PROPERTY);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Metrics.setRecorder(null);
+        assertFalse(Metrics.isEnabled());
+        assertEquals(0, Metrics.start());
+    }
+
+    @Test
+    public void testLiftOverMetrics() throws Exception {
+        UCSCLiftOver liftOver = new UCSCLiftOver(GenomeBuild.HG19, GenomeBuild.HG38);
+        assertTrue(recorder.times.containsKey(Metrics.CHAIN_LOAD));
+
+        liftOver.tryLiftOver(new Interval("chr1", 743267, 743268));
+        liftOver.tryLiftOver(new Interval("chrUnknown", 1, 2));
+        assertEquals(Long.valueOf(2), recorder.times.get(Metrics.LIFTOVER_LOOKUP));
+        assertEquals(Long.valueOf(1), recorder.counters.get(Metrics.LIFTOVER_STATUS + LiftOverStatus.MAPPED));
+        assertEquals(Long.valueOf(1), recorder.counters.get(Metrics.LIFTOVER_STATUS + LiftOverStatus.UNKNOWN_CONTIG));
+
+        liftOver.liftOverAll(Arrays.asList(new Interval("chr1", 743267, 743268), new Interval("chr1", 743267, 743268)));
+        assertEquals(Long.valueOf(1), recorder.times.get(Metrics.LIFTOVER_BATCH));
+        assertEquals(Long.valueOf(3), recorder.counters.get(Metrics.LIFTOVER_STATUS + LiftOverStatus.MAPPED));
+    }
+
+    @Test
+    public void testGaugesAreRegisteredWithLaterRecorders() {
+        LiftOvers.registry();
+        RecordingMetricsRecorder later = new RecordingMetricsRecorder();
+        Metrics.setRecorder(later);
+        assertNotNull(later.gauges.get(Metrics.REGISTRY_LOADED_BYTES));
+        assertNotNull(later.gauges.get(Metrics.REGISTRY_SIZE));
+    }
+
+    @Test
+    public void testHGVSMetrics() throws Exception {
+        System.setProperty(HgvsToGenomicTask.SCRIPT_PROPERTY, "src/test/resources/hgvs/stubHgvsToGenomic.py");
+        HGVSConverter.hgvsToGenomic(Arrays.asList("NM_182763.2:c.688+403C>T", "INVALID"));
+
+        assertEquals(Long.valueOf(1), recorder.counters.get(Metrics.HGVS_PYTHON));
+        assertEquals(Long.valueOf(1), recorder.counters.get(Metrics.HGVS_IN_PROCESS));
+        assertEquals(Long.valueOf(1), recorder.times.get(Metrics.TASK_SPAWN));
+        assertEquals(Long.valueOf(1), recorder.times.get(Metrics.TASK_RUN));
+        assertEquals(Long.valueOf(1), recorder.times.get(Metrics.HGVS_PARSE));
+    }
+
+    /**
+     * Recorder counting timings and summing counters
+     */
+    private static class RecordingMetricsRecorder implements MetricsRecorder {
+
+        private final Map<String, Long> times = new ConcurrentHashMap<>();
+        private final Map<String, Long> counters = new ConcurrentHashMap<>();
+        private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+        @Override
+        public void recordTime(String name, long nanos) {
+            assertTrue(nanos >= 0);
+            times.merge(name, 1L, Long::sum);
+        }
+
+        @Override
+        public void increment(String name, long count) {
+            counters.merge(name, count, Long::sum);
+        }
+
+        @Override
+        public void registerGauge(String name, Gauge gauge) {
+            gauges.put(name, gauge);
+        }
+    }
+}
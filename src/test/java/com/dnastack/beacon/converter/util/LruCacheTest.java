@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 DNAstack
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.dnastack.beacon.converter.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author patmagee
+ */
+@RunWith(JUnit4.class)
+public class LruCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testStatistics() {
+        LruCache<String, String> cache = new LruCache<>(10);
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testWeightBound() {
+        LruCache<String, String> cache = new LruCache<>(10000, new LruCache.Weigher<String, String>() {
+            @Override
+            public long weigh(String key, String value) {
+                return value.length();
+            }
+        });
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            value.append('x');
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, value.toString());
+            assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        }
+        assertEquals(100 * cache.size(), cache.getWeight());
+        assertTrue(cache.size() >= 90);
+    }
+
+    @Test
+    public void testReplaceKeepsWeight() {
+        LruCache<String, String> cache = new LruCache<>(5);
+        cache.put("a", "1");
+        cache.put("a", "2");
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getWeight());
+        assertEquals("2", cache.get("a"));
+    }
+
+    @Test
+    public void testClear() {
+        LruCache<String, String> cache = new LruCache<>(5);
+        cache.put("a", "1");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new LruCache<String, String>(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new LruCache<String, String>(5).put("a", null);
+    }
+}
@@ -0,0 +1,23 @@
+import sys
+import json
+import time
+
+
+#
+# Stand-in for hgvsToGenomic.py which answers without hgvs or UTA. The n-th identifier maps to position n, so tests
+# can check that conversions are returned in order. Identifiers starting with "slow" make the stub hang for a minute.
+#
+def main(args):
+    if len(args) < 1:
+        sys.exit(1)
+
+    if any(arg.startswith("slow") for arg in args):
+        time.sleep(60)
+
+    conversions = [dict(variant=arg, start=i + 1, end=i + 1, ref="1") for i, arg in enumerate(args)]
+    sys.stdout.write(json.dumps(conversions) + "\n")
+    exit(0)
+
+
+if __name__ == "__main__":
+    main(sys.argv[1:])
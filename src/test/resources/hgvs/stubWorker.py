@@ -0,0 +1,31 @@
+import sys
+import json
+import time
+
+
+#
+# Stand-in for hgvsToGenomic.py --worker which answers without hgvs or UTA. Identifiers starting with "crash" make
+# the worker exit, identifiers starting with "hang" make it stop answering, identifiers starting with "invalid" are
+# reported as errors and anything else maps to position 1.
+#
+def main():
+    while True:
+        line = sys.stdin.readline()
+        if not line:
+            break
+        conversions = []
+        for arg in json.loads(line):
+            if arg.startswith("crash"):
+                sys.exit(1)
+            elif arg.startswith("hang"):
+                time.sleep(60)
+            elif arg.startswith("invalid"):
+                conversions.append(dict(error="%s is an invalid HGVS variant" % (arg), variant=arg))
+            else:
+                conversions.append(dict(variant=arg, start=1, end=1, ref="1"))
+        sys.stdout.write(json.dumps(conversions) + "\n")
+        sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    main()